@@ -6,14 +6,23 @@ package com.sekiya.dungeons;
 // import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
 
 import com.sekiya.dungeons.api.DungeonAPI;
+import com.sekiya.dungeons.build.BlockApplier;
+import com.sekiya.dungeons.build.DecorationScheduler;
+import com.sekiya.dungeons.build.WorldBlockWriter;
+import com.sekiya.dungeons.cache.BatchGenerator;
+import com.sekiya.dungeons.cache.GenerationAdmission;
+import com.sekiya.dungeons.cache.GenerationCache;
+import com.sekiya.dungeons.cache.PregenerationPool;
 import com.sekiya.dungeons.command.DungeonCommand;
 import com.sekiya.dungeons.command.party.PartyCommand;
 import com.sekiya.dungeons.completion.CompletionHandler;
 import com.sekiya.dungeons.config.ConfigManager;
+import com.sekiya.dungeons.config.PluginConfig;
 import com.sekiya.dungeons.instance.DungeonManager;
 import com.sekiya.dungeons.listener.*;
 import com.sekiya.dungeons.party.PartyManager;
 import com.sekiya.dungeons.portal.PortalManager;
+import com.sekiya.dungeons.protection.ProtectionManager;
 import com.sekiya.dungeons.reset.DungeonResetter;
 import com.sekiya.dungeons.shard.ShardManager;
 import com.sekiya.dungeons.shard.ShardType;
@@ -23,6 +32,9 @@ import com.sekiya.dungeons.hud.HUDManager;
 import javax.annotation.Nonnull;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -53,12 +65,22 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
     private ConfigManager configManager;
     private DungeonManager dungeonManager;
     private PortalManager portalManager;
+    private ProtectionManager protectionManager;
     private ShardManager shardManager;
     private PartyManager partyManager;
     private WandManager wandManager;
     private HUDManager hudManager;
     private DungeonResetter resetter;
     private CompletionHandler completionHandler;
+    private BlockApplier blockApplier;
+    private DecorationScheduler decorationScheduler;
+    private GenerationCache generationCache;
+    private PregenerationPool pregenerationPool;
+    private GenerationAdmission generationAdmission;
+    private BatchGenerator batchGenerator;
+    
+    // Runs the block applier every tick, stands in for the server scheduler
+    private ScheduledExecutorService applierTicker;
     
     // Listeners
     private PortalInteractListener portalInteractListener;
@@ -66,6 +88,7 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
     private PlayerMoveListener playerMoveListener;
     private PlayerQuitListener playerQuitListener;
     private WandInteractListener wandInteractListener;
+    private BlockProtectionListener blockProtectionListener;
     
     // Commands
     private DungeonCommand dungeonCommand;
@@ -167,6 +190,33 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
     public void shutdown() {
         logger.log(Level.INFO, "SekiyaDungeons shutting down...");
         
+        // Stop writing generated dungeons
+        if (applierTicker != null) {
+            applierTicker.shutdown();
+            try {
+                applierTicker.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (blockApplier != null) {
+            blockApplier.cancelAll();
+            blockApplier.tick();
+        }
+        
+        if (pregenerationPool != null) {
+            logger.log(Level.INFO, "Pre-generation pool: " + pregenerationPool);
+            pregenerationPool.shutdown();
+        }
+        
+        if (batchGenerator != null) {
+            batchGenerator.shutdown();
+        }
+        
+        if (generationCache != null) {
+            logger.log(Level.INFO, "Generation cache: " + generationCache);
+        }
+        
         // Close all active instances
         if (dungeonManager != null) {
             for (var instance : dungeonManager.getAllInstances()) {
@@ -201,17 +251,52 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
     private void initializeManagers(Path dataFolder) {
         logger.log(Level.INFO, "Initializing managers...");
         this.configManager = new ConfigManager(dataFolder);
-        this.dungeonManager = new DungeonManager(configManager);
+        this.blockApplier = new BlockApplier(configManager, new WorldBlockWriter());
+        this.decorationScheduler = new DecorationScheduler(blockApplier);
+        this.dungeonManager = new DungeonManager(configManager, decorationScheduler);
         this.portalManager = new PortalManager();
+        this.protectionManager = new ProtectionManager(dungeonManager);
+        protectionManager.attach(configManager);
         this.shardManager = new ShardManager();
         this.partyManager = new PartyManager();
         this.wandManager = new WandManager(configManager);
         this.hudManager = new HUDManager();
         this.resetter = new DungeonResetter();
         this.completionHandler = new CompletionHandler(dungeonManager, portalManager, resetter);
+        
+        PluginConfig pluginConfig = configManager.getPluginConfig();
+        this.generationCache = new GenerationCache(dataFolder.resolve("cache"), 
+            pluginConfig.getGenerationCacheMemoryMB() * 1024L * 1024L, 
+            pluginConfig.getGenerationCacheDiskMB() * 1024L * 1024L);
+        this.pregenerationPool = new PregenerationPool(pluginConfig.getPregenerationPoolSize(), 
+            pluginConfig.getPregenerationPoolMaxSize(), pluginConfig.isDeferDecorations());
+        pregenerationPool.warmAll();
+        this.generationAdmission = new GenerationAdmission(configManager);
+        this.batchGenerator = new BatchGenerator(configManager, pluginConfig.getBatchGenerationThreads());
+        
+        // Write generated dungeons a little every tick (50ms)
+        // When Hytale API is available, use the server scheduler instead:
+        // scheduler.runTaskTimer(this::tickBlockApplier, 1, 1);
+        this.applierTicker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SekiyaDungeons-Applier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        applierTicker.scheduleAtFixedRate(this::tickBlockApplier, 50, 50, TimeUnit.MILLISECONDS);
         logger.log(Level.INFO, "Managers initialized");
     }
     
+    /**
+     * Runs one tick of the block applier, an error must not stop the ticks that follow
+     */
+    private void tickBlockApplier() {
+        try {
+            blockApplier.tick();
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Error while writing generated blocks", e);
+        }
+    }
+    
     /**
      * Registers event listeners
      * 
@@ -223,8 +308,9 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
         this.portalInteractListener = new PortalInteractListener(portalManager, shardManager, dungeonManager);
         this.entityDeathListener = new EntityDeathListener(dungeonManager, completionHandler);
         this.playerMoveListener = new PlayerMoveListener(dungeonManager);
-        this.playerQuitListener = new PlayerQuitListener(dungeonManager);
+        this.playerQuitListener = new PlayerQuitListener(dungeonManager, playerMoveListener);
         this.wandInteractListener = new WandInteractListener(wandManager);
+        this.blockProtectionListener = new BlockProtectionListener(protectionManager, configManager);
         
         // TODO: When Hytale API is available, register these properly
         // Example from actual API:
@@ -243,7 +329,8 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
      */
     private void registerCommands() {
         logger.log(Level.INFO, "Registering commands...");
-        this.dungeonCommand = new DungeonCommand(configManager, dungeonManager, portalManager, shardManager);
+        this.dungeonCommand = new DungeonCommand(configManager, dungeonManager, portalManager, shardManager, 
+            batchGenerator);
         this.partyCommand = new PartyCommand(partyManager);
         
         // TODO: When Hytale API is available, register these properly
@@ -332,6 +419,14 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
         return portalManager;
     }
     
+    /**
+     * Gets the manager that tells which dungeon protects a block
+     * @return The ProtectionManager instance
+     */
+    public ProtectionManager getProtectionManager() {
+        return protectionManager;
+    }
+    
     /**
      * Gets the shard manager
      * @return The ShardManager instance
@@ -364,6 +459,54 @@ public class SekiyaDungeons /* extends JavaPlugin */ {
         return hudManager;
     }
     
+    /**
+     * Gets the block applier that writes generated dungeons into the world
+     * @return The BlockApplier instance
+     */
+    public BlockApplier getBlockApplier() {
+        return blockApplier;
+    }
+    
+    /**
+     * Gets the scheduler that applies deferred room decorations
+     * @return The DecorationScheduler instance
+     */
+    public DecorationScheduler getDecorationScheduler() {
+        return decorationScheduler;
+    }
+    
+    /**
+     * Gets the cache of generated dungeon layouts and blocks
+     * @return The GenerationCache instance
+     */
+    public GenerationCache getGenerationCache() {
+        return generationCache;
+    }
+    
+    /**
+     * Gets the pool of dungeons generated ahead of time
+     * @return The PregenerationPool instance
+     */
+    public PregenerationPool getPregenerationPool() {
+        return pregenerationPool;
+    }
+    
+    /**
+     * Gets the admission control that budgets dungeon generations
+     * @return The GenerationAdmission instance
+     */
+    public GenerationAdmission getGenerationAdmission() {
+        return generationAdmission;
+    }
+    
+    /**
+     * Gets the batch generator, which generates seeded dungeon templates in the background
+     * @return The BatchGenerator instance
+     */
+    public BatchGenerator getBatchGenerator() {
+        return batchGenerator;
+    }
+    
     /**
      * Main method for standalone testing
      * Remove this when deploying as actual Hytale plugin
@@ -1,9 +1,8 @@
 package com.sekiya.dungeons.boss;
 
-import com.sekiya.dungeons.config.BossRoomConfig;
+import com.sekiya.dungeons.config.DungeonBlueprint;
 import com.sekiya.dungeons.room.DungeonRoom;
 import com.sekiya.dungeons.room.RoomState;
-import com.sekiya.dungeons.util.BlockRegion;
 import com.sekiya.dungeons.util.Location;
 
 /**
@@ -16,25 +15,14 @@ public class BossRoom extends DungeonRoom {
     private String bossEntityUuid;
     private boolean bossDefeated;
     
-    public BossRoom(BossRoomConfig config) {
-        super(createRoomConfig(config));
-        this.bossType = config.getBossType();
-        this.bossSpawnPoint = config.getBossSpawnPoint();
-        this.spawnOnEntry = config.isSpawnOnEntry();
+    public BossRoom(DungeonBlueprint blueprint) {
+        super(blueprint.getBossRoom());
+        this.bossType = blueprint.getBossType();
+        this.bossSpawnPoint = blueprint.getBossSpawnPoint();
+        this.spawnOnEntry = blueprint.isBossSpawnOnEntry();
         this.bossDefeated = false;
     }
     
-    /**
-     * Helper to create a RoomConfig from BossRoomConfig
-     */
-    private static com.sekiya.dungeons.config.RoomConfig createRoomConfig(BossRoomConfig config) {
-        com.sekiya.dungeons.config.RoomConfig roomConfig = new com.sekiya.dungeons.config.RoomConfig();
-        roomConfig.setId(config.getId());
-        roomConfig.setOrder(999); // Boss room is always last
-        roomConfig.setBounds(config.getBounds());
-        return roomConfig;
-    }
-    
     public String getBossType() {
         return bossType;
     }
@@ -0,0 +1,210 @@
+package com.sekiya.dungeons.build;
+
+import com.sekiya.dungeons.generator.BlockBuffer;
+import com.sekiya.dungeons.generator.BlockSection;
+
+import java.util.Iterator;
+
+/**
+ * A queued stream of chunk sections being written into the world
+ * 
+ * The job remembers where it stopped inside the current section, so the
+ * applier can spread one dungeon over as many ticks as its budget requires.
+ */
+public class ApplyJob {
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+    
+    // Blocks between deadline checks, keeps System.nanoTime() off the hot path
+    private static final int TIME_CHECK_BLOCKS = 512;
+    
+    private final int id;
+    private final String name;
+    private final int priority;
+    private final long sequence;
+    private final Iterator<BlockSection> sections;
+    private final long totalBlocks;
+    private final ApplyListener listener;
+    private final long createdAt;
+    
+    private volatile ApplyState state;
+    private volatile boolean cancelRequested;
+    private BlockSection currentSection;
+    private int entryIndex;
+    private long appliedBlocks;
+    private int appliedSections;
+    private int ticks;
+    private int reportedStep;
+    
+    public ApplyJob(int id, String name, int priority, long sequence, Iterator<BlockSection> sections, 
+                    long totalBlocks, ApplyListener listener) {
+        this.id = id;
+        this.name = name;
+        this.priority = priority;
+        this.sequence = sequence;
+        this.sections = sections;
+        this.totalBlocks = totalBlocks;
+        this.listener = listener != null ? listener : new ApplyListener() {};
+        this.createdAt = System.currentTimeMillis();
+        this.state = ApplyState.QUEUED;
+        this.cancelRequested = false;
+        this.entryIndex = 0;
+        this.appliedBlocks = 0;
+        this.appliedSections = 0;
+        this.ticks = 0;
+        this.reportedStep = 0;
+    }
+    
+    /**
+     * Writes entries until the block budget or the deadline is used up
+     * 
+     * A region entry is written as a whole, so a tick can overshoot the block
+     * budget by at most one clipped region (one 16x16x16 section).
+     * 
+     * @return the number of blocks written
+     */
+    long applyUntil(WorldBlockWriter writer, long maxBlocks, long deadlineNanos) {
+        long applied = 0;
+        long sinceTimeCheck = 0;
+        state = ApplyState.RUNNING;
+        ticks++;
+        
+        while (applied < maxBlocks) {
+            if (currentSection == null) {
+                if (!sections.hasNext()) {
+                    state = ApplyState.COMPLETED;
+                    break;
+                }
+                currentSection = sections.next();
+                entryIndex = 0;
+                writer.beginSection(currentSection);
+            }
+            
+            BlockBuffer blocks = currentSection.getBlocks();
+            if (entryIndex < blocks.size()) {
+                long written = blocks.writeTo(entryIndex++, writer);
+                applied += written;
+                sinceTimeCheck += written;
+            }
+            
+            if (entryIndex >= blocks.size()) {
+                writer.finishSection(currentSection);
+                currentSection = null;
+                appliedSections++;
+            }
+            
+            if (sinceTimeCheck >= TIME_CHECK_BLOCKS) {
+                sinceTimeCheck = 0;
+                if (System.nanoTime() >= deadlineNanos) {
+                    break;
+                }
+            }
+        }
+        
+        // Finish right away if the last section ended exactly on the budget
+        if (state == ApplyState.RUNNING && currentSection == null && !sections.hasNext()) {
+            state = ApplyState.COMPLETED;
+        }
+        
+        appliedBlocks += applied;
+        return applied;
+    }
+    
+    /**
+     * Checks if a new 10% step was reached since the last report, and marks it reported
+     */
+    boolean takeProgressStep() {
+        int step = getProgressPercent() / 10;
+        if (step > reportedStep) {
+            reportedStep = step;
+            return true;
+        }
+        return false;
+    }
+    
+    void setState(ApplyState state) {
+        this.state = state;
+    }
+    
+    /**
+     * Asks the applier to stop this job on its next tick
+     */
+    public void cancel() {
+        this.cancelRequested = true;
+    }
+    
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    public boolean isFinished() {
+        return state == ApplyState.COMPLETED || state == ApplyState.CANCELLED || state == ApplyState.FAILED;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public ApplyListener getListener() {
+        return listener;
+    }
+    
+    public ApplyState getState() {
+        return state;
+    }
+    
+    public long getTotalBlocks() {
+        return totalBlocks;
+    }
+    
+    public long getAppliedBlocks() {
+        return appliedBlocks;
+    }
+    
+    public int getAppliedSections() {
+        return appliedSections;
+    }
+    
+    /**
+     * Gets the number of ticks the job has been worked on
+     */
+    public int getTicks() {
+        return ticks;
+    }
+    
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    
+    /**
+     * Gets progress in percent, 0 if the total is unknown
+     */
+    public int getProgressPercent() {
+        if (state == ApplyState.COMPLETED) {
+            return 100;
+        }
+        if (totalBlocks <= 0) {
+            return 0;
+        }
+        return (int) Math.min(100, appliedBlocks * 100 / totalBlocks);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ApplyJob{id=%d, name=%s, state=%s, progress=%d/%d}", 
+            id, name, state, appliedBlocks, totalBlocks);
+    }
+}
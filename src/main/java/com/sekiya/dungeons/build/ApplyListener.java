@@ -0,0 +1,33 @@
+package com.sekiya.dungeons.build;
+
+/**
+ * Receives progress of a block apply job
+ * 
+ * All callbacks run on the thread that ticks the {@link BlockApplier}.
+ */
+public interface ApplyListener {
+    
+    /**
+     * Called each time the job passes another 10% of its blocks
+     */
+    default void onProgress(ApplyJob job) {
+    }
+    
+    /**
+     * Called once every block is written
+     */
+    default void onComplete(ApplyJob job) {
+    }
+    
+    /**
+     * Called when the job was cancelled
+     */
+    default void onCancelled(ApplyJob job) {
+    }
+    
+    /**
+     * Called when writing a block failed, the job is stopped
+     */
+    default void onFailed(ApplyJob job, Exception error) {
+    }
+}
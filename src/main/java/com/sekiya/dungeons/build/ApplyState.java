@@ -0,0 +1,31 @@
+package com.sekiya.dungeons.build;
+
+/**
+ * Represents the state of a block apply job
+ */
+public enum ApplyState {
+    /**
+     * Job is waiting for its first tick
+     */
+    QUEUED,
+    
+    /**
+     * Job has written some of its blocks
+     */
+    RUNNING,
+    
+    /**
+     * All blocks are written
+     */
+    COMPLETED,
+    
+    /**
+     * Job was cancelled before all blocks were written
+     */
+    CANCELLED,
+    
+    /**
+     * Writing a block failed
+     */
+    FAILED
+}
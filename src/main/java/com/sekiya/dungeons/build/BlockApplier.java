@@ -0,0 +1,180 @@
+package com.sekiya.dungeons.build;
+
+import com.sekiya.dungeons.config.ConfigManager;
+import com.sekiya.dungeons.config.PluginConfig;
+import com.sekiya.dungeons.generator.BlockSection;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes generated dungeons into the world a little every tick
+ * 
+ * Each tick writes at most {@link PluginConfig#getMaxBlocksPerTick()} blocks and
+ * spends at most {@link PluginConfig#getMaxApplyMicrosPerTick()} microseconds, so
+ * building a large dungeon never shows up as a tick-time spike. The budget goes
+ * to the job with the highest priority first, jobs of equal priority run in
+ * submission order.
+ * 
+ * Jobs can be submitted and cancelled from any thread, {@link #tick()} must be
+ * called from the server thread.
+ */
+public class BlockApplier {
+    private final ConfigManager configManager;
+    private final WorldBlockWriter writer;
+    private final Queue<ApplyJob> submitted;
+    private final PriorityQueue<ApplyJob> queue;
+    private final Map<Integer, ApplyJob> jobs;
+    private final AtomicInteger nextId;
+    private final AtomicLong nextSequence;
+    
+    public BlockApplier(ConfigManager configManager, WorldBlockWriter writer) {
+        this.configManager = configManager;
+        this.writer = writer;
+        this.submitted = new ConcurrentLinkedQueue<>();
+        this.queue = new PriorityQueue<>(Comparator
+            .comparingInt(ApplyJob::getPriority).reversed()
+            .thenComparingLong(ApplyJob::getSequence));
+        this.jobs = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger(1);
+        this.nextSequence = new AtomicLong();
+    }
+    
+    /**
+     * Queues sections to be written, in iteration order
+     * 
+     * @param totalBlocks Number of blocks in all sections, used for progress (0 if unknown)
+     */
+    public ApplyJob submit(String name, Iterator<BlockSection> sections, long totalBlocks, 
+                           int priority, ApplyListener listener) {
+        ApplyJob job = new ApplyJob(nextId.getAndIncrement(), name, priority, nextSequence.getAndIncrement(), 
+            sections, totalBlocks, listener);
+        jobs.put(job.getId(), job);
+        submitted.add(job);
+        return job;
+    }
+    
+    /**
+     * Queues a list of sections to be written
+     */
+    public ApplyJob submit(String name, List<BlockSection> sections, int priority, ApplyListener listener) {
+        long totalBlocks = 0;
+        for (BlockSection section : sections) {
+            totalBlocks += section.getBlockCount();
+        }
+        return submit(name, sections.iterator(), totalBlocks, priority, listener);
+    }
+    
+    /**
+     * Cancels a job, it stops on the next tick
+     */
+    public boolean cancel(int jobId) {
+        ApplyJob job = jobs.get(jobId);
+        if (job == null || job.isFinished()) {
+            return false;
+        }
+        
+        job.cancel();
+        return true;
+    }
+    
+    /**
+     * Cancels every job that is not finished yet
+     */
+    public void cancelAll() {
+        for (ApplyJob job : jobs.values()) {
+            job.cancel();
+        }
+    }
+    
+    /**
+     * Runs one tick worth of block writes
+     * 
+     * @return the number of blocks written
+     */
+    public long tick() {
+        // Pick up jobs submitted from other threads
+        ApplyJob incoming;
+        while ((incoming = submitted.poll()) != null) {
+            queue.add(incoming);
+        }
+        
+        PluginConfig config = configManager.getPluginConfig();
+        long maxBlocks = Math.max(1, config.getMaxBlocksPerTick());
+        long deadline = System.nanoTime() + Math.max(1, config.getMaxApplyMicrosPerTick()) * 1000L;
+        long applied = 0;
+        
+        while (applied < maxBlocks && !queue.isEmpty()) {
+            ApplyJob job = queue.peek();
+            
+            if (job.isCancelRequested()) {
+                queue.poll();
+                finish(job, ApplyState.CANCELLED);
+                job.getListener().onCancelled(job);
+                continue;
+            }
+            
+            try {
+                applied += job.applyUntil(writer, maxBlocks - applied, deadline);
+            } catch (RuntimeException e) {
+                queue.poll();
+                finish(job, ApplyState.FAILED);
+                job.getListener().onFailed(job, e);
+                continue;
+            }
+            
+            if (job.getState() == ApplyState.COMPLETED) {
+                queue.poll();
+                finish(job, ApplyState.COMPLETED);
+                job.getListener().onComplete(job);
+            } else {
+                if (job.takeProgressStep()) {
+                    job.getListener().onProgress(job);
+                }
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+        }
+        
+        return applied;
+    }
+    
+    /**
+     * Gets an unfinished job by id
+     */
+    public ApplyJob getJob(int jobId) {
+        return jobs.get(jobId);
+    }
+    
+    /**
+     * Gets the unfinished job with the given name
+     */
+    public ApplyJob findJob(String name) {
+        for (ApplyJob job : jobs.values()) {
+            if (!job.isFinished() && job.getName().equalsIgnoreCase(name)) {
+                return job;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets all unfinished jobs
+     */
+    public Collection<ApplyJob> getJobs() {
+        return Collections.unmodifiableCollection(jobs.values());
+    }
+    
+    public boolean isIdle() {
+        return jobs.isEmpty();
+    }
+    
+    private void finish(ApplyJob job, ApplyState state) {
+        job.setState(state);
+        jobs.remove(job.getId());
+    }
+}
@@ -0,0 +1,136 @@
+package com.sekiya.dungeons.build;
+
+import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.config.RoomConfig;
+import com.sekiya.dungeons.generator.BlockBuffer;
+import com.sekiya.dungeons.generator.BlockSection;
+import com.sekiya.dungeons.generator.DungeonTheme;
+import com.sekiya.dungeons.generator.SectionSorter;
+import com.sekiya.dungeons.generator.WorldGenerator;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies the decorations of generated dungeons room by room, as players reach the rooms
+ *
+ * Dungeons generated with deferred decorations are built without their torches,
+ * cobwebs and pillars. When a room is unlocked, its decorations and those of the
+ * room after it are generated and queued on the {@link BlockApplier} ahead of
+ * regular builds, so the writes are spread over the run and rooms nobody reaches
+ * are never decorated.
+ *
+ * Every instance of a dungeon shares its world, so each room is decorated once
+ * until the dungeon is built again. Thread-safe.
+ */
+public class DecorationScheduler {
+    // Rooms decorated ahead of the one being reached
+    private static final int PREFETCH_ROOMS = 1;
+    
+    private final BlockApplier blockApplier;
+    private final WorldGenerator worldGenerator;
+    private final Map<String, DecoratedRooms> dungeons;
+    
+    public DecorationScheduler(BlockApplier blockApplier) {
+        this.blockApplier = blockApplier;
+        this.worldGenerator = new WorldGenerator();
+        this.dungeons = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Decorates a room and the rooms after it, unless already done
+     */
+    public void onRoomReached(DungeonTemplate template, String roomId) {
+        if (template == null || !template.isDecorationsDeferred() || template.getTheme() == null) {
+            return;
+        }
+        
+        // A template saved again under the same name replaces the rooms
+        DecoratedRooms decorated = dungeons.compute(template.getName().toLowerCase(),
+            (name, current) -> current != null && current.template == template ? current : new DecoratedRooms(template));
+        
+        int index = decorated.indexOf(roomId);
+        if (index < 0) {
+            return;
+        }
+        for (int i = index; i <= index + PREFETCH_ROOMS && i < decorated.rooms.size(); i++) {
+            if (decorated.claim(i)) {
+                decorate(template, decorated.rooms.get(i), i);
+            }
+        }
+    }
+    
+    /**
+     * Forgets which rooms of a dungeon are decorated, once it was built again or deleted
+     */
+    public void forget(String dungeonName) {
+        dungeons.remove(dungeonName.toLowerCase());
+    }
+    
+    /**
+     * Checks if the decorations of a room were queued, by its index in the dungeon's rooms
+     */
+    public boolean isDecorated(String dungeonName, int index) {
+        DecoratedRooms decorated = dungeons.get(dungeonName.toLowerCase());
+        return decorated != null && decorated.isClaimed(index);
+    }
+    
+    private void decorate(DungeonTemplate template, RoomConfig room, int index) {
+        DungeonTheme theme;
+        try {
+            theme = DungeonTheme.valueOf(template.getTheme());
+        } catch (IllegalArgumentException e) {
+            System.out.println("[SekiyaDungeons] Unknown theme " + template.getTheme() + " in dungeon " +
+                template.getName() + ", decorations skipped");
+            return;
+        }
+        
+        BlockBuffer blocks = new BlockBuffer(room.getMinBounds() != null ? room.getMinBounds().getWorld() : null);
+        worldGenerator.generateRoomDecorations(room, index, theme, template.getWorldSeed(), blocks);
+        if (blocks.isEmpty()) {
+            return;
+        }
+        
+        List<BlockSection> sections = new SectionSorter().sort(blocks);
+        blockApplier.submit(template.getName() + "/decorations/" + room.getId(), sections,
+            ApplyJob.PRIORITY_HIGH, null);
+    }
+    
+    /**
+     * Structure rooms of one dungeon, and which of them are decorated
+     */
+    private static class DecoratedRooms {
+        private final DungeonTemplate template;
+        private final List<RoomConfig> rooms;
+        private final BitSet claimed;
+        
+        DecoratedRooms(DungeonTemplate template) {
+            this.template = template;
+            this.rooms = WorldGenerator.getStructureRooms(template);
+            this.claimed = new BitSet(rooms.size());
+        }
+        
+        int indexOf(String roomId) {
+            for (int i = 0; i < rooms.size(); i++) {
+                if (rooms.get(i).getId() != null && rooms.get(i).getId().equals(roomId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        synchronized boolean claim(int index) {
+            if (claimed.get(index)) {
+                return false;
+            }
+            claimed.set(index);
+            return true;
+        }
+        
+        synchronized boolean isClaimed(int index) {
+            return claimed.get(index);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.sekiya.dungeons.build;
+
+import com.sekiya.dungeons.generator.BlockSection;
+import com.sekiya.dungeons.generator.BlockSink;
+import com.sekiya.dungeons.generator.BlockType;
+import com.sekiya.dungeons.generator.CuboidFill;
+
+/**
+ * Writes generated blocks into the world, one chunk section at a time
+ * Placeholder for actual Hytale API implementation
+ */
+public class WorldBlockWriter implements BlockSink {
+    private BlockSection currentSection;
+    
+    /**
+     * Prepares a chunk section for writing
+     */
+    public void beginSection(BlockSection section) {
+        this.currentSection = section;
+        
+        // Placeholder: Use Hytale's world API to load the chunk
+        // Example: world.getChunk(section.getChunkX(), section.getChunkZ())
+    }
+    
+    @Override
+    public void place(int x, int y, int z, BlockType type, String metadata) {
+        // Placeholder: Use Hytale's world API to set the block
+        // Example: world.setBlock(x, y, z, type, metadata)
+    }
+    
+    @Override
+    public void fill(CuboidFill region) {
+        // Placeholder: Use Hytale's bulk fill API if available
+        // Example: world.fill(region.getMinX(), ..., region.getMaxZ(), type)
+        region.expandTo(this);
+    }
+    
+    /**
+     * Finishes a chunk section after all of its blocks are written
+     */
+    public void finishSection(BlockSection section) {
+        // Placeholder: Relight the section and resend it to nearby players
+        // Example: chunk.relight(); chunk.markDirty()
+        this.currentSection = null;
+    }
+    
+    public BlockSection getCurrentSection() {
+        return currentSection;
+    }
+}
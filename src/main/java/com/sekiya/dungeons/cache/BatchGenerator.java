@@ -0,0 +1,135 @@
+package com.sekiya.dungeons.cache;
+
+import com.sekiya.dungeons.config.ConfigManager;
+import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.generator.DungeonGenerator;
+import com.sekiya.dungeons.generator.GenerationConfig;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates batches of seeded dungeon templates on a bounded pool of worker threads
+ *
+ * Every dungeon of a batch is one task: generate the template from its seed, then
+ * save it through the {@link ConfigManager}, so templates are written to storage
+ * in parallel as well. Dungeons whose name is taken are skipped, and a failure is
+ * reported without stopping the batch. One batch runs at a time.
+ *
+ * Only templates are generated; their theme and seed are kept so they can be built
+ * into the world later with {@code /dungeon generateworld rebuild}.
+ */
+public class BatchGenerator {
+    private final ConfigManager configManager;
+    private final DungeonGenerator generator;
+    private final ExecutorService executor;
+    private final int threads;
+    private volatile BatchJob current;
+    
+    /**
+     * @param threads worker threads, or 0 or less for half the available processors
+     */
+    public BatchGenerator(ConfigManager configManager, int threads) {
+        this.configManager = configManager;
+        this.generator = new DungeonGenerator();
+        this.threads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "SekiyaDungeons-Batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+    
+    /**
+     * Starts generating the dungeons of seeds seedStart to seedStart + count - 1
+     *
+     * @return the batch, or null if another batch is still running
+     */
+    public synchronized BatchJob start(int count, String difficulty, String theme, long seedStart,
+                                       BatchListener listener) {
+        if (current != null && !current.isComplete()) {
+            return null;
+        }
+        
+        BatchJob job = new BatchJob(count, difficulty, theme, seedStart, listener);
+        current = job;
+        for (int i = 0; i < count; i++) {
+            long seed = seedStart + i;
+            try {
+                executor.execute(() -> generate(job, seed));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                job.recordCancelled();
+            }
+        }
+        return job;
+    }
+    
+    /**
+     * Gets the running or last batch
+     *
+     * @return the batch, or null if none was started
+     */
+    public BatchJob getCurrent() {
+        return current;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * Cancels the running batch and stops the workers
+     */
+    public void shutdown() {
+        BatchJob job = current;
+        if (job != null) {
+            job.cancel();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void generate(BatchJob job, long seed) {
+        if (job.isCancelRequested()) {
+            job.recordCancelled();
+            return;
+        }
+        
+        String name = job.nameFor(seed);
+        if (configManager.hasDungeonTemplate(name)) {
+            job.recordSkipped();
+            return;
+        }
+        
+        try {
+            GenerationConfig config = GenerationConfig.forDifficulty(job.getDifficulty());
+            config.setSeed(seed);
+            config.setTheme(job.getTheme());
+            
+            DungeonTemplate template = generator.generate(name, config);
+            template.setTheme(job.getTheme());
+            template.setWorldSeed(seed);
+            configManager.saveDungeonTemplate(template);
+        } catch (RuntimeException e) {
+            job.recordFailed(name, e);
+            return;
+        }
+        job.recordGenerated();
+    }
+    
+    @Override
+    public String toString() {
+        return "BatchGenerator{threads=" + threads + ", current=" + current + "}";
+    }
+}
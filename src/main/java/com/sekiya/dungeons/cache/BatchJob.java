@@ -0,0 +1,163 @@
+package com.sekiya.dungeons.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A batch of dungeon templates being generated from consecutive seeds
+ *
+ * Dungeons are named {@code <theme>_<difficulty>_<seed>} in lower case. Counters
+ * are updated by the worker threads and can be read from any thread.
+ */
+public class BatchJob {
+    private final int count;
+    private final String difficulty;
+    private final String theme;
+    private final long seedStart;
+    private final BatchListener listener;
+    private final long startedAt;
+    
+    private final AtomicInteger generated;
+    private final AtomicInteger skipped;
+    private final AtomicInteger failed;
+    private final AtomicInteger remaining;
+    private final AtomicInteger reportedStep;
+    private volatile boolean cancelRequested;
+    private volatile long finishedAt;
+    private volatile boolean complete;
+    
+    BatchJob(int count, String difficulty, String theme, long seedStart, BatchListener listener) {
+        this.count = count;
+        this.difficulty = difficulty;
+        this.theme = theme;
+        this.seedStart = seedStart;
+        this.listener = listener != null ? listener : new BatchListener() {};
+        this.startedAt = System.nanoTime();
+        this.generated = new AtomicInteger();
+        this.skipped = new AtomicInteger();
+        this.failed = new AtomicInteger();
+        this.remaining = new AtomicInteger(count);
+        this.reportedStep = new AtomicInteger();
+    }
+    
+    /**
+     * Gets the name of the dungeon generated from a seed
+     */
+    public String nameFor(long seed) {
+        return (theme + "_" + difficulty + "_" + seed).toLowerCase();
+    }
+    
+    /**
+     * Asks the workers to skip the dungeons they have not started yet
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+    
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public String getDifficulty() {
+        return difficulty;
+    }
+    
+    public String getTheme() {
+        return theme;
+    }
+    
+    public long getSeedStart() {
+        return seedStart;
+    }
+    
+    public int getGenerated() {
+        return generated.get();
+    }
+    
+    public int getSkipped() {
+        return skipped.get();
+    }
+    
+    public int getFailed() {
+        return failed.get();
+    }
+    
+    /**
+     * Gets the number of dungeons generated, skipped or failed so far
+     */
+    public int getFinished() {
+        return generated.get() + skipped.get() + failed.get();
+    }
+    
+    public int getProgressPercent() {
+        return count == 0 ? 100 : (int) (getFinished() * 100L / count);
+    }
+    
+    /**
+     * Gets the seconds since the batch started, or until it completed
+     */
+    public double getElapsedSeconds() {
+        long end = complete ? finishedAt : System.nanoTime();
+        return (end - startedAt) / 1_000_000_000.0;
+    }
+    
+    /**
+     * Gets the throughput in generated dungeons per second
+     */
+    public double getDungeonsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? generated.get() / seconds : 0;
+    }
+    
+    void recordGenerated() {
+        generated.incrementAndGet();
+        finishOne();
+    }
+    
+    void recordSkipped() {
+        skipped.incrementAndGet();
+        finishOne();
+    }
+    
+    void recordFailed(String name, Exception error) {
+        failed.incrementAndGet();
+        listener.onFailed(this, name, error);
+        finishOne();
+    }
+    
+    /**
+     * Counts a dungeon that was never started because the batch was cancelled
+     */
+    void recordCancelled() {
+        finishOne();
+    }
+    
+    private void finishOne() {
+        // Report each 10% step once, even when workers pass it together
+        int step = getProgressPercent() / 10;
+        int reported = reportedStep.get();
+        if (step > reported && step < 10 && reportedStep.compareAndSet(reported, step)) {
+            listener.onProgress(this);
+        }
+        
+        if (remaining.decrementAndGet() == 0) {
+            finishedAt = System.nanoTime();
+            complete = true;
+            listener.onComplete(this);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BatchJob{%s %s, seeds %d-%d, %d/%d done, %d skipped, %d failed, %.1f/s}",
+            difficulty, theme, seedStart, seedStart + count - 1, getFinished(), count, skipped.get(),
+            failed.get(), getDungeonsPerSecond());
+    }
+}
@@ -0,0 +1,27 @@
+package com.sekiya.dungeons.cache;
+
+/**
+ * Receives progress of a batch of generated dungeons
+ * 
+ * Callbacks run on the batch worker threads, possibly several at once.
+ */
+public interface BatchListener {
+    
+    /**
+     * Called each time the batch passes another 10% of its dungeons
+     */
+    default void onProgress(BatchJob job) {
+    }
+    
+    /**
+     * Called when generating or saving one dungeon failed, the batch goes on
+     */
+    default void onFailed(BatchJob job, String name, Exception error) {
+    }
+    
+    /**
+     * Called once every dungeon is generated, skipped or failed, or the batch was cancelled
+     */
+    default void onComplete(BatchJob job) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.sekiya.dungeons.cache;
+
+import com.sekiya.dungeons.config.ConfigManager;
+import com.sekiya.dungeons.config.PluginConfig;
+import com.sekiya.dungeons.generator.GenerationEstimate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Decides whether a dungeon generation may start, from its {@link GenerationEstimate}
+ *
+ * A generation over any per-job budget is rejected. Otherwise its estimated memory
+ * is reserved from the shared generation memory budget; when the reservation does
+ * not fit next to the generations already running, the job waits in a FIFO queue
+ * until enough memory is released. Budgets are read from the PluginConfig on
+ * every call, so a config reload applies to the next job.
+ */
+public class GenerationAdmission {
+    /**
+     * Outcome of {@link #admit(GenerationEstimate, Runnable)}
+     */
+    public enum Decision {
+        ADMITTED,
+        QUEUED,
+        REJECTED
+    }
+    
+    private final ConfigManager configManager;
+    private final Deque<QueuedJob> queue;
+    private long reservedBytes;
+    private int running;
+    
+    public GenerationAdmission(ConfigManager configManager) {
+        this.configManager = configManager;
+        this.queue = new ArrayDeque<>();
+    }
+    
+    /**
+     * Checks an estimate against the per-job budgets
+     *
+     * @return a description of the budget that is exceeded, or null if the job fits
+     */
+    public static String checkBudget(GenerationEstimate estimate, PluginConfig config) {
+        if (estimate.getBlocks() > config.getMaxGenerationBlocks()) {
+            return String.format("%d blocks, the limit is %d", estimate.getBlocks(), config.getMaxGenerationBlocks());
+        }
+        if (estimate.getMemoryMB() > config.getGenerationMemoryBudgetMB()) {
+            return String.format("%dMB of memory, the limit is %dMB",
+                estimate.getMemoryMB(), config.getGenerationMemoryBudgetMB());
+        }
+        if (estimate.getApplySeconds() > config.getMaxGenerationApplySeconds()) {
+            return String.format("%.0fs to build, the limit is %ds",
+                estimate.getApplySeconds(), config.getMaxGenerationApplySeconds());
+        }
+        return null;
+    }
+    
+    /**
+     * Starts a generation now, queues it, or rejects it
+     *
+     * An admitted job runs on the calling thread, a queued one on the thread that
+     * releases the memory it waits for. Every job that runs must call
+     * {@link #release(GenerationEstimate)} once its generation is done.
+     */
+    public Decision admit(GenerationEstimate estimate, Runnable job) {
+        PluginConfig config = configManager.getPluginConfig();
+        if (checkBudget(estimate, config) != null) {
+            return Decision.REJECTED;
+        }
+        
+        synchronized (this) {
+            if (queue.isEmpty() && fits(estimate, config)) {
+                reserve(estimate);
+            } else if (queue.size() < config.getMaxQueuedGenerations()) {
+                queue.add(new QueuedJob(estimate, job));
+                return Decision.QUEUED;
+            } else {
+                return Decision.REJECTED;
+            }
+        }
+        
+        job.run();
+        return Decision.ADMITTED;
+    }
+    
+    /**
+     * Releases the memory of a finished generation and starts queued jobs that now fit
+     */
+    public void release(GenerationEstimate estimate) {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            reservedBytes -= estimate.getMemoryBytes();
+            running--;
+            
+            PluginConfig config = configManager.getPluginConfig();
+            while (!queue.isEmpty() && fits(queue.peek().estimate, config)) {
+                QueuedJob next = queue.poll();
+                reserve(next.estimate);
+                ready.add(next.job);
+            }
+        }
+        
+        for (Runnable job : ready) {
+            job.run();
+        }
+    }
+    
+    public synchronized int getRunningCount() {
+        return running;
+    }
+    
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+    
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+    
+    private boolean fits(GenerationEstimate estimate, PluginConfig config) {
+        // A job alone always fits, the per-job budget already bounds it
+        long budget = config.getGenerationMemoryBudgetMB() * 1024L * 1024L;
+        return running == 0 || reservedBytes + estimate.getMemoryBytes() <= budget;
+    }
+    
+    private void reserve(GenerationEstimate estimate) {
+        reservedBytes += estimate.getMemoryBytes();
+        running++;
+    }
+    
+    private static class QueuedJob {
+        private final GenerationEstimate estimate;
+        private final Runnable job;
+        
+        QueuedJob(GenerationEstimate estimate, Runnable job) {
+            this.estimate = estimate;
+            this.job = job;
+        }
+    }
+}
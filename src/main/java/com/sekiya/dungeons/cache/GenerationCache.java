@@ -0,0 +1,376 @@
+package com.sekiya.dungeons.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.generator.GenerationConfig;
+import com.sekiya.dungeons.schematic.SchematicFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of generation results
+ * 
+ * Results are stored under a SHA-256 hash of everything that determines them
+ * (see {@link #key(GenerationConfig, String)}), so generating the same dungeon
+ * twice only pays for generation once. Two tiers:
+ * - Memory: LRU bounded by the estimated heap size of the cached sections
+ * - Disk: a schematic plus the template JSON per key, bounded by total file
+ *   size, the files of the least recently used keys are deleted first. A disk
+ *   hit maps the schematic and streams its sections when they are applied, so
+ *   it is not copied to the heap nor into the memory tier.
+ * 
+ * Generation with seed 0 is random and never cached.
+ */
+public class GenerationCache {
+    
+    // Bump when generation output changes, so stale disk entries are not reused
+    private static final int GENERATOR_VERSION = 6;
+    private static final String TEMPLATE_EXTENSION = ".json";
+    
+    private final Path cacheFolder;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final Gson gson;
+    
+    private final LinkedHashMap<String, CacheEntry> memory;
+    private long memoryBytes;
+    
+    private final AtomicLong memoryHits;
+    private final AtomicLong diskHits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    
+    public GenerationCache(Path cacheFolder, long maxMemoryBytes, long maxDiskBytes) {
+        this.cacheFolder = cacheFolder;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.gson = new GsonBuilder().create();
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        this.memoryBytes = 0;
+        this.memoryHits = new AtomicLong();
+        this.diskHits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        
+        try {
+            Files.createDirectories(cacheFolder);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Gets the key of a dungeon generated from a config
+     * 
+     * @return the key, or null if the config uses a random seed
+     */
+    public static String key(GenerationConfig config, String name) {
+        if (config.getSeed() == 0) {
+            return null;
+        }
+        return hash("config", name, new Gson().toJson(config));
+    }
+    
+    /**
+     * Gets a cached result, checking memory first and then disk
+     * 
+     * @return a result with its own copy of the template, or null on a miss
+     */
+    public GenerationResult get(String key) {
+        if (key == null) {
+            return null;
+        }
+        
+        CacheEntry entry;
+        synchronized (this) {
+            entry = memory.get(key);
+        }
+        if (entry != null) {
+            memoryHits.incrementAndGet();
+            return entry.result.asCached(parseTemplate(entry.templateJson));
+        }
+        
+        entry = loadFromDisk(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        
+        diskHits.incrementAndGet();
+        return entry.result.asCached(parseTemplate(entry.templateJson));
+    }
+    
+    /**
+     * Stores a result in both tiers
+     */
+    public void put(String key, GenerationResult result) {
+        if (key == null) {
+            return;
+        }
+        
+        // The template is kept as JSON, every hit parses its own copy
+        CacheEntry entry = new CacheEntry(result.asCached(null), toJson(result.getTemplate()));
+        putInMemory(key, entry);
+        saveToDisk(key, entry);
+    }
+    
+    /**
+     * Drops every entry from both tiers
+     */
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        
+        try (Stream<Path> files = Files.list(cacheFolder)) {
+            files.forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+    
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    /**
+     * Gets the share of lookups served from either tier, 0 to 1
+     */
+    public double getHitRate() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+    
+    public synchronized int getMemoryEntries() {
+        return memory.size();
+    }
+    
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+    
+    private synchronized void putInMemory(String key, CacheEntry entry) {
+        long size = entry.getMemoryFootprint();
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        
+        CacheEntry previous = memory.put(key, entry);
+        if (previous != null) {
+            memoryBytes -= previous.getMemoryFootprint();
+        }
+        memoryBytes += size;
+        
+        // Evict least recently used entries until the tier fits again
+        Iterator<Map.Entry<String, CacheEntry>> iterator = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> eldest = iterator.next();
+            memoryBytes -= eldest.getValue().getMemoryFootprint();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+    
+    private CacheEntry loadFromDisk(String key) {
+        Path schematicFile = cacheFolder.resolve(key + SchematicFormat.FILE_EXTENSION);
+        Path templateFile = cacheFolder.resolve(key + TEMPLATE_EXTENSION);
+        if (!Files.exists(schematicFile) && !Files.exists(templateFile)) {
+            return null;
+        }
+        
+        try {
+            // Both files are needed, a result without its template cannot be used
+            if (!Files.exists(schematicFile) || !Files.exists(templateFile)) {
+                throw new IOException("missing " + (Files.exists(templateFile) ? "schematic" : "template"));
+            }
+            String templateJson = Files.readString(templateFile, StandardCharsets.UTF_8);
+            
+            // Parse once up front, so a broken template is dropped here and not on every hit
+            if (parseTemplate(templateJson) == null) {
+                throw new IOException("empty template");
+            }
+            touch(templateFile);
+            
+            // Only the header is read, the mapping stays valid if the file is trimmed later
+            GenerationResult result = GenerationResult.fromSchematic(null, schematicFile);
+            touch(schematicFile);
+            return new CacheEntry(result, templateJson);
+        } catch (IOException | RuntimeException e) {
+            // A broken entry is a miss, drop it so it is regenerated
+            System.out.println("Dropping unreadable cache entry " + key + ": " + e.getMessage());
+            deleteEntry(key);
+            return null;
+        }
+    }
+    
+    private void saveToDisk(String key, CacheEntry entry) {
+        GenerationResult result = entry.result;
+        try {
+            if (entry.templateJson != null) {
+                Path templateFile = cacheFolder.resolve(key + TEMPLATE_EXTENSION);
+                Path temp = cacheFolder.resolve(key + TEMPLATE_EXTENSION + ".tmp");
+                Files.writeString(temp, entry.templateJson, StandardCharsets.UTF_8);
+                Files.move(temp, templateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            
+            result.writeSchematic(cacheFolder.resolve(key + SchematicFormat.FILE_EXTENSION));
+        } catch (IOException e) {
+            e.printStackTrace();
+            deleteEntry(key);
+            return;
+        }
+        
+        trimDisk();
+    }
+    
+    /**
+     * Deletes the least recently used keys until the disk tier fits its budget
+     * 
+     * The files of a key are deleted together, so a schematic never outlives its template.
+     */
+    private synchronized void trimDisk() {
+        Map<String, DiskEntry> entries = new HashMap<>();
+        long total = 0;
+        
+        try (Stream<Path> stream = Files.list(cacheFolder)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                if (Files.isRegularFile(file)) {
+                    String name = file.getFileName().toString();
+                    int dot = name.indexOf('.');
+                    DiskEntry entry = entries.computeIfAbsent(dot < 0 ? name : name.substring(0, dot), DiskEntry::new);
+                    long size = Files.size(file);
+                    entry.size += size;
+                    entry.lastUsed = Math.max(entry.lastUsed, lastModified(file).toMillis());
+                    total += size;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        
+        List<DiskEntry> oldestFirst = new ArrayList<>(entries.values());
+        oldestFirst.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        for (DiskEntry entry : oldestFirst) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            deleteEntry(entry.key);
+            total -= entry.size;
+        }
+    }
+    
+    private void deleteEntry(String key) {
+        try {
+            Files.deleteIfExists(cacheFolder.resolve(key + SchematicFormat.FILE_EXTENSION));
+            Files.deleteIfExists(cacheFolder.resolve(key + TEMPLATE_EXTENSION));
+            Files.deleteIfExists(cacheFolder.resolve(key + TEMPLATE_EXTENSION + ".tmp"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private String toJson(DungeonTemplate template) {
+        return template == null ? null : gson.toJson(template);
+    }
+    
+    private DungeonTemplate parseTemplate(String json) {
+        return json == null ? null : gson.fromJson(json, DungeonTemplate.class);
+    }
+    
+    private static void touch(Path file) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+    
+    private static String hash(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Integer.toString(GENERATOR_VERSION).getBytes(StandardCharsets.UTF_8));
+            for (String part : parts) {
+                digest.update((byte) 0);
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("GenerationCache{entries=%d, memory=%dKB, memoryHits=%d, diskHits=%d, misses=%d, evictions=%d}", 
+            getMemoryEntries(), getMemoryBytes() / 1024, memoryHits.get(), diskHits.get(), 
+            misses.get(), evictions.get());
+    }
+    
+    /**
+     * Memory tier entry, the shared sections plus the template as JSON
+     */
+    private static class CacheEntry {
+        private final GenerationResult result;
+        private final String templateJson;
+        
+        private CacheEntry(GenerationResult result, String templateJson) {
+            this.result = result;
+            this.templateJson = templateJson;
+        }
+        
+        private long getMemoryFootprint() {
+            return result.getMemoryFootprint() + (templateJson != null ? 2L * templateJson.length() : 0);
+        }
+    }
+    
+    /**
+     * Files of one key on disk, while the disk tier is trimmed
+     */
+    private static class DiskEntry {
+        private final String key;
+        private long size;
+        private long lastUsed;
+        
+        private DiskEntry(String key) {
+            this.key = key;
+        }
+    }
+}
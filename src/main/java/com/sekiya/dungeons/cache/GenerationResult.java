@@ -0,0 +1,189 @@
+package com.sekiya.dungeons.cache;
+
+import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.generator.BlockSection;
+import com.sekiya.dungeons.schematic.SchematicReader;
+import com.sekiya.dungeons.schematic.SchematicWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A generated dungeon: its template and its blocks, batched per chunk section
+ * 
+ * The sections are either held on the heap or streamed from a memory-mapped
+ * schematic, one section at a time, so a dungeon loaded from disk is never
+ * held whole. Results are shared through the {@link GenerationCache}, so the
+ * sections must not be modified once the result is created.
+ */
+public class GenerationResult {
+    private final DungeonTemplate template;
+    
+    // Exactly one of the two holds the blocks
+    private final List<BlockSection> sections;
+    private final SchematicReader schematic;
+    
+    private final long blockCount;
+    private final int operationCount;
+    private final int sectionCount;
+    private final int columnCount;
+    private final long removedWrites;
+    private final boolean fromCache;
+    
+    public GenerationResult(DungeonTemplate template, List<BlockSection> sections, long removedWrites) {
+        this.template = template;
+        this.sections = Collections.unmodifiableList(sections);
+        this.schematic = null;
+        this.removedWrites = removedWrites;
+        this.fromCache = false;
+        
+        long blocks = 0;
+        int operations = 0;
+        int columns = 0;
+        BlockSection previous = null;
+        for (BlockSection section : sections) {
+            blocks += section.getBlockCount();
+            operations += section.getBlocks().size();
+            if (previous == null || previous.getChunkX() != section.getChunkX() 
+                    || previous.getChunkZ() != section.getChunkZ()) {
+                columns++;
+            }
+            previous = section;
+        }
+        this.blockCount = blocks;
+        this.operationCount = operations;
+        this.sectionCount = sections.size();
+        this.columnCount = columns;
+    }
+    
+    private GenerationResult(DungeonTemplate template, SchematicReader schematic) {
+        this.template = template;
+        this.sections = null;
+        this.schematic = schematic;
+        this.removedWrites = 0;
+        this.fromCache = false;
+        
+        // Sections are stored by chunk column, so a new column starts where x or z changes
+        int columns = 0;
+        for (int i = 0; i < schematic.getSectionCount(); i++) {
+            if (i == 0 || schematic.getSectionX(i) != schematic.getSectionX(i - 1)
+                    || schematic.getSectionZ(i) != schematic.getSectionZ(i - 1)) {
+                columns++;
+            }
+        }
+        this.blockCount = schematic.getBlockCount();
+        this.operationCount = -1;
+        this.sectionCount = schematic.getSectionCount();
+        this.columnCount = columns;
+    }
+    
+    private GenerationResult(GenerationResult source, DungeonTemplate templateCopy) {
+        this.template = templateCopy;
+        this.sections = source.sections;
+        this.schematic = source.schematic;
+        this.blockCount = source.blockCount;
+        this.operationCount = source.operationCount;
+        this.sectionCount = source.sectionCount;
+        this.columnCount = source.columnCount;
+        this.removedWrites = source.removedWrites;
+        this.fromCache = true;
+    }
+    
+    /**
+     * Opens a schematic whose sections are streamed from the mapped file when applied
+     * 
+     * Only the schematic's header is read here.
+     */
+    public static GenerationResult fromSchematic(DungeonTemplate template, Path file) throws IOException {
+        return new GenerationResult(template, SchematicReader.open(file));
+    }
+    
+    /**
+     * Creates the copy handed out by the cache, with its own template
+     */
+    GenerationResult asCached(DungeonTemplate templateCopy) {
+        return new GenerationResult(this, templateCopy);
+    }
+    
+    public DungeonTemplate getTemplate() {
+        return template;
+    }
+    
+    /**
+     * Iterates the sections in application order, decoding streamed ones as they are reached
+     */
+    public Iterator<BlockSection> openSections() {
+        return sections != null ? sections.iterator() : schematic.sections();
+    }
+    
+    /**
+     * Writes the sections as a schematic, a streamed result copies its file as it is
+     */
+    public void writeSchematic(Path file) throws IOException {
+        if (schematic != null) {
+            schematic.copyTo(file);
+            return;
+        }
+        
+        SchematicWriter writer = new SchematicWriter(sections.isEmpty() ? null : sections.get(0).getWorld());
+        writer.addSections(sections);
+        writer.write(file);
+    }
+    
+    public long getBlockCount() {
+        return blockCount;
+    }
+    
+    /**
+     * Gets the number of buffer entries (placements and region operations)
+     * 
+     * @return the count, or -1 for sections streamed from a schematic
+     */
+    public int getOperationCount() {
+        return operationCount;
+    }
+    
+    public int getSectionCount() {
+        return sectionCount;
+    }
+    
+    /**
+     * Gets the number of chunk columns the sections touch
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+    
+    public long getRemovedWrites() {
+        return removedWrites;
+    }
+    
+    public boolean isFromCache() {
+        return fromCache;
+    }
+    
+    /**
+     * Checks if the sections are streamed from a schematic instead of held on the heap
+     */
+    public boolean isStreamed() {
+        return schematic != null;
+    }
+    
+    /**
+     * Estimates the heap held by the sections in bytes, 0 when they are streamed
+     */
+    public long getMemoryFootprint() {
+        if (sections == null) {
+            return 0;
+        }
+        
+        long bytes = 0;
+        for (BlockSection section : sections) {
+            bytes += section.getBlocks().getMemoryFootprint();
+        }
+        return bytes;
+    }
+}
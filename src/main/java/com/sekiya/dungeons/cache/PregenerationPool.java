@@ -0,0 +1,276 @@
+package com.sekiya.dungeons.cache;
+
+import com.sekiya.dungeons.generator.DungeonTheme;
+import com.sekiya.dungeons.generator.GenerationConfig;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps dungeons with a random seed generated ahead of time, per difficulty and theme
+ *
+ * Layouts are generated on a single low-priority daemon thread and handed out
+ * by {@link #take(String, String, String)} without waiting. Each pool holds at
+ * least the configured minimum and grows with recent demand, measured as a
+ * moving average of takes per minute, up to the configured maximum.
+ */
+public class PregenerationPool {
+    private static final String POOLED_NAME = "pregenerated";
+    private static final long DEMAND_WINDOW_MILLIS = 60_000;
+    private static final double DEMAND_SMOOTHING = 0.5;
+    
+    private final int minSize;
+    private final int maxSize;
+    private final boolean deferDecorations;
+    private final Map<String, Pool> pools;
+    private final ExecutorService executor;
+    private final StructureGenerator generator;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong generated;
+    private volatile boolean shutdown;
+    
+    public PregenerationPool(int minSize, int maxSize) {
+        this(minSize, maxSize, false);
+    }
+    
+    /**
+     * @param deferDecorations whether pooled dungeons leave their decorations until rooms are reached
+     */
+    public PregenerationPool(int minSize, int maxSize, boolean deferDecorations) {
+        this.minSize = Math.max(0, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.deferDecorations = deferDecorations;
+        this.pools = new ConcurrentHashMap<>();
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SekiyaDungeons-Pregeneration");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.generator = new StructureGenerator();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.generated = new AtomicLong();
+    }
+    
+    /**
+     * Starts filling the pools of every difficulty and theme
+     */
+    public void warmAll() {
+        for (String difficulty : GenerationConfig.DIFFICULTIES) {
+            for (DungeonTheme theme : DungeonTheme.values()) {
+                refill(pool(difficulty, theme.name()));
+            }
+        }
+    }
+    
+    /**
+     * Takes a pre-generated dungeon and gives it its final name
+     *
+     * @return the dungeon, or null if none is ready and the caller has to generate it
+     */
+    public GenerationResult take(String difficulty, String theme, String name) {
+        Pool pool = pool(difficulty, theme);
+        int target = pool.recordDemand(System.currentTimeMillis(), minSize, maxSize);
+        
+        GenerationResult result = pool.ready.poll();
+        
+        // Let the pool shrink once demand drops
+        for (int excess = pool.ready.size() - target; excess > 0; excess--) {
+            pool.ready.poll();
+        }
+        
+        refill(pool);
+        
+        if (result == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        
+        hits.incrementAndGet();
+        generator.rename(result, name);
+        return result;
+    }
+    
+    /**
+     * Stops generating, layouts that are not taken yet are dropped
+     */
+    public void shutdown() {
+        shutdown = true;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pools.clear();
+    }
+    
+    /**
+     * Gets the number of layouts ready to be taken, over every pool
+     */
+    public int getReadyCount() {
+        int ready = 0;
+        for (Pool pool : pools.values()) {
+            ready += pool.ready.size();
+        }
+        return ready;
+    }
+    
+    /**
+     * Gets the number of layouts ready for a difficulty and theme
+     */
+    public int getReadyCount(String difficulty, String theme) {
+        Pool pool = pools.get(poolKey(difficulty, theme));
+        return pool != null ? pool.ready.size() : 0;
+    }
+    
+    /**
+     * Gets the number of layouts a pool currently tries to keep ready
+     */
+    public int getTargetSize(String difficulty, String theme) {
+        Pool pool = pools.get(poolKey(difficulty, theme));
+        return pool != null ? pool.getTarget(System.currentTimeMillis(), minSize, maxSize) : minSize;
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getGenerated() {
+        return generated.get();
+    }
+    
+    /**
+     * Queues generation until the pool holds its target size
+     */
+    private void refill(Pool pool) {
+        int target = pool.getTarget(System.currentTimeMillis(), minSize, maxSize);
+        while (!shutdown) {
+            int pending = pool.pending.get();
+            if (pool.ready.size() + pending >= target) {
+                return;
+            }
+            if (pool.pending.compareAndSet(pending, pending + 1)) {
+                try {
+                    executor.execute(() -> generate(pool));
+                } catch (RuntimeException e) {
+                    // Rejected during shutdown
+                    pool.pending.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Generates one layout for a pool, runs on the pool thread
+     */
+    private void generate(Pool pool) {
+        try {
+            if (shutdown) {
+                return;
+            }
+            
+            GenerationConfig config = GenerationConfig.forDifficulty(pool.difficulty);
+            config.setTheme(pool.theme);
+            config.setGenerateWorld(true);
+            config.setSeed(StructureGenerator.randomSeed());
+            config.setDeferDecorations(deferDecorations);
+            
+            pool.ready.add(generator.generate(POOLED_NAME, config));
+            generated.incrementAndGet();
+        } catch (RuntimeException e) {
+            // Not retried, the next take refills the pool
+            System.out.println("[SekiyaDungeons] Failed to pre-generate " + pool.difficulty + " " + pool.theme +
+                " dungeon: " + e.getMessage());
+        } finally {
+            pool.pending.decrementAndGet();
+        }
+    }
+    
+    private Pool pool(String difficulty, String theme) {
+        return pools.computeIfAbsent(poolKey(difficulty, theme),
+            key -> new Pool(difficulty.toUpperCase(), theme.toUpperCase()));
+    }
+    
+    private static String poolKey(String difficulty, String theme) {
+        return difficulty.toUpperCase() + ":" + theme.toUpperCase();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("PregenerationPool{pools=%d, ready=%d, hits=%d, misses=%d, generated=%d}",
+            pools.size(), getReadyCount(), hits.get(), misses.get(), generated.get());
+    }
+    
+    /**
+     * Ready layouts and demand tracking for one difficulty and theme
+     */
+    private static class Pool {
+        private final String difficulty;
+        private final String theme;
+        private final Queue<GenerationResult> ready;
+        private final AtomicInteger pending;
+        
+        // Takes in the current window and the smoothed takes per window before it
+        private long windowStart;
+        private int windowTakes;
+        private double demand;
+        
+        Pool(String difficulty, String theme) {
+            this.difficulty = difficulty;
+            this.theme = theme;
+            this.ready = new ConcurrentLinkedQueue<>();
+            this.pending = new AtomicInteger();
+            this.windowStart = System.currentTimeMillis();
+        }
+        
+        /**
+         * Counts a take and returns the resulting target size
+         */
+        synchronized int recordDemand(long now, int minSize, int maxSize) {
+            roll(now);
+            windowTakes++;
+            return target(minSize, maxSize);
+        }
+        
+        synchronized int getTarget(long now, int minSize, int maxSize) {
+            roll(now);
+            return target(minSize, maxSize);
+        }
+        
+        private int target(int minSize, int maxSize) {
+            // A burst in the current window counts before the average catches up
+            int expected = (int) Math.ceil(Math.max(demand, windowTakes));
+            return Math.max(minSize, Math.min(maxSize, expected));
+        }
+        
+        private void roll(long now) {
+            long windows = (now - windowStart) / DEMAND_WINDOW_MILLIS;
+            if (windows <= 0) {
+                return;
+            }
+            
+            demand = DEMAND_SMOOTHING * windowTakes + (1 - DEMAND_SMOOTHING) * demand;
+            if (windows > 1) {
+                // Empty windows since then
+                demand *= Math.pow(1 - DEMAND_SMOOTHING, Math.min(windows - 1, 64));
+            }
+            windowTakes = 0;
+            windowStart += windows * DEMAND_WINDOW_MILLIS;
+        }
+    }
+}
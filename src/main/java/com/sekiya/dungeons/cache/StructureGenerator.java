@@ -0,0 +1,109 @@
+package com.sekiya.dungeons.cache;
+
+import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.config.RoomFingerprint;
+import com.sekiya.dungeons.generator.BlockBuffer;
+import com.sekiya.dungeons.generator.BlockCompactor;
+import com.sekiya.dungeons.generator.BlockSection;
+import com.sekiya.dungeons.generator.DungeonGenerator;
+import com.sekiya.dungeons.generator.DungeonTheme;
+import com.sekiya.dungeons.generator.GenerationConfig;
+import com.sekiya.dungeons.generator.SectionSorter;
+import com.sekiya.dungeons.generator.TemplateDiff;
+import com.sekiya.dungeons.generator.WorldGenerator;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs the full generation pipeline for a dungeon with world structure
+ *
+ * Template, world blocks, compaction and per-section batching, ready to be
+ * handed to the {@link com.sekiya.dungeons.build.BlockApplier}.
+ */
+public class StructureGenerator {
+    private final DungeonGenerator dungeonGenerator;
+    private final WorldGenerator worldGenerator;
+    private final WorldGenerator undecoratedGenerator;
+    
+    public StructureGenerator() {
+        this.dungeonGenerator = new DungeonGenerator();
+        this.worldGenerator = new WorldGenerator();
+        this.undecoratedGenerator = new WorldGenerator(false);
+    }
+    
+    /**
+     * Generates the template and its block sections
+     * 
+     * A config with seed 0 gets a random seed of its own, which the layout, the
+     * world and the saved template all use. The config itself is not changed.
+     */
+    public GenerationResult generate(String name, GenerationConfig config) {
+        long seed = config.getSeed() != 0 ? config.getSeed() : randomSeed();
+        DungeonTemplate template = dungeonGenerator.generate(name, config, seed);
+        
+        // Kept so deferred decorations can be generated when the rooms are reached
+        template.setTheme(config.getTheme());
+        template.setWorldSeed(seed);
+        template.setDecorationsDeferred(config.isDeferDecorations());
+        
+        GenerationResult result = generate(template);
+        template.setBuiltRooms(RoomFingerprint.of(WorldGenerator.getStructureRooms(template), config.getTheme()));
+        return result;
+    }
+    
+    /**
+     * Draws a random seed, never 0 so the dungeon is reproducible from its seed
+     */
+    static long randomSeed() {
+        long seed;
+        do {
+            seed = ThreadLocalRandom.current().nextLong();
+        } while (seed == 0);
+        return seed;
+    }
+    
+    /**
+     * Generates the block sections of a whole template, from its theme and world seed
+     */
+    public GenerationResult generate(DungeonTemplate template) {
+        // Generate world structure, dropping writes that a later pass overwrites
+        WorldGenerator generator = template.isDecorationsDeferred() ? undecoratedGenerator : worldGenerator;
+        BlockBuffer blocks = generator.generateDungeonWorld(WorldGenerator.getStructureRooms(template), 
+            DungeonTheme.valueOf(template.getTheme()), template.getWorldSeed());
+        BlockCompactor compactor = new BlockCompactor();
+        blocks = compactor.compact(blocks);
+        
+        // Batch per chunk section for application
+        List<BlockSection> sections = new SectionSorter().sort(blocks);
+        
+        return new GenerationResult(template, sections, compactor.getRemovedWrites());
+    }
+    
+    /**
+     * Generates the block sections of the rooms and corridors changed since the template was last built
+     * 
+     * The template must have a theme. Its fingerprints are left as they were, store
+     * {@link TemplateDiff#getFingerprints()} once the sections are written.
+     */
+    public GenerationResult regenerate(DungeonTemplate template, TemplateDiff diff) {
+        WorldGenerator generator = template.isDecorationsDeferred() ? undecoratedGenerator : worldGenerator;
+        BlockBuffer blocks = new BlockBuffer(
+            diff.getRooms().isEmpty() || diff.getRooms().get(0).getMinBounds() == null
+                ? null : diff.getRooms().get(0).getMinBounds().getWorld());
+        generator.generateChanges(diff, DungeonTheme.valueOf(template.getTheme()), template.getWorldSeed(), blocks);
+        
+        BlockCompactor compactor = new BlockCompactor();
+        blocks = compactor.compact(blocks);
+        List<BlockSection> sections = new SectionSorter().sort(blocks);
+        
+        return new GenerationResult(template, sections, compactor.getRemovedWrites());
+    }
+    
+    /**
+     * Gives a generated template its final name
+     */
+    public void rename(GenerationResult result, String name) {
+        dungeonGenerator.rename(result.getTemplate(), name);
+    }
+}
@@ -1,5 +1,6 @@
 package com.sekiya.dungeons.command;
 
+import com.sekiya.dungeons.cache.BatchGenerator;
 import com.sekiya.dungeons.command.subcommands.*;
 import com.sekiya.dungeons.config.ConfigManager;
 import com.sekiya.dungeons.instance.DungeonManager;
@@ -17,7 +18,7 @@ public class DungeonCommand {
     private final Map<String, SubCommand> subCommands;
     
     public DungeonCommand(ConfigManager configManager, DungeonManager dungeonManager,
-                         PortalManager portalManager, ShardManager shardManager) {
+                         PortalManager portalManager, ShardManager shardManager, BatchGenerator batchGenerator) {
         this.subCommands = new HashMap<>();
         
         // Register all subcommands
@@ -35,7 +36,7 @@ public class DungeonCommand {
         registerSubCommand(new RoomSubCommand(configManager));
         registerSubCommand(new SpawnSubCommand(configManager));
         registerSubCommand(new BossSubCommand(configManager));
-        registerSubCommand(new GenerateSubCommand(configManager)); // NEW
+        registerSubCommand(new GenerateSubCommand(configManager, batchGenerator)); // NEW
     }
     
     /**
@@ -1,22 +1,43 @@
 package com.sekiya.dungeons.command.subcommands;
 
+import com.sekiya.dungeons.cache.BatchGenerator;
+import com.sekiya.dungeons.cache.BatchJob;
+import com.sekiya.dungeons.cache.BatchListener;
+import com.sekiya.dungeons.cache.GenerationAdmission;
 import com.sekiya.dungeons.command.SubCommand;
 import com.sekiya.dungeons.config.ConfigManager;
 import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.config.PluginConfig;
 import com.sekiya.dungeons.generator.DungeonGenerator;
+import com.sekiya.dungeons.generator.DungeonTheme;
 import com.sekiya.dungeons.generator.GenerationConfig;
+import com.sekiya.dungeons.generator.GenerationEstimate;
+import com.sekiya.dungeons.generator.GenerationEstimator;
 import com.sekiya.dungeons.util.MessageUtil;
 
 /**
  * /dungeon generate <name> [difficulty] [seed] - Generates a random dungeon
+ * /dungeon generate batch <count> <difficulty> <theme> [seedStart] - Generates seeded dungeons in the background
+ * /dungeon generate batch <status|cancel>
  */
 public class GenerateSubCommand implements SubCommand {
+    private static final int MAX_BATCH_SIZE = 10_000;
+    
     private final ConfigManager configManager;
     private final DungeonGenerator generator;
+    private final BatchGenerator batchGenerator;
     
     public GenerateSubCommand(ConfigManager configManager) {
+        this(configManager, null);
+    }
+    
+    /**
+     * @param batchGenerator runs batch generations, or null if batches are not available
+     */
+    public GenerateSubCommand(ConfigManager configManager, BatchGenerator batchGenerator) {
         this.configManager = configManager;
         this.generator = new DungeonGenerator();
+        this.batchGenerator = batchGenerator;
     }
     
     @Override
@@ -26,7 +47,7 @@ public class GenerateSubCommand implements SubCommand {
     
     @Override
     public String getUsage() {
-        return "generate <name> [difficulty] [seed]";
+        return "generate <name> [difficulty] [seed] | generate batch <count> <difficulty> <theme> [seedStart]";
     }
     
     @Override
@@ -40,6 +61,10 @@ public class GenerateSubCommand implements SubCommand {
             return false;
         }
         
+        if (args[0].equalsIgnoreCase("batch")) {
+            return executeBatch(sender, args);
+        }
+        
         String dungeonName = args[0];
         
         if (configManager.hasDungeonTemplate(dungeonName)) {
@@ -65,13 +90,18 @@ public class GenerateSubCommand implements SubCommand {
             }
         }
         
-        // Create generation config
-        GenerationConfig genConfig = new GenerationConfig();
-        genConfig.setDifficulty(difficulty);
+        // Create generation config with the difficulty preset
+        GenerationConfig genConfig = GenerationConfig.forDifficulty(difficulty);
         genConfig.setSeed(seed);
         
-        // Adjust generation parameters based on difficulty
-        adjustGenerationConfig(genConfig, difficulty);
+        // Refuse dungeons whose world structure would blow the generation budget
+        PluginConfig pluginConfig = configManager.getPluginConfig();
+        GenerationEstimate estimate = new GenerationEstimator().estimate(genConfig, pluginConfig.getMaxBlocksPerTick());
+        String overBudget = GenerationAdmission.checkBudget(estimate, pluginConfig);
+        if (overBudget != null) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cDungeon is too large: up to " + overBudget));
+            return true;
+        }
         
         // Generate dungeon
         DungeonTemplate template = generator.generate(dungeonName, genConfig);
@@ -81,40 +111,136 @@ public class GenerateSubCommand implements SubCommand {
         MessageUtil.sendMessage(sender, String.format("&7Difficulty: &f%s &7| Seed: &f%d", difficulty, seed));
         MessageUtil.sendMessage(sender, String.format("&7Rooms: &f%d &7| Has Boss: &f%s", 
             template.getRooms().size(), template.getBossRoom() != null ? "Yes" : "No"));
+        MessageUtil.sendMessage(sender, String.format("&7Estimate: up to &f%d &7blocks, &f%dMB&7, &f%.1fs &7to build", 
+            estimate.getBlocks(), estimate.getMemoryMB(), estimate.getApplySeconds()));
         MessageUtil.sendMessage(sender, "&7Use /dungeon setportal " + dungeonName + " to configure the portal location");
         
         return true;
     }
     
+    /**
+     * Starts, reports or cancels a batch, the dungeons are generated off the server thread
+     */
+    private boolean executeBatch(Object sender, String[] args) {
+        if (batchGenerator == null) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cBatch generation is not available"));
+            return true;
+        }
+        
+        if (args.length == 2 && (args[1].equalsIgnoreCase("status") || args[1].equalsIgnoreCase("cancel"))) {
+            BatchJob job = batchGenerator.getCurrent();
+            if (job == null || (args[1].equalsIgnoreCase("cancel") && job.isComplete())) {
+                MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cNo batch is running"));
+                return true;
+            }
+            if (args[1].equalsIgnoreCase("cancel")) {
+                job.cancel();
+                MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&eCancelling batch..."));
+            } else {
+                sendBatchProgress(sender, job);
+            }
+            return true;
+        }
+        
+        if (args.length < 4) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix(
+                "&cUsage: /dungeon generate batch <count> <difficulty> <theme> [seedStart]"));
+            return true;
+        }
+        
+        int count;
+        long seedStart = 1;
+        try {
+            count = Integer.parseInt(args[1]);
+            if (args.length >= 5) {
+                seedStart = Long.parseLong(args[4]);
+            }
+        } catch (NumberFormatException e) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cCount and seedStart must be numbers"));
+            return true;
+        }
+        if (count < 1 || count > MAX_BATCH_SIZE) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cCount must be between 1 and " + MAX_BATCH_SIZE));
+            return true;
+        }
+        
+        // Seed 0 means a random layout, which a seeded batch must not produce
+        if (seedStart <= 0 && seedStart + count > 0) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cThe seeds of a batch must not include 0"));
+            return true;
+        }
+        
+        String difficulty = args[2].toUpperCase();
+        if (!isValidDifficulty(difficulty)) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cInvalid difficulty! Use: EASY, NORMAL, HARD, or NIGHTMARE"));
+            return true;
+        }
+        
+        String theme = args[3].toUpperCase();
+        try {
+            DungeonTheme.valueOf(theme);
+        } catch (IllegalArgumentException e) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix(
+                "&cInvalid theme! Use: STONE_CRYPT, CAVE, DESERT_TOMB, ICE_CAVERN, NETHER_FORTRESS, or OCEAN_TEMPLE"));
+            return true;
+        }
+        
+        // Every dungeon of the batch shares the generation settings, so one check covers them all
+        GenerationConfig genConfig = GenerationConfig.forDifficulty(difficulty);
+        genConfig.setTheme(theme);
+        PluginConfig pluginConfig = configManager.getPluginConfig();
+        GenerationEstimate estimate = new GenerationEstimator().estimate(genConfig, pluginConfig.getMaxBlocksPerTick());
+        String overBudget = GenerationAdmission.checkBudget(estimate, pluginConfig);
+        if (overBudget != null) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix("&cDungeons are too large: up to " + overBudget));
+            return true;
+        }
+        
+        BatchJob job = batchGenerator.start(count, difficulty, theme, seedStart, new BatchListener() {
+            @Override
+            public void onProgress(BatchJob job) {
+                sendBatchProgress(sender, job);
+            }
+            
+            @Override
+            public void onFailed(BatchJob job, String name, Exception error) {
+                MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix(
+                    "&cFailed to generate " + name + ": " + error.getMessage()));
+                error.printStackTrace();
+            }
+            
+            @Override
+            public void onComplete(BatchJob job) {
+                MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix(String.format(
+                    (job.isCancelRequested() ? "&eBatch cancelled" : "&aBatch complete") + 
+                    "&7: &f%d &7generated, &f%d &7skipped, &f%d &7failed in &f%.1fs &7(&f%.1f &7dungeons/s)",
+                    job.getGenerated(), job.getSkipped(), job.getFailed(), job.getElapsedSeconds(), 
+                    job.getDungeonsPerSecond())));
+            }
+        });
+        
+        if (job == null) {
+            MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix(
+                "&cA batch is already running, see /dungeon generate batch status"));
+            return true;
+        }
+        
+        MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix(String.format(
+            "&aGenerating &f%d &a%s %s dungeons, seeds &f%d&a-&f%d &aon &f%d &athreads", count, difficulty, theme, 
+            seedStart, seedStart + count - 1, batchGenerator.getThreads())));
+        MessageUtil.sendMessage(sender, "&7Named like &f" + job.nameFor(seedStart) + "&7, existing names are skipped");
+        return true;
+    }
+    
+    private void sendBatchProgress(Object sender, BatchJob job) {
+        MessageUtil.sendMessage(sender, MessageUtil.formatWithPrefix(String.format(
+            "&7Batch: &f%d%% &7(&f%d&7/&f%d&7, &f%d &7skipped, &f%d &7failed, &f%.1f &7dungeons/s)",
+            job.getProgressPercent(), job.getFinished(), job.getCount(), job.getSkipped(), job.getFailed(), 
+            job.getDungeonsPerSecond())));
+    }
+    
     private boolean isValidDifficulty(String difficulty) {
         return difficulty.equals("EASY") || difficulty.equals("NORMAL") || 
                difficulty.equals("HARD") || difficulty.equals("NIGHTMARE");
     }
-    
-    private void adjustGenerationConfig(GenerationConfig config, String difficulty) {
-        switch (difficulty) {
-            case "EASY":
-                config.setMinRooms(2);
-                config.setMaxRooms(4);
-                config.setMinEnemiesPerRoom(2);
-                config.setMaxEnemiesPerRoom(5);
-                break;
-            case "HARD":
-                config.setMinRooms(4);
-                config.setMaxRooms(7);
-                config.setMinEnemiesPerRoom(5);
-                config.setMaxEnemiesPerRoom(10);
-                break;
-            case "NIGHTMARE":
-                config.setMinRooms(5);
-                config.setMaxRooms(8);
-                config.setMinEnemiesPerRoom(7);
-                config.setMaxEnemiesPerRoom(12);
-                break;
-            case "NORMAL":
-            default:
-                // Use defaults
-                break;
-        }
-    }
 }
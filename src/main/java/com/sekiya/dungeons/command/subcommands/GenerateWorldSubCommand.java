@@ -1,20 +1,57 @@
 package com.sekiya.dungeons.command.subcommands;
 
+import com.google.gson.Gson;
 import com.sekiya.dungeons.SekiyaDungeons;
+import com.sekiya.dungeons.build.ApplyJob;
+import com.sekiya.dungeons.build.ApplyListener;
+import com.sekiya.dungeons.cache.GenerationAdmission;
+import com.sekiya.dungeons.cache.GenerationCache;
+import com.sekiya.dungeons.cache.GenerationResult;
+import com.sekiya.dungeons.cache.StructureGenerator;
 import com.sekiya.dungeons.command.SubCommand;
 import com.sekiya.dungeons.config.DungeonTemplate;
-import com.sekiya.dungeons.generator.DungeonGenerator;
+import com.sekiya.dungeons.config.PluginConfig;
+import com.sekiya.dungeons.generator.BlockSection;
+import com.sekiya.dungeons.generator.DungeonTheme;
 import com.sekiya.dungeons.generator.GenerationConfig;
+import com.sekiya.dungeons.generator.GenerationEstimate;
+import com.sekiya.dungeons.generator.GenerationEstimator;
+import com.sekiya.dungeons.generator.LayoutStrategy;
+import com.sekiya.dungeons.generator.TemplateDiff;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * /dungeon generateworld <name> [theme] [difficulty] [seed]
+ * /dungeon generateworld <name> [theme] [difficulty] [seed] [layout]
+ * /dungeon generateworld cancel <name>
+ * /dungeon generateworld rebuild <name> [theme]
  * Generates a dungeon with actual world structure
+ * 
+ * Generation runs off the server thread, the blocks are then written by the
+ * {@link com.sekiya.dungeons.build.BlockApplier} over as many ticks as its budget needs.
  */
 public class GenerateWorldSubCommand implements SubCommand {
     private final SekiyaDungeons plugin;
     
+    // Dungeons being generated or built, so the same name is not started twice
+    private final Set<String> pendingNames;
+    
+    // Copies templates for rebuilds
+    private final Gson gson;
+    
     public GenerateWorldSubCommand(SekiyaDungeons plugin) {
         this.plugin = plugin;
+        this.pendingNames = ConcurrentHashMap.newKeySet();
+        this.gson = new Gson();
     }
     
     @Override
@@ -29,7 +66,7 @@ public class GenerateWorldSubCommand implements SubCommand {
     
     @Override
     public String getUsage() {
-        return "/dungeon generateworld <name> [theme] [difficulty] [seed]";
+        return "/dungeon generateworld <name> [theme] [difficulty] [seed] [layout]";
     }
     
     @Override
@@ -38,9 +75,19 @@ public class GenerateWorldSubCommand implements SubCommand {
             sendMessage(sender, "§cUsage: " + getUsage());
             sendMessage(sender, "§7Themes: STONE_CRYPT, CAVE, DESERT_TOMB, ICE_CAVERN, NETHER_FORTRESS, OCEAN_TEMPLE");
             sendMessage(sender, "§7Difficulties: EASY, NORMAL, HARD, NIGHTMARE");
+            sendMessage(sender, "§7Layouts: LINEAR, GRID, BSP, RANDOM");
+            sendMessage(sender, "§7Rebuild edited rooms: /dungeon generateworld rebuild <name> [theme]");
             return false;
         }
         
+        if (args[0].equalsIgnoreCase("cancel")) {
+            return cancelBuild(sender, args);
+        }
+        
+        if (args[0].equalsIgnoreCase("rebuild")) {
+            return rebuild(sender, args);
+        }
+        
         String name = args[0];
         
         // Check if dungeon already exists
@@ -49,9 +96,15 @@ public class GenerateWorldSubCommand implements SubCommand {
             return false;
         }
         
+        if (pendingNames.contains(name.toLowerCase())) {
+            sendMessage(sender, "§cDungeon '" + name + "' is already being generated!");
+            return false;
+        }
+        
         // Parse optional parameters
         String theme = args.length > 1 ? args[1].toUpperCase() : "STONE_CRYPT";
         String difficulty = args.length > 2 ? args[2].toUpperCase() : "NORMAL";
+        String layout = args.length > 4 ? args[4].toUpperCase() : "LINEAR";
         long seed = 0;
         
         if (args.length > 3) {
@@ -94,41 +147,415 @@ public class GenerateWorldSubCommand implements SubCommand {
             return false;
         }
         
+        // Validate layout
+        if (LayoutStrategy.fromName(layout) == null) {
+            sendMessage(sender, "§cInvalid layout! Valid layouts: LINEAR, GRID, BSP, RANDOM");
+            return false;
+        }
+        
+        // Create generation config with the difficulty preset
+        GenerationConfig config = GenerationConfig.forDifficulty(difficulty);
+        config.setSeed(seed);
+        config.setGenerateWorld(true);
+        config.setTheme(theme);
+        config.setLayout(layout);
+        
+        PluginConfig pluginConfig = plugin.getConfigManager().getPluginConfig();
+        config.setDeferDecorations(pluginConfig.isDeferDecorations());
+        
+        // Refuse dungeons that would exhaust the heap or take too long to build
+        GenerationEstimate estimate = new GenerationEstimator().estimate(config, pluginConfig.getMaxBlocksPerTick());
+        String overBudget = GenerationAdmission.checkBudget(estimate, pluginConfig);
+        if (overBudget != null) {
+            sendMessage(sender, "§cDungeon is too large: up to " + overBudget);
+            return false;
+        }
+        
+        if (!pendingNames.add(name.toLowerCase())) {
+            sendMessage(sender, "§cDungeon '" + name + "' is already being generated!");
+            return false;
+        }
+        
         sendMessage(sender, "§aGenerating dungeon with world structure...");
         sendMessage(sender, "§7Theme: §f" + theme);
         sendMessage(sender, "§7Difficulty: §f" + difficulty);
+        sendMessage(sender, "§7Layout: §f" + layout);
         sendMessage(sender, "§7Seed: §f" + (seed == 0 ? "Random" : seed));
+        sendEstimate(sender, estimate);
+        
+        long generationSeed = seed;
+        GenerationAdmission.Decision decision = plugin.getGenerationAdmission().admit(estimate, 
+            () -> startGeneration(sender, name, config, theme, generationSeed, estimate));
         
+        if (decision == GenerationAdmission.Decision.QUEUED) {
+            sendMessage(sender, "§eOther dungeons are being generated, '" + name + "' is queued");
+        } else if (decision == GenerationAdmission.Decision.REJECTED) {
+            pendingNames.remove(name.toLowerCase());
+            sendMessage(sender, "§cToo many dungeons are waiting to be generated, try again later");
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Generates off the server thread, then hands the sections to the applier
+     */
+    private void startGeneration(Object sender, String name, GenerationConfig config, String theme, long seed, 
+                                 GenerationEstimate estimate) {
+        CompletableFuture.supplyAsync(() -> generateStructure(name, config, theme, seed))
+            .whenComplete((structure, error) -> {
+                plugin.getGenerationAdmission().release(estimate);
+                
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null 
+                        ? error.getCause() : error;
+                    pendingNames.remove(name.toLowerCase());
+                    sendMessage(sender, "§cError generating dungeon: " + cause.getMessage());
+                    cause.printStackTrace();
+                    return;
+                }
+                
+                // Nothing observes this stage, so a failure must free the name here
+                try {
+                    submitBuild(sender, name, structure);
+                } catch (RuntimeException e) {
+                    pendingNames.remove(name.toLowerCase());
+                    sendMessage(sender, "§cError generating dungeon: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            });
+    }
+    
+    private void sendEstimate(Object sender, GenerationEstimate estimate) {
+        sendMessage(sender, String.format("§7Estimate: up to §f%d §7blocks in §f%d §7sections, §f%dMB§7, §f%.1fs §7to build", 
+            estimate.getBlocks(), estimate.getSections(), estimate.getMemoryMB(), estimate.getApplySeconds()));
+    }
+    
+    /**
+     * Takes the template and its block sections from the pre-generation pool or
+     * the cache, or generates them
+     */
+    private GenerationResult generateStructure(String name, GenerationConfig config, String theme, long seed) {
+        GenerationResult result = null;
+        
+        // Any linear dungeon will do for a random seed, so take one that is ready
+        if (seed == 0 && LayoutStrategy.LINEAR.name().equals(config.getLayout())) {
+            result = plugin.getPregenerationPool().take(config.getDifficulty(), theme, name);
+            
+            // Generated before the setting changed, the decorations would be missing or doubled
+            if (result != null && result.getTemplate().isDecorationsDeferred() != config.isDeferDecorations()) {
+                result = null;
+            }
+        }
+        
+        GenerationCache cache = plugin.getGenerationCache();
+        String cacheKey = GenerationCache.key(config, name);
+        if (result == null) {
+            result = cache.get(cacheKey);
+        }
+        
+        if (result == null) {
+            result = new StructureGenerator().generate(name, config);
+            cache.put(cacheKey, result);
+        }
+        
+        // Keep the structure, so it can be rebuilt later without generating it again
+        writeSchematic(name, result);
+        return result;
+    }
+    
+    private void writeSchematic(String name, GenerationResult structure) {
         try {
-            // Create generation config
-            GenerationConfig config = new GenerationConfig();
-            config.setDifficulty(difficulty);
-            config.setSeed(seed);
-            config.setGenerateWorld(true);
-            config.setTheme(theme);
+            structure.writeSchematic(plugin.getConfigManager().getSchematicPath(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Queues the generated blocks, the template is saved once they are written
+     */
+    private void submitBuild(Object sender, String name, GenerationResult structure) {
+        DungeonTemplate template = structure.getTemplate();
+        
+        sendMessage(sender, "§aGenerated dungeon: §e" + template.getDisplayName());
+        sendMessage(sender, "§7Rooms: §f" + (template.getRooms() != null ? template.getRooms().size() : 0));
+        sendMessage(sender, "§7Boss: §f" + (template.getBossRoom() != null ? "Yes" : "No"));
+        if (structure.isStreamed()) {
+            sendMessage(sender, "§7World blocks: §f" + structure.getBlockCount() + " §7(streamed from cache)");
+        } else {
+            sendMessage(sender, "§7World blocks: §f" + structure.getBlockCount() + " §7in §f" + structure.getOperationCount() + 
+                (structure.isFromCache() ? " §7operations (from cache)" 
+                    : " §7operations (" + structure.getRemovedWrites() + " overwritten writes removed)"));
+        }
+        sendMessage(sender, "§7Sections: §f" + structure.getSectionCount() + " §7in §f" + structure.getColumnCount() + 
+            " §7chunks");
+        sendMessage(sender, "§7Building... §8(/dungeon generateworld cancel " + name + ")");
+        
+        Iterator<BlockSection> sections = structure.openSections();
+        plugin.getBlockApplier().submit(name, sections, structure.getBlockCount(), ApplyJob.PRIORITY_NORMAL, new ApplyListener() {
+            @Override
+            public void onProgress(ApplyJob job) {
+                sendMessage(sender, "§7Building §e" + name + "§7: §f" + job.getProgressPercent() + "%");
+            }
             
-            // Generate dungeon
-            DungeonGenerator generator = new DungeonGenerator();
-            DungeonTemplate template = generator.generate(name, config);
+            @Override
+            public void onComplete(ApplyJob job) {
+                pendingNames.remove(name.toLowerCase());
+                
+                // Save template, its rooms start undecorated
+                plugin.getDecorationScheduler().forget(name);
+                plugin.getConfigManager().saveDungeonTemplate(template);
+                
+                sendMessage(sender, "§aSuccessfully generated dungeon: §e" + template.getDisplayName() + 
+                    " §7(" + job.getTicks() + " ticks)");
+                sendMessage(sender, "§7Next steps:");
+                sendMessage(sender, "  §e/dungeon setportal " + name);
+                sendMessage(sender, "  §e/dungeon setentry " + name);
+                sendMessage(sender, "  §e/dungeon setexit " + name);
+            }
             
-            // Save template
-            plugin.getConfigManager().saveDungeonTemplate(template);
+            @Override
+            public void onCancelled(ApplyJob job) {
+                pendingNames.remove(name.toLowerCase());
+                deleteSchematic(name);
+                sendMessage(sender, "§cBuild of '" + name + "' cancelled at " + job.getProgressPercent() + 
+                    "%, template not saved");
+            }
             
-            sendMessage(sender, "§aSuccessfully generated dungeon: §e" + template.getDisplayName());
-            sendMessage(sender, "§7Rooms: §f" + (template.getRooms() != null ? template.getRooms().size() : 0));
-            sendMessage(sender, "§7Boss: §f" + (template.getBossRoom() != null ? "Yes" : "No"));
-            sendMessage(sender, "§7World blocks generated: Yes");
-            sendMessage(sender, "§7Next steps:");
-            sendMessage(sender, "  §e/dungeon setportal " + name);
-            sendMessage(sender, "  §e/dungeon setentry " + name);
-            sendMessage(sender, "  §e/dungeon setexit " + name);
+            @Override
+            public void onFailed(ApplyJob job, Exception error) {
+                pendingNames.remove(name.toLowerCase());
+                deleteSchematic(name);
+                sendMessage(sender, "§cError building dungeon: " + error.getMessage());
+                error.printStackTrace();
+            }
+        });
+    }
+    
+    /**
+     * Builds the rooms and corridors of a saved dungeon that changed since its last build
+     * 
+     * A dungeon that was never built, such as one set up with the wand, is built whole.
+     * One that did not change is restored from its saved schematic.
+     */
+    private boolean rebuild(Object sender, String[] args) {
+        if (args.length < 2) {
+            sendMessage(sender, "§cUsage: /dungeon generateworld rebuild <name> [theme]");
+            return false;
+        }
+        
+        String name = args[1];
+        DungeonTemplate template = plugin.getConfigManager().getDungeonTemplate(name);
+        if (template == null) {
+            sendMessage(sender, "§cDungeon '" + name + "' does not exist!");
+            return false;
+        }
+        
+        if (!plugin.getDungeonManager().getInstancesForDungeon(name).isEmpty()) {
+            sendMessage(sender, "§cCannot rebuild a dungeon with active instances!");
+            return false;
+        }
+        
+        String theme = args.length > 2 ? args[2].toUpperCase() 
+            : template.getTheme() != null ? template.getTheme() : "STONE_CRYPT";
+        try {
+            DungeonTheme.valueOf(theme);
+        } catch (IllegalArgumentException e) {
+            sendMessage(sender, "§cInvalid theme! Valid themes: STONE_CRYPT, CAVE, DESERT_TOMB, ICE_CAVERN, NETHER_FORTRESS, OCEAN_TEMPLE");
+            return false;
+        }
+        
+        if (!pendingNames.add(name.toLowerCase())) {
+            sendMessage(sender, "§cDungeon '" + name + "' is already being generated!");
+            return false;
+        }
+        
+        // Work on a copy, the saved template only changes once the rebuild is written
+        DungeonTemplate copy = gson.fromJson(gson.toJson(template), DungeonTemplate.class);
+        copy.setTheme(theme);
+        if (copy.getBuiltRooms() == null) {
+            copy.setDecorationsDeferred(plugin.getConfigManager().getPluginConfig().isDeferDecorations());
+        }
+        
+        sendMessage(sender, "§aComparing '" + name + "' with its last build...");
+        CompletableFuture.supplyAsync(() -> {
+            TemplateDiff diff = TemplateDiff.of(copy);
+            if (diff.isEmpty()) {
+                // Nothing to regenerate, the saved structure is streamed back into the world
+                Path schematic = plugin.getConfigManager().getSchematicPath(name);
+                if (!Files.exists(schematic)) {
+                    return null;
+                }
+                try {
+                    return new Rebuild(diff, GenerationResult.fromSchematic(copy, schematic), false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            // The schematic keeps the whole structure, the world gets the changes only. It
+            // replaces the saved one once the changes are written.
+            StructureGenerator generator = new StructureGenerator();
+            try {
+                generator.generate(copy).writeSchematic(getRebuiltSchematicPath(name));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Rebuild(diff, generator.regenerate(copy, diff), true);
+        }).whenComplete((rebuild, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null 
+                    ? error.getCause() : error;
+                pendingNames.remove(name.toLowerCase());
+                deleteRebuiltSchematic(name);
+                sendMessage(sender, "§cError rebuilding dungeon: " + cause.getMessage());
+                cause.printStackTrace();
+                return;
+            }
+            if (rebuild == null) {
+                pendingNames.remove(name.toLowerCase());
+                sendMessage(sender, "§7Nothing changed in '" + name + "' since its last build");
+                return;
+            }
+            
+            try {
+                submitRebuild(sender, name, rebuild);
+            } catch (RuntimeException e) {
+                pendingNames.remove(name.toLowerCase());
+                deleteRebuiltSchematic(name);
+                sendMessage(sender, "§cError rebuilding dungeon: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+        return true;
+    }
+    
+    /**
+     * Queues the rebuilt blocks, the template's fingerprints are updated once they are written
+     */
+    private void submitRebuild(Object sender, String name, Rebuild rebuild) {
+        GenerationResult structure = rebuild.structure;
+        DungeonTemplate template = structure.getTemplate();
+        
+        sendMessage(sender, "§7Changed: §f" + rebuild.diff.getDirtyRoomCount() + "/" + rebuild.diff.getRooms().size() + 
+            " §7rooms, §f" + rebuild.diff.getDirtyCorridorCount() + "/" + rebuild.diff.getCorridors().size() + 
+            " §7corridors, §f" + rebuild.diff.getClearedBoxes().size() + " §7areas cleared");
+        if (structure.isStreamed()) {
+            sendMessage(sender, "§7Restoring §f" + structure.getBlockCount() + " §7blocks from the saved schematic");
+        } else {
+            sendMessage(sender, "§7World blocks: §f" + structure.getBlockCount() + " §7in §f" + structure.getOperationCount() + 
+                " §7operations");
+        }
+        sendMessage(sender, "§7Rebuilding... §8(/dungeon generateworld cancel " + name + ")");
+        
+        Iterator<BlockSection> sections = structure.openSections();
+        plugin.getBlockApplier().submit(name, sections, structure.getBlockCount(), ApplyJob.PRIORITY_NORMAL, new ApplyListener() {
+            @Override
+            public void onProgress(ApplyJob job) {
+                sendMessage(sender, "§7Rebuilding §e" + name + "§7: §f" + job.getProgressPercent() + "%");
+            }
+            
+            @Override
+            public void onComplete(ApplyJob job) {
+                pendingNames.remove(name.toLowerCase());
+                
+                // Rebuilt rooms lost their deferred decorations
+                DungeonTemplate saved = plugin.getConfigManager().getDungeonTemplate(name);
+                if (saved == null) {
+                    saved = template;
+                }
+                saved.setTheme(template.getTheme());
+                saved.setDecorationsDeferred(template.isDecorationsDeferred());
+                saved.setBuiltRooms(rebuild.diff.getFingerprints());
+                plugin.getDecorationScheduler().forget(name);
+                plugin.getConfigManager().saveDungeonTemplate(saved);
+                if (rebuild.newSchematic) {
+                    replaceSchematic(name);
+                }
+                
+                sendMessage(sender, "§aSuccessfully rebuilt dungeon: §e" + template.getDisplayName() + 
+                    " §7(" + job.getTicks() + " ticks)");
+            }
+            
+            @Override
+            public void onCancelled(ApplyJob job) {
+                pendingNames.remove(name.toLowerCase());
+                deleteRebuiltSchematic(name);
+                sendMessage(sender, "§cRebuild of '" + name + "' cancelled at " + job.getProgressPercent() + 
+                    "%, run it again to finish");
+            }
             
-        } catch (Exception e) {
-            sendMessage(sender, "§cError generating dungeon: " + e.getMessage());
+            @Override
+            public void onFailed(ApplyJob job, Exception error) {
+                pendingNames.remove(name.toLowerCase());
+                deleteRebuiltSchematic(name);
+                sendMessage(sender, "§cError rebuilding dungeon: " + error.getMessage());
+                error.printStackTrace();
+            }
+        });
+    }
+    
+    /**
+     * Removes the schematic of a dungeon whose template was never saved
+     */
+    private void deleteSchematic(String name) {
+        try {
+            Files.deleteIfExists(plugin.getConfigManager().getSchematicPath(name));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Gets where a rebuilt schematic waits until its changes are written to the world
+     */
+    private Path getRebuiltSchematicPath(String name) {
+        Path schematic = plugin.getConfigManager().getSchematicPath(name);
+        return schematic.resolveSibling(schematic.getFileName() + ".rebuild");
+    }
+    
+    /**
+     * Makes the rebuilt schematic of a dungeon its saved one
+     */
+    private void replaceSchematic(String name) {
+        try {
+            Files.move(getRebuiltSchematicPath(name), plugin.getConfigManager().getSchematicPath(name), 
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Drops the rebuilt schematic of a rebuild that did not complete
+     */
+    private void deleteRebuiltSchematic(String name) {
+        try {
+            Files.deleteIfExists(getRebuiltSchematicPath(name));
+        } catch (IOException e) {
             e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Cancels the build of a dungeon that is being written
+     */
+    private boolean cancelBuild(Object sender, String[] args) {
+        if (args.length < 2) {
+            sendMessage(sender, "§cUsage: /dungeon generateworld cancel <name>");
             return false;
         }
         
+        ApplyJob job = plugin.getBlockApplier().findJob(args[1]);
+        if (job == null) {
+            sendMessage(sender, "§cNo dungeon '" + args[1] + "' is being built!");
+            return false;
+        }
+        
+        plugin.getBlockApplier().cancel(job.getId());
+        sendMessage(sender, "§eCancelling build of '" + job.getName() + "'...");
         return true;
     }
     
@@ -136,4 +563,21 @@ public class GenerateWorldSubCommand implements SubCommand {
         // Placeholder - would use actual Hytale messaging API
         System.out.println("[" + sender + "] " + message);
     }
+    
+    /**
+     * Rooms and corridors to rebuild, with their generated blocks
+     */
+    private static class Rebuild {
+        private final TemplateDiff diff;
+        private final GenerationResult structure;
+        
+        // Whether a new schematic waits at the rebuilt schematic path
+        private final boolean newSchematic;
+        
+        Rebuild(TemplateDiff diff, GenerationResult structure, boolean newSchematic) {
+            this.diff = diff;
+            this.structure = structure;
+            this.newSchematic = newSchematic;
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package com.sekiya.dungeons.config;
+
+/**
+ * Receives changes to the compiled dungeons of a {@link ConfigManager}
+ * 
+ * Callbacks run on the thread that loaded, saved or deleted the template, which
+ * may be a batch generation worker.
+ */
+public interface BlueprintListener {
+    
+    /**
+     * Called when a dungeon was compiled, replacing its previous blueprint
+     */
+    default void onBlueprintCompiled(DungeonBlueprint blueprint) {
+    }
+    
+    /**
+     * Called when a dungeon was deleted, unloaded or no longer compiles
+     */
+    default void onBlueprintRemoved(String name) {
+    }
+}
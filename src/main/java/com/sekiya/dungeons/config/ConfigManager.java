@@ -7,18 +7,24 @@ import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages configuration loading and caching
+ * 
+ * Templates can be read and saved from any thread, batch generation saves them from its workers.
  */
 public class ConfigManager {
     private final DungeonStorage storage;
     private PluginConfig pluginConfig;
     private final Map<String, DungeonTemplate> dungeonTemplates;
+    private final Map<String, DungeonBlueprint> dungeonBlueprints;
+    private volatile BlueprintListener blueprintListener;
     
     public ConfigManager(Path dataFolder) {
         this.storage = new JsonDungeonStorage(dataFolder);
-        this.dungeonTemplates = new HashMap<>();
+        this.dungeonTemplates = new ConcurrentHashMap<>();
+        this.dungeonBlueprints = new ConcurrentHashMap<>();
         load();
     }
     
@@ -28,10 +34,15 @@ public class ConfigManager {
     public void load() {
         this.pluginConfig = storage.loadConfig();
         
+        for (String name : dungeonBlueprints.keySet()) {
+            notifyRemoved(name);
+        }
         dungeonTemplates.clear();
+        dungeonBlueprints.clear();
         List<DungeonTemplate> templates = storage.loadAllDungeons();
         for (DungeonTemplate template : templates) {
             dungeonTemplates.put(template.getName(), template);
+            compileBlueprint(template);
         }
     }
     
@@ -63,6 +74,15 @@ public class ConfigManager {
         return dungeonTemplates.get(name);
     }
     
+    /**
+     * Gets the compiled blueprint of a dungeon, shared by all its instances
+     *
+     * @return the blueprint, or null if there is no such dungeon or its template does not compile
+     */
+    public DungeonBlueprint getDungeonBlueprint(String name) {
+        return dungeonBlueprints.get(name);
+    }
+    
     /**
      * Gets all dungeon templates
      */
@@ -75,6 +95,7 @@ public class ConfigManager {
      */
     public void saveDungeonTemplate(DungeonTemplate template) {
         dungeonTemplates.put(template.getName(), template);
+        compileBlueprint(template);
         storage.saveDungeon(template);
     }
     
@@ -83,13 +104,62 @@ public class ConfigManager {
      */
     public void deleteDungeonTemplate(String name) {
         dungeonTemplates.remove(name);
+        if (dungeonBlueprints.remove(name) != null) {
+            notifyRemoved(name);
+        }
         storage.deleteDungeon(name);
     }
     
+    /**
+     * Gets the file holding the binary schematic of a dungeon's structure
+     */
+    public Path getSchematicPath(String name) {
+        return storage.getSchematicPath(name);
+    }
+    
+    /**
+     * Sets the listener told about every compiled or removed blueprint, or null for none
+     */
+    public void setBlueprintListener(BlueprintListener blueprintListener) {
+        this.blueprintListener = blueprintListener;
+    }
+    
     /**
      * Checks if a dungeon template exists
      */
     public boolean hasDungeonTemplate(String name) {
         return dungeonTemplates.containsKey(name);
     }
+    
+    /**
+     * Compiles a template into its blueprint, replacing the previous one
+     *
+     * Running instances keep the blueprint they were created from.
+     */
+    private void compileBlueprint(DungeonTemplate template) {
+        DungeonBlueprint blueprint;
+        try {
+            blueprint = DungeonBlueprint.compile(template);
+        } catch (RuntimeException e) {
+            // Incomplete templates (a room without bounds) cannot be instanced until fixed
+            if (dungeonBlueprints.remove(template.getName()) != null) {
+                notifyRemoved(template.getName());
+            }
+            System.out.println("Failed to compile dungeon " + template.getName() + ": " + e.getMessage());
+            return;
+        }
+        
+        dungeonBlueprints.put(template.getName(), blueprint);
+        BlueprintListener listener = blueprintListener;
+        if (listener != null) {
+            listener.onBlueprintCompiled(blueprint);
+        }
+    }
+    
+    private void notifyRemoved(String name) {
+        BlueprintListener listener = blueprintListener;
+        if (listener != null) {
+            listener.onBlueprintRemoved(name);
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package com.sekiya.dungeons.config;
+
+import com.sekiya.dungeons.util.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable compiled form of a DungeonTemplate, shared by every instance of the dungeon
+ *
+ * Compiled by the ConfigManager whenever a template is loaded or saved. Rooms are
+ * sorted by order once here, so instances only hold their own mutable room state.
+ */
+public class DungeonBlueprint {
+    private final DungeonTemplate template;
+    private final RoomBlueprint[] rooms;
+    private final Map<String, Integer> roomIndices;
+    private final RoomBlueprint bossRoom;
+    private final RoomIndex roomIndex;
+    private final String bossType;
+    private final Location bossSpawnPoint;
+    private final boolean bossSpawnOnEntry;
+    
+    private DungeonBlueprint(DungeonTemplate template, RoomBlueprint[] rooms, RoomBlueprint bossRoom) {
+        this.template = template;
+        this.rooms = rooms;
+        this.bossRoom = bossRoom;
+        
+        Map<String, Integer> indices = new HashMap<>();
+        for (RoomBlueprint room : rooms) {
+            indices.putIfAbsent(room.getId(), room.getIndex());
+        }
+        this.roomIndices = Collections.unmodifiableMap(indices);
+        
+        // The boss room is indexed last, after the regular rooms
+        RoomBlueprint[] indexed = Arrays.copyOf(rooms, rooms.length + 1);
+        indexed[rooms.length] = bossRoom;
+        this.roomIndex = new RoomIndex(indexed);
+        
+        BossRoomConfig bossConfig = template.getBossRoom();
+        this.bossType = bossConfig != null ? bossConfig.getBossType() : null;
+        this.bossSpawnPoint = bossConfig != null ? bossConfig.getBossSpawnPoint() : null;
+        this.bossSpawnOnEntry = bossConfig != null && bossConfig.isSpawnOnEntry();
+    }
+    
+    /**
+     * Compiles a template, leaving the template itself untouched
+     */
+    public static DungeonBlueprint compile(DungeonTemplate template) {
+        List<RoomConfig> roomConfigs = new ArrayList<>();
+        if (template.getRooms() != null) {
+            roomConfigs.addAll(template.getRooms());
+        }
+        roomConfigs.sort(Comparator.comparingInt(RoomConfig::getOrder));
+        
+        RoomBlueprint[] rooms = new RoomBlueprint[roomConfigs.size()];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = RoomBlueprint.compile(roomConfigs.get(i), i);
+        }
+        
+        RoomBlueprint bossRoom = null;
+        if (template.getBossRoom() != null) {
+            bossRoom = RoomBlueprint.compileBossRoom(template.getBossRoom(), rooms.length);
+        }
+        
+        return new DungeonBlueprint(template, rooms, bossRoom);
+    }
+    
+    public DungeonTemplate getTemplate() {
+        return template;
+    }
+    
+    public String getName() {
+        return template.getName();
+    }
+    
+    public int getRoomCount() {
+        return rooms.length;
+    }
+    
+    /**
+     * Gets a room by its position in the room order
+     */
+    public RoomBlueprint getRoom(int index) {
+        return rooms[index];
+    }
+    
+    /**
+     * Gets the position of a room in the room order, or -1 if there is no such room
+     */
+    public int getRoomIndex(String roomId) {
+        Integer index = roomIndices.get(roomId);
+        return index != null ? index : -1;
+    }
+    
+    public RoomBlueprint getBossRoom() {
+        return bossRoom;
+    }
+    
+    /**
+     * Gets the index of the rooms by position, where the boss room has index {@link #getRoomCount()}
+     */
+    public RoomIndex getRoomIndex() {
+        return roomIndex;
+    }
+    
+    public String getBossType() {
+        return bossType;
+    }
+    
+    public Location getBossSpawnPoint() {
+        return bossSpawnPoint;
+    }
+    
+    public boolean isBossSpawnOnEntry() {
+        return bossSpawnOnEntry;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("DungeonBlueprint{name=%s, rooms=%d, boss=%s}",
+            template.getName(), rooms.length, bossRoom != null);
+    }
+}
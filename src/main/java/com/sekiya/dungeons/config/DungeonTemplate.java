@@ -39,6 +39,12 @@ public class DungeonTemplate {
     private boolean timeAttackMode;
     private int timeAttackBonusSeconds;
     
+    // World generation, for the passes applied after the build
+    private String theme; // DungeonTheme, null if the template was not generated
+    private long worldSeed;
+    private boolean decorationsDeferred;
+    private List<RoomFingerprint> builtRooms; // Rooms as last built, null if never built
+    
     public DungeonTemplate() {
         this.rooms = new ArrayList<>();
         this.rewards = new ArrayList<>();
@@ -155,4 +161,16 @@ public class DungeonTemplate {
     public void setTimeAttackBonusSeconds(int timeAttackBonusSeconds) { 
         this.timeAttackBonusSeconds = timeAttackBonusSeconds; 
     }
+    
+    public String getTheme() { return theme; }
+    public void setTheme(String theme) { this.theme = theme; }
+    
+    public long getWorldSeed() { return worldSeed; }
+    public void setWorldSeed(long worldSeed) { this.worldSeed = worldSeed; }
+    
+    public boolean isDecorationsDeferred() { return decorationsDeferred; }
+    public void setDecorationsDeferred(boolean decorationsDeferred) { this.decorationsDeferred = decorationsDeferred; }
+    
+    public List<RoomFingerprint> getBuiltRooms() { return builtRooms; }
+    public void setBuiltRooms(List<RoomFingerprint> builtRooms) { this.builtRooms = builtRooms; }
 }
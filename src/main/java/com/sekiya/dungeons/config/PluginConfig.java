@@ -11,6 +11,19 @@ public class PluginConfig {
     private int maxConcurrentInstances;
     private boolean autoReset;
     private int resetDelaySeconds;
+    private int maxBlocksPerTick;
+    private int maxApplyMicrosPerTick;
+    private int generationCacheMemoryMB;
+    private int generationCacheDiskMB;
+    private int pregenerationPoolSize;
+    private int pregenerationPoolMaxSize;
+    private long maxGenerationBlocks;
+    private int generationMemoryBudgetMB;
+    private int maxGenerationApplySeconds;
+    private int maxQueuedGenerations;
+    private boolean deferDecorations;
+    private int batchGenerationThreads;
+    private boolean protectDungeons;
     private Map<String, String> messages;
     
     public PluginConfig() {
@@ -18,6 +31,19 @@ public class PluginConfig {
         this.maxConcurrentInstances = 10;
         this.autoReset = true;
         this.resetDelaySeconds = 5;
+        this.maxBlocksPerTick = 8192;
+        this.maxApplyMicrosPerTick = 2000;
+        this.generationCacheMemoryMB = 64;
+        this.generationCacheDiskMB = 256;
+        this.pregenerationPoolSize = 2;
+        this.pregenerationPoolMaxSize = 8;
+        this.maxGenerationBlocks = 5_000_000;
+        this.generationMemoryBudgetMB = 256;
+        this.maxGenerationApplySeconds = 120;
+        this.maxQueuedGenerations = 8;
+        this.deferDecorations = true;
+        this.batchGenerationThreads = 0;
+        this.protectDungeons = true;
         this.messages = new HashMap<>();
         initializeDefaultMessages();
     }
@@ -50,6 +76,67 @@ public class PluginConfig {
         this.resetDelaySeconds = resetDelaySeconds; 
     }
     
+    public int getMaxBlocksPerTick() { return maxBlocksPerTick; }
+    public void setMaxBlocksPerTick(int maxBlocksPerTick) { 
+        this.maxBlocksPerTick = maxBlocksPerTick; 
+    }
+    
+    public int getMaxApplyMicrosPerTick() { return maxApplyMicrosPerTick; }
+    public void setMaxApplyMicrosPerTick(int maxApplyMicrosPerTick) { 
+        this.maxApplyMicrosPerTick = maxApplyMicrosPerTick; 
+    }
+    
+    public int getGenerationCacheMemoryMB() { return generationCacheMemoryMB; }
+    public void setGenerationCacheMemoryMB(int generationCacheMemoryMB) { 
+        this.generationCacheMemoryMB = generationCacheMemoryMB; 
+    }
+    
+    public int getGenerationCacheDiskMB() { return generationCacheDiskMB; }
+    public void setGenerationCacheDiskMB(int generationCacheDiskMB) { 
+        this.generationCacheDiskMB = generationCacheDiskMB; 
+    }
+    
+    public int getPregenerationPoolSize() { return pregenerationPoolSize; }
+    public void setPregenerationPoolSize(int pregenerationPoolSize) { 
+        this.pregenerationPoolSize = pregenerationPoolSize; 
+    }
+    
+    public int getPregenerationPoolMaxSize() { return pregenerationPoolMaxSize; }
+    public void setPregenerationPoolMaxSize(int pregenerationPoolMaxSize) { 
+        this.pregenerationPoolMaxSize = pregenerationPoolMaxSize; 
+    }
+    
+    public long getMaxGenerationBlocks() { return maxGenerationBlocks; }
+    public void setMaxGenerationBlocks(long maxGenerationBlocks) { 
+        this.maxGenerationBlocks = maxGenerationBlocks; 
+    }
+    
+    public int getGenerationMemoryBudgetMB() { return generationMemoryBudgetMB; }
+    public void setGenerationMemoryBudgetMB(int generationMemoryBudgetMB) { 
+        this.generationMemoryBudgetMB = generationMemoryBudgetMB; 
+    }
+    
+    public int getMaxGenerationApplySeconds() { return maxGenerationApplySeconds; }
+    public void setMaxGenerationApplySeconds(int maxGenerationApplySeconds) { 
+        this.maxGenerationApplySeconds = maxGenerationApplySeconds; 
+    }
+    
+    public int getMaxQueuedGenerations() { return maxQueuedGenerations; }
+    public void setMaxQueuedGenerations(int maxQueuedGenerations) { 
+        this.maxQueuedGenerations = maxQueuedGenerations; 
+    }
+    
+    public boolean isDeferDecorations() { return deferDecorations; }
+    public void setDeferDecorations(boolean deferDecorations) { this.deferDecorations = deferDecorations; }
+    
+    public int getBatchGenerationThreads() { return batchGenerationThreads; }
+    public void setBatchGenerationThreads(int batchGenerationThreads) { 
+        this.batchGenerationThreads = batchGenerationThreads; 
+    }
+    
+    public boolean isProtectDungeons() { return protectDungeons; }
+    public void setProtectDungeons(boolean protectDungeons) { this.protectDungeons = protectDungeons; }
+    
     public Map<String, String> getMessages() { return messages; }
     public void setMessages(Map<String, String> messages) { this.messages = messages; }
     
@@ -0,0 +1,188 @@
+package com.sekiya.dungeons.config;
+
+import com.sekiya.dungeons.enemy.SpawnPoint;
+import com.sekiya.dungeons.room.RoomDoor;
+import com.sekiya.dungeons.util.BlockRegion;
+import com.sekiya.dungeons.util.Location;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable compiled form of a RoomConfig, shared by every instance of a dungeon
+ *
+ * Bounds are a BlockRegion of int block coordinates with an interned world id,
+ * so containment checks do not chase Location objects, and the spawn table is built once.
+ */
+public class RoomBlueprint {
+    private final String id;
+    private final int order;
+    private final int index;
+    private final BlockRegion bounds;
+    private final List<SpawnPoint> spawnPoints;
+    private final int enemyCount;
+    
+    // Door spec, each instance gets its own RoomDoor since doors open and close
+    private final boolean hasDoor;
+    private final Location doorLocation;
+    private final String doorType;
+    private final int doorWidth;
+    private final int doorHeight;
+    
+    private RoomBlueprint(String id, int order, int index, Location min, Location max,
+                          SpawnPoint[] spawnPoints, DoorConfig door) {
+        this.id = id;
+        this.order = order;
+        this.index = index;
+        this.bounds = new BlockRegion(min, max);
+        this.spawnPoints = Collections.unmodifiableList(Arrays.asList(spawnPoints));
+        
+        int enemies = 0;
+        for (SpawnPoint spawnPoint : spawnPoints) {
+            enemies += spawnPoint.getCount();
+        }
+        this.enemyCount = enemies;
+        
+        this.hasDoor = door != null;
+        if (door != null) {
+            this.doorLocation = door.getLocation();
+            this.doorType = door.getType();
+            this.doorWidth = door.getWidth();
+            this.doorHeight = door.getHeight();
+        } else {
+            this.doorLocation = null;
+            this.doorType = null;
+            this.doorWidth = 0;
+            this.doorHeight = 0;
+        }
+    }
+    
+    /**
+     * Compiles a room
+     *
+     * @param index position of the room in the dungeon's room order
+     */
+    public static RoomBlueprint compile(RoomConfig config, int index) {
+        SpawnPoint[] spawnPoints = new SpawnPoint[0];
+        if (config.getSpawnPoints() != null) {
+            spawnPoints = new SpawnPoint[config.getSpawnPoints().size()];
+            for (int i = 0; i < spawnPoints.length; i++) {
+                SpawnPointConfig spConfig = config.getSpawnPoints().get(i);
+                spawnPoints[i] = new SpawnPoint(
+                    spConfig.getId(),
+                    spConfig.getLocation(),
+                    spConfig.getEnemyType(),
+                    spConfig.getCount()
+                );
+            }
+        }
+        
+        return new RoomBlueprint(config.getId(), config.getOrder(), index,
+            config.getMinBounds(), config.getMaxBounds(), spawnPoints, config.getDoor());
+    }
+    
+    /**
+     * Compiles the bounds of a boss room, which has no spawn points or door and is always last
+     */
+    public static RoomBlueprint compileBossRoom(BossRoomConfig config, int index) {
+        return new RoomBlueprint(config.getId(), 999, index,
+            config.getMinBounds(), config.getMaxBounds(), new SpawnPoint[0], null);
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public int getOrder() {
+        return order;
+    }
+    
+    /**
+     * Gets the position of the room in the dungeon's room order
+     */
+    public int getIndex() {
+        return index;
+    }
+    
+    public BlockRegion getBounds() {
+        return bounds;
+    }
+    
+    public String getWorld() {
+        return bounds.getWorld();
+    }
+    
+    public int getWorldId() {
+        return bounds.getWorldId();
+    }
+    
+    public int getMinBlockX() {
+        return bounds.getMinX();
+    }
+    
+    public int getMinBlockY() {
+        return bounds.getMinY();
+    }
+    
+    public int getMinBlockZ() {
+        return bounds.getMinZ();
+    }
+    
+    public int getMaxBlockX() {
+        return bounds.getMaxX();
+    }
+    
+    public int getMaxBlockY() {
+        return bounds.getMaxY();
+    }
+    
+    public int getMaxBlockZ() {
+        return bounds.getMaxZ();
+    }
+    
+    /**
+     * Gets the spawn table of the room, unmodifiable
+     */
+    public List<SpawnPoint> getSpawnPoints() {
+        return spawnPoints;
+    }
+    
+    /**
+     * Gets the number of enemies all spawn points of the room spawn together
+     */
+    public int getEnemyCount() {
+        return enemyCount;
+    }
+    
+    public boolean hasDoor() {
+        return hasDoor;
+    }
+    
+    /**
+     * Creates the door of one instance of the room, or null if the room has none
+     */
+    public RoomDoor createDoor() {
+        return hasDoor ? new RoomDoor(doorLocation, doorType, doorWidth, doorHeight) : null;
+    }
+    
+    /**
+     * Checks if a location is inside the room, by the block it stands in
+     */
+    public boolean contains(Location location) {
+        return bounds.contains(location);
+    }
+    
+    /**
+     * Checks if a block is inside the room
+     */
+    public boolean contains(int x, int y, int z, int worldId) {
+        return bounds.contains(x, y, z, worldId);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("RoomBlueprint{id=%s, order=%d, index=%d, spawns=%d}",
+            id, order, index, spawnPoints.size());
+    }
+}
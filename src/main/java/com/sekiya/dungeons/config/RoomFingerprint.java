@@ -0,0 +1,131 @@
+package com.sekiya.dungeons.config;
+
+import com.sekiya.dungeons.util.Location;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fingerprint of a room as it was last built into the world
+ *
+ * The hash covers everything the build depends on: bounds, door, spawn points, the
+ * dungeon's theme and the room's position in the dungeon, which picks its random
+ * materials. The box is kept as well, so the blocks of a room that moved
+ * or was removed can be found again after the template was edited.
+ */
+public class RoomFingerprint {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private String id;
+    private long hash;
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int maxX;
+    private int maxY;
+    private int maxZ;
+    
+    public RoomFingerprint() {}
+    
+    /**
+     * Fingerprints a room built with the given theme at the given position
+     */
+    public static RoomFingerprint of(RoomConfig room, int index, String theme) {
+        RoomFingerprint fingerprint = new RoomFingerprint();
+        fingerprint.id = room.getId();
+        
+        Location min = room.getMinBounds();
+        Location max = room.getMaxBounds();
+        if (min != null && max != null) {
+            fingerprint.minX = (int) Math.min(min.getX(), max.getX());
+            fingerprint.minY = (int) Math.min(min.getY(), max.getY());
+            fingerprint.minZ = (int) Math.min(min.getZ(), max.getZ());
+            fingerprint.maxX = (int) Math.max(min.getX(), max.getX());
+            fingerprint.maxY = (int) Math.max(min.getY(), max.getY());
+            fingerprint.maxZ = (int) Math.max(min.getZ(), max.getZ());
+        }
+        
+        long hash = FNV_OFFSET;
+        hash = mix(hash, theme);
+        hash = mix(hash, index);
+        hash = mix(hash, min);
+        hash = mix(hash, max);
+        
+        DoorConfig door = room.getDoor();
+        if (door != null) {
+            hash = mix(hash, door.getType());
+            hash = mix(hash, door.getLocation());
+            hash = mix(hash, door.getWidth());
+            hash = mix(hash, door.getHeight());
+        }
+        
+        if (room.getSpawnPoints() != null) {
+            for (SpawnPointConfig spawn : room.getSpawnPoints()) {
+                hash = mix(hash, spawn.getId());
+                hash = mix(hash, spawn.getLocation());
+                hash = mix(hash, spawn.getEnemyType());
+                hash = mix(hash, spawn.getCount());
+            }
+        }
+        fingerprint.hash = hash;
+        return fingerprint;
+    }
+    
+    /**
+     * Fingerprints every room, in order
+     */
+    public static List<RoomFingerprint> of(List<RoomConfig> rooms, String theme) {
+        List<RoomFingerprint> fingerprints = new ArrayList<>(rooms.size());
+        for (int i = 0; i < rooms.size(); i++) {
+            fingerprints.add(of(rooms.get(i), i, theme));
+        }
+        return fingerprints;
+    }
+    
+    public String getId() { return id; }
+    public long getHash() { return hash; }
+    
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMinZ() { return minZ; }
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+    public int getMaxZ() { return maxZ; }
+    
+    /**
+     * Creates a room with the fingerprinted box only, enough to route corridors as they were built
+     */
+    public RoomConfig toBoxRoom(String world) {
+        RoomConfig room = new RoomConfig();
+        room.setId(id);
+        Map<String, Location> bounds = new HashMap<>();
+        bounds.put("min", new Location(world, minX, minY, minZ));
+        bounds.put("max", new Location(world, maxX, maxY, maxZ));
+        room.setBounds(bounds);
+        return room;
+    }
+    
+    private static long mix(long hash, Location location) {
+        if (location == null) {
+            return mix(hash, -1);
+        }
+        hash = mix(hash, location.getWorld());
+        hash = mix(hash, Double.hashCode(location.getX()));
+        hash = mix(hash, Double.hashCode(location.getY()));
+        return mix(hash, Double.hashCode(location.getZ()));
+    }
+    
+    private static long mix(long hash, String value) {
+        return mix(hash, value != null ? value.hashCode() : 0);
+    }
+    
+    private static long mix(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,200 @@
+package com.sekiya.dungeons.config;
+
+import com.sekiya.dungeons.util.Location;
+import com.sekiya.dungeons.util.WorldIds;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the rooms of a dungeon, to find the room that contains a point
+ *
+ * Built once per blueprint and shared by every instance. The bounding box of all
+ * rooms is cut into cubic cells of 16 blocks (larger for huge dungeons), and each
+ * cell lists the rooms whose bounds touch it, in room order. A lookup is one array
+ * index for the cell and an exact bounds test of its few rooms, instead of a test
+ * of every room. Bounds are inclusive block coordinates and worlds are compared by
+ * id, the same as {@link RoomBlueprint#contains}.
+ *
+ * Rooms are identified by their index in the dungeon's room order. Where rooms
+ * overlap, the first of them in that order is returned.
+ */
+public class RoomIndex {
+    private static final int MIN_CELL_SHIFT = 4;
+    private static final int MAX_CELLS = 1 << 16;
+    
+    private final int[] worldIds;
+    private final int[] bounds;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int cellShift;
+    private final int cellsX;
+    private final int cellsY;
+    private final int cellsZ;
+    
+    // Rooms of cell c are cellRooms[cellStart[c]] to cellRooms[cellStart[c + 1] - 1]
+    private final int[] cellStart;
+    private final int[] cellRooms;
+    
+    /**
+     * Indexes rooms by their position in the array, null entries are skipped
+     */
+    public RoomIndex(RoomBlueprint[] rooms) {
+        this.worldIds = new int[rooms.length];
+        this.bounds = new int[rooms.length * 6];
+        
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < rooms.length; i++) {
+            RoomBlueprint room = rooms[i];
+            if (room == null) {
+                worldIds[i] = WorldIds.NONE;
+                continue;
+            }
+            worldIds[i] = room.getWorldId();
+            bounds[i * 6] = room.getMinBlockX();
+            bounds[i * 6 + 1] = room.getMinBlockY();
+            bounds[i * 6 + 2] = room.getMinBlockZ();
+            bounds[i * 6 + 3] = room.getMaxBlockX();
+            bounds[i * 6 + 4] = room.getMaxBlockY();
+            bounds[i * 6 + 5] = room.getMaxBlockZ();
+            
+            minX = Math.min(minX, room.getMinBlockX());
+            minY = Math.min(minY, room.getMinBlockY());
+            minZ = Math.min(minZ, room.getMinBlockZ());
+            maxX = Math.max(maxX, room.getMaxBlockX());
+            maxY = Math.max(maxY, room.getMaxBlockY());
+            maxZ = Math.max(maxZ, room.getMaxBlockZ());
+        }
+        
+        if (minX > maxX) {
+            // No rooms
+            this.originX = this.originY = this.originZ = 0;
+            this.cellShift = MIN_CELL_SHIFT;
+            this.cellsX = this.cellsY = this.cellsZ = 0;
+            this.cellStart = new int[1];
+            this.cellRooms = new int[0];
+            return;
+        }
+        
+        // Grow the cells until the grid fits, a few rooms share a cell then
+        int shift = MIN_CELL_SHIFT;
+        while (cellCount(minX, maxX, shift) * cellCount(minY, maxY, shift) * cellCount(minZ, maxZ, shift) > MAX_CELLS) {
+            shift++;
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.originZ = minZ;
+        this.cellShift = shift;
+        this.cellsX = (int) cellCount(minX, maxX, shift);
+        this.cellsY = (int) cellCount(minY, maxY, shift);
+        this.cellsZ = (int) cellCount(minZ, maxZ, shift);
+        
+        // Count the rooms of each cell, then fill them in room order
+        int cells = cellsX * cellsY * cellsZ;
+        int[] starts = new int[cells + 1];
+        for (int i = 0; i < rooms.length; i++) {
+            if (rooms[i] != null) {
+                addToCells(rooms[i], i, starts, null);
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            starts[c + 1] += starts[c];
+        }
+        this.cellStart = starts;
+        this.cellRooms = new int[starts[cells]];
+        
+        int[] next = Arrays.copyOf(starts, cells);
+        for (int i = 0; i < rooms.length; i++) {
+            if (rooms[i] != null) {
+                addToCells(rooms[i], i, next, cellRooms);
+            }
+        }
+    }
+    
+    /**
+     * Gets the room that contains a location, or -1 if it is in none
+     */
+    public int find(Location location) {
+        if (location == null) {
+            return -1;
+        }
+        return find(location.getBlockX(), location.getBlockY(), location.getBlockZ(), location.getWorldId());
+    }
+    
+    /**
+     * Gets the room that contains a block, or -1 if it is in none
+     *
+     * @param worldId id of the block's world, see {@link WorldIds}
+     */
+    public int find(int x, int y, int z, int worldId) {
+        int cx = (x - originX) >> cellShift;
+        int cy = (y - originY) >> cellShift;
+        int cz = (z - originZ) >> cellShift;
+        if (cx < 0 || cy < 0 || cz < 0 || cx >= cellsX || cy >= cellsY || cz >= cellsZ) {
+            return -1;
+        }
+        
+        int cell = (cy * cellsZ + cz) * cellsX + cx;
+        for (int i = cellStart[cell], end = cellStart[cell + 1]; i < end; i++) {
+            int room = cellRooms[i];
+            if (contains(room, x, y, z, worldId)) {
+                return room;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Checks if a block is inside one room, without going through the grid
+     */
+    public boolean contains(int room, int x, int y, int z, int worldId) {
+        int b = room * 6;
+        return x >= bounds[b] && x <= bounds[b + 3] && y >= bounds[b + 1] && y <= bounds[b + 4]
+            && z >= bounds[b + 2] && z <= bounds[b + 5] && worldIds[room] == worldId && worldId != WorldIds.NONE;
+    }
+    
+    /**
+     * Gets the number of rooms the index was built with, null entries included
+     */
+    public int getRoomCount() {
+        return worldIds.length;
+    }
+    
+    public int getCellSize() {
+        return 1 << cellShift;
+    }
+    
+    /**
+     * Counts a room in every cell it touches, or writes it at the next free slot of each
+     *
+     * @param counts cell counts shifted by one when target is null, next free slots otherwise
+     */
+    private void addToCells(RoomBlueprint room, int index, int[] counts, int[] target) {
+        int x0 = (room.getMinBlockX() - originX) >> cellShift, x1 = (room.getMaxBlockX() - originX) >> cellShift;
+        int y0 = (room.getMinBlockY() - originY) >> cellShift, y1 = (room.getMaxBlockY() - originY) >> cellShift;
+        int z0 = (room.getMinBlockZ() - originZ) >> cellShift, z1 = (room.getMaxBlockZ() - originZ) >> cellShift;
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++) {
+                    int cell = (y * cellsZ + z) * cellsX + x;
+                    if (target == null) {
+                        counts[cell + 1]++;
+                    } else {
+                        target[counts[cell]++] = index;
+                    }
+                }
+            }
+        }
+    }
+    
+    private static long cellCount(int min, int max, int shift) {
+        return ((long) (max - min) >> shift) + 1;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("RoomIndex{rooms=%d, cells=%dx%dx%d, cellSize=%d}",
+            worldIds.length, cellsX, cellsY, cellsZ, getCellSize());
+    }
+}
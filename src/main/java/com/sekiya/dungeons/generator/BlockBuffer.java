@@ -0,0 +1,347 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.util.Location;
+import com.sekiya.dungeons.util.PackedPosition;
+
+import java.util.*;
+
+/**
+ * Packed, column-oriented store of block placements
+ *
+ * Each placement costs one long (packed position), one byte (BlockType ordinal)
+ * and one short (interned metadata id) instead of a BlockPlacement plus a Location.
+ * BlockPlacement objects are only created on demand through {@link #get(int)} or
+ * {@link #asList()}.
+ *
+ * Region operations ({@link CuboidFill}) are stored as a single entry in the same
+ * columns, so a buffer is an ordered list of operations: {@link #size()} counts
+ * entries, {@link #getBlockCount()} counts the blocks they write once expanded.
+ */
+public class BlockBuffer implements BlockSink {
+    private static final BlockType[] BLOCK_TYPES = BlockType.values();
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final short NO_METADATA = 0;
+    private static final byte REGION = -1;
+    private static final int REGION_BYTES = 64;
+    
+    private final String world;
+    private long[] positions;
+    private byte[] types;
+    private short[] metadata;
+    private int size;
+    private long blockCount;
+    
+    // Region operations, referenced by index from the positions column
+    private final List<CuboidFill> regions;
+    
+    // Metadata side table, id 0 is reserved for "no metadata"
+    private final List<String> metadataTable;
+    private final Map<String, Short> metadataIds;
+    
+    public BlockBuffer(String world) {
+        this(world, DEFAULT_CAPACITY);
+    }
+    
+    public BlockBuffer(String world, int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.world = world;
+        this.positions = new long[capacity];
+        this.types = new byte[capacity];
+        this.metadata = new short[capacity];
+        this.size = 0;
+        this.blockCount = 0;
+        this.regions = new ArrayList<>();
+        this.metadataTable = new ArrayList<>();
+        this.metadataTable.add(null);
+        this.metadataIds = new HashMap<>();
+    }
+    
+    /**
+     * Appends a placement
+     */
+    @Override
+    public void place(int x, int y, int z, BlockType type, String meta) {
+        if (size == positions.length) {
+            grow(size + 1);
+        }
+        
+        positions[size] = PackedPosition.pack(x, y, z);
+        types[size] = (byte) type.ordinal();
+        metadata[size] = internMetadata(meta);
+        size++;
+        blockCount++;
+    }
+    
+    /**
+     * Appends a region operation as a single entry
+     */
+    @Override
+    public void fill(CuboidFill region) {
+        if (size == positions.length) {
+            grow(size + 1);
+        }
+        
+        positions[size] = regions.size();
+        types[size] = REGION;
+        metadata[size] = NO_METADATA;
+        regions.add(region);
+        size++;
+        blockCount += region.getVolume();
+    }
+    
+    /**
+     * Appends every entry of another buffer
+     */
+    public void addAll(BlockBuffer other) {
+        ensureCapacity(size + other.size);
+        
+        for (int i = 0; i < other.size; i++) {
+            placeFrom(other, i);
+        }
+    }
+    
+    /**
+     * Appends a single entry copied from another buffer
+     */
+    public void placeFrom(BlockBuffer other, int index) {
+        other.checkIndex(index);
+        if (other.types[index] == REGION) {
+            fill(other.regions.get((int) other.positions[index]));
+            return;
+        }
+        
+        if (size == positions.length) {
+            grow(size + 1);
+        }
+        
+        positions[size] = other.positions[index];
+        types[size] = other.types[index];
+        metadata[size] = internMetadata(other.metadataTable.get(other.metadata[index]));
+        size++;
+        blockCount++;
+    }
+    
+    /**
+     * Replays every entry, in order, into another sink
+     */
+    public void writeTo(BlockSink sink) {
+        for (int i = 0; i < size; i++) {
+            writeTo(i, sink);
+        }
+    }
+    
+    /**
+     * Replays a single entry into another sink
+     * 
+     * @return the number of blocks the entry writes
+     */
+    public long writeTo(int index, BlockSink sink) {
+        checkIndex(index);
+        if (types[index] == REGION) {
+            CuboidFill region = regions.get((int) positions[index]);
+            sink.fill(region);
+            return region.getVolume();
+        }
+        
+        long packed = positions[index];
+        sink.place(
+            PackedPosition.unpackX(packed),
+            PackedPosition.unpackY(packed),
+            PackedPosition.unpackZ(packed),
+            BLOCK_TYPES[types[index]],
+            metadataTable.get(metadata[index])
+        );
+        return 1;
+    }
+    
+    /**
+     * Creates a copy with every region operation expanded into single placements
+     */
+    public BlockBuffer expand() {
+        BlockBuffer expanded = new BlockBuffer(world, (int) Math.min(blockCount, Integer.MAX_VALUE - 8));
+        for (int i = 0; i < size; i++) {
+            if (types[i] == REGION) {
+                regions.get((int) positions[i]).expandTo(expanded);
+            } else {
+                expanded.placeFrom(this, i);
+            }
+        }
+        return expanded;
+    }
+    
+    /**
+     * Makes sure the buffer can hold at least the given number of placements
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > positions.length) {
+            grow(capacity);
+        }
+    }
+    
+    /**
+     * Releases unused capacity
+     */
+    public void trimToSize() {
+        if (size < positions.length) {
+            positions = Arrays.copyOf(positions, size);
+            types = Arrays.copyOf(types, size);
+            metadata = Arrays.copyOf(metadata, size);
+        }
+    }
+    
+    public String getWorld() {
+        return world;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Gets the number of blocks written when every entry is expanded
+     */
+    public long getBlockCount() {
+        return blockCount;
+    }
+    
+    /**
+     * Gets the number of region operations in the buffer
+     */
+    public int getRegionCount() {
+        return regions.size();
+    }
+    
+    /**
+     * Checks if the entry at the given index is a region operation
+     */
+    public boolean isRegion(int index) {
+        checkIndex(index);
+        return types[index] == REGION;
+    }
+    
+    /**
+     * Gets the region operation at the given index
+     */
+    public CuboidFill getRegion(int index) {
+        checkIndex(index);
+        if (types[index] != REGION) {
+            throw new IllegalStateException("Entry " + index + " is a single placement");
+        }
+        return regions.get((int) positions[index]);
+    }
+    
+    public long getPosition(int index) {
+        checkPlacement(index);
+        return positions[index];
+    }
+    
+    public int getX(int index) {
+        return PackedPosition.unpackX(getPosition(index));
+    }
+    
+    public int getY(int index) {
+        return PackedPosition.unpackY(getPosition(index));
+    }
+    
+    public int getZ(int index) {
+        return PackedPosition.unpackZ(getPosition(index));
+    }
+    
+    public BlockType getBlockType(int index) {
+        checkPlacement(index);
+        return BLOCK_TYPES[types[index]];
+    }
+    
+    public String getMetadata(int index) {
+        checkPlacement(index);
+        return metadataTable.get(metadata[index]);
+    }
+    
+    /**
+     * Materializes a single placement
+     */
+    public BlockPlacement get(int index) {
+        long packed = getPosition(index);
+        return new BlockPlacement(
+            new Location(world, PackedPosition.unpackX(packed), PackedPosition.unpackY(packed),
+                PackedPosition.unpackZ(packed)),
+            BLOCK_TYPES[types[index]],
+            metadataTable.get(metadata[index])
+        );
+    }
+    
+    /**
+     * Gets a read-only list view that creates BlockPlacements lazily on access
+     * 
+     * Region operations are expanded first, so the view holds one entry per block.
+     */
+    public List<BlockPlacement> asList() {
+        BlockBuffer placements = regions.isEmpty() ? this : expand();
+        return new AbstractList<>() {
+            @Override
+            public BlockPlacement get(int index) {
+                return placements.get(index);
+            }
+            
+            @Override
+            public int size() {
+                return placements.size;
+            }
+        };
+    }
+    
+    /**
+     * Estimates the heap used by the packed columns in bytes
+     */
+    public long getMemoryFootprint() {
+        return (long) positions.length * Long.BYTES + types.length + (long) metadata.length * Short.BYTES
+            + (long) regions.size() * REGION_BYTES;
+    }
+    
+    private short internMetadata(String meta) {
+        if (meta == null) {
+            return NO_METADATA;
+        }
+        
+        Short id = metadataIds.get(meta);
+        if (id == null) {
+            if (metadataTable.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct metadata values in block buffer");
+            }
+            id = (short) metadataTable.size();
+            metadataTable.add(meta);
+            metadataIds.put(meta, id);
+        }
+        return id;
+    }
+    
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, positions.length + (positions.length >> 1));
+        positions = Arrays.copyOf(positions, capacity);
+        types = Arrays.copyOf(types, capacity);
+        metadata = Arrays.copyOf(metadata, capacity);
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+    
+    private void checkPlacement(int index) {
+        checkIndex(index);
+        if (types[index] == REGION) {
+            throw new IllegalStateException("Entry " + index + " is a region operation");
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BlockBuffer{world=%s, size=%d, regions=%d, blocks=%d}", 
+            world, size, regions.size(), blockCount);
+    }
+}
@@ -0,0 +1,33 @@
+package com.sekiya.dungeons.generator;
+
+/**
+ * Block sink that only counts placements, per block type
+ */
+public class BlockCounter implements BlockSink {
+    private final long[] counts;
+    private long total;
+    
+    public BlockCounter() {
+        this.counts = new long[BlockType.values().length];
+        this.total = 0;
+    }
+    
+    @Override
+    public void place(int x, int y, int z, BlockType type, String metadata) {
+        counts[type.ordinal()]++;
+        total++;
+    }
+    
+    public long getTotal() {
+        return total;
+    }
+    
+    public long getCount(BlockType type) {
+        return counts[type.ordinal()];
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BlockCounter{total=%d}", total);
+    }
+}
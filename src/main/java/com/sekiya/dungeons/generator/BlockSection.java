@@ -0,0 +1,89 @@
+package com.sekiya.dungeons.generator;
+
+/**
+ * The blocks of one 16x16x16 chunk section, applied as a single batch
+ * 
+ * Region operations are clipped to the section and come first, followed by the
+ * single placements in Morton (Z-order) order.
+ */
+public class BlockSection {
+    public static final int SIZE = 16;
+    
+    private final int sectionX;
+    private final int sectionY;
+    private final int sectionZ;
+    private final BlockBuffer blocks;
+    
+    public BlockSection(int sectionX, int sectionY, int sectionZ, BlockBuffer blocks) {
+        this.sectionX = sectionX;
+        this.sectionY = sectionY;
+        this.sectionZ = sectionZ;
+        this.blocks = blocks;
+    }
+    
+    public int getSectionX() {
+        return sectionX;
+    }
+    
+    public int getSectionY() {
+        return sectionY;
+    }
+    
+    public int getSectionZ() {
+        return sectionZ;
+    }
+    
+    /**
+     * Gets the X coordinate of the chunk column this section belongs to
+     */
+    public int getChunkX() {
+        return sectionX;
+    }
+    
+    /**
+     * Gets the Z coordinate of the chunk column this section belongs to
+     */
+    public int getChunkZ() {
+        return sectionZ;
+    }
+    
+    public int getMinX() {
+        return sectionX * SIZE;
+    }
+    
+    public int getMinY() {
+        return sectionY * SIZE;
+    }
+    
+    public int getMinZ() {
+        return sectionZ * SIZE;
+    }
+    
+    public String getWorld() {
+        return blocks.getWorld();
+    }
+    
+    public BlockBuffer getBlocks() {
+        return blocks;
+    }
+    
+    /**
+     * Gets the number of blocks written by this section
+     */
+    public long getBlockCount() {
+        return blocks.getBlockCount();
+    }
+    
+    /**
+     * Replays the section into a sink
+     */
+    public void writeTo(BlockSink sink) {
+        blocks.writeTo(sink);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BlockSection{section=(%d, %d, %d), blocks=%d}", 
+            sectionX, sectionY, sectionZ, blocks.getBlockCount());
+    }
+}
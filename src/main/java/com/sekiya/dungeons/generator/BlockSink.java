@@ -0,0 +1,34 @@
+package com.sekiya.dungeons.generator;
+
+/**
+ * Receives block placements as they are generated
+ * 
+ * Implementations decide what to do with each placement: buffer it, write it
+ * to the world, encode it to a file or just count it. Generation pushes into
+ * the sink directly, so no intermediate collections are built.
+ * 
+ * Large boxes are pushed as {@link CuboidFill} operations. Sinks that can store or
+ * apply a region in bulk override {@link #fill(CuboidFill)}, everything else gets
+ * the region expanded into single placements.
+ */
+public interface BlockSink {
+    
+    /**
+     * Accepts a single block placement
+     */
+    void place(int x, int y, int z, BlockType type, String metadata);
+    
+    /**
+     * Accepts a single block placement without metadata
+     */
+    default void place(int x, int y, int z, BlockType type) {
+        place(x, y, z, type, null);
+    }
+    
+    /**
+     * Accepts a region operation, expanded into single placements by default
+     */
+    default void fill(CuboidFill region) {
+        region.expandTo(this);
+    }
+}
@@ -0,0 +1,198 @@
+package com.sekiya.dungeons.generator;
+
+import java.util.Arrays;
+
+/**
+ * Interval tree of axis-aligned boxes on the X/Z plane, for layout overlap tests
+ *
+ * A treap keyed by the boxes' minimum X, where every node also keeps the largest
+ * maximum X of its subtree. A query skips subtrees that end before the query box
+ * starts and right subtrees that start after it ends, so an overlap test costs
+ * O(log n + k) instead of a scan over every placed box. Nodes live in primitive
+ * arrays, bounds are inclusive.
+ */
+public class BoxIntervalTree {
+    private static final int NONE = -1;
+    
+    private int[] minX;
+    private int[] maxX;
+    private int[] minZ;
+    private int[] maxZ;
+    private int[] ids;
+    private int[] subtreeMaxX;
+    private int[] priorities;
+    private int[] left;
+    private int[] right;
+    private int root;
+    private int size;
+    private int priorityState;
+    
+    public BoxIntervalTree() {
+        this(16);
+    }
+    
+    public BoxIntervalTree(int expectedSize) {
+        allocate(Math.max(4, expectedSize));
+        this.root = NONE;
+        this.priorityState = 0x9E3779B9;
+    }
+    
+    /**
+     * Adds a box, bounds inclusive in any order
+     *
+     * @param id value reported back by {@link #findIntersecting}
+     */
+    public void add(int x1, int z1, int x2, int z2, int id) {
+        if (size == ids.length) {
+            allocate(size * 2);
+        }
+        
+        int node = size++;
+        minX[node] = Math.min(x1, x2);
+        maxX[node] = Math.max(x1, x2);
+        minZ[node] = Math.min(z1, z2);
+        maxZ[node] = Math.max(z1, z2);
+        ids[node] = id;
+        subtreeMaxX[node] = maxX[node];
+        priorities[node] = nextPriority();
+        left[node] = NONE;
+        right[node] = NONE;
+        
+        root = insert(root, node);
+    }
+    
+    /**
+     * Checks if any box overlaps the given one, bounds inclusive in any order
+     */
+    public boolean intersects(int x1, int z1, int x2, int z2) {
+        return findIntersecting(x1, z1, x2, z2, NONE, NONE) != NONE;
+    }
+    
+    /**
+     * Finds a box overlapping the given one, skipping the boxes with the two ignored ids
+     *
+     * @return the id of an overlapping box, or -1 if there is none
+     */
+    public int findIntersecting(int x1, int z1, int x2, int z2, int ignoreId, int otherIgnoreId) {
+        int qMinX = Math.min(x1, x2);
+        int qMaxX = Math.max(x1, x2);
+        int qMinZ = Math.min(z1, z2);
+        int qMaxZ = Math.max(z1, z2);
+        return find(root, qMinX, qMinZ, qMaxX, qMaxZ, ignoreId, otherIgnoreId);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Removes all boxes, keeping the allocated arrays
+     */
+    public void clear() {
+        root = NONE;
+        size = 0;
+    }
+    
+    private int find(int node, int qMinX, int qMinZ, int qMaxX, int qMaxZ, int ignoreId, int otherIgnoreId) {
+        while (node != NONE && subtreeMaxX[node] >= qMinX) {
+            int found = find(left[node], qMinX, qMinZ, qMaxX, qMaxZ, ignoreId, otherIgnoreId);
+            if (found != NONE) {
+                return found;
+            }
+            
+            // Keys are ordered by minimum X, nothing further right can start before the query ends
+            if (minX[node] > qMaxX) {
+                return NONE;
+            }
+            if (maxX[node] >= qMinX && minZ[node] <= qMaxZ && maxZ[node] >= qMinZ
+                    && ids[node] != ignoreId && ids[node] != otherIgnoreId) {
+                return ids[node];
+            }
+            node = right[node];
+        }
+        return NONE;
+    }
+    
+    private int insert(int node, int added) {
+        if (node == NONE) {
+            return added;
+        }
+        
+        if (minX[added] < minX[node]) {
+            left[node] = insert(left[node], added);
+            if (priorities[left[node]] > priorities[node]) {
+                node = rotateRight(node);
+            }
+        } else {
+            right[node] = insert(right[node], added);
+            if (priorities[right[node]] > priorities[node]) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+    
+    private int rotateRight(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+    
+    private int rotateLeft(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+    
+    private void update(int node) {
+        int max = maxX[node];
+        if (left[node] != NONE) {
+            max = Math.max(max, subtreeMaxX[left[node]]);
+        }
+        if (right[node] != NONE) {
+            max = Math.max(max, subtreeMaxX[right[node]]);
+        }
+        subtreeMaxX[node] = max;
+    }
+    
+    private int nextPriority() {
+        // xorshift32, the priorities only need to look random to keep the treap balanced
+        int x = priorityState;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        priorityState = x;
+        return x;
+    }
+    
+    private void allocate(int capacity) {
+        if (ids == null) {
+            minX = new int[capacity];
+            maxX = new int[capacity];
+            minZ = new int[capacity];
+            maxZ = new int[capacity];
+            ids = new int[capacity];
+            subtreeMaxX = new int[capacity];
+            priorities = new int[capacity];
+            left = new int[capacity];
+            right = new int[capacity];
+            return;
+        }
+        minX = Arrays.copyOf(minX, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        minZ = Arrays.copyOf(minZ, capacity);
+        maxZ = Arrays.copyOf(maxZ, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        subtreeMaxX = Arrays.copyOf(subtreeMaxX, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+    }
+}
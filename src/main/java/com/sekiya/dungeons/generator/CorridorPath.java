@@ -0,0 +1,143 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.config.RoomConfig;
+import com.sekiya.dungeons.util.Location;
+
+/**
+ * Center line of a corridor on the floor plane, as axis-aligned segments between waypoints
+ *
+ * The first waypoint lies on a wall of the room the corridor leaves, the last on a
+ * wall of the room it enters, so carving the corridor opens both walls.
+ * {@link WorldGenerator} builds a 3-wide tube along every segment.
+ */
+public class CorridorPath {
+    /** Blocks on each side of the center line, a corridor is 2 * HALF_WIDTH + 1 wide */
+    public static final int HALF_WIDTH = 1;
+    
+    private final int floorY;
+    private final int[] xs;
+    private final int[] zs;
+    
+    public CorridorPath(int floorY, int[] xs, int[] zs) {
+        if (xs.length != zs.length || xs.length < 2) {
+            throw new IllegalArgumentException("A corridor needs at least two waypoints");
+        }
+        this.floorY = floorY;
+        this.xs = xs.clone();
+        this.zs = zs.clone();
+    }
+    
+    /**
+     * Plans a straight or L-shaped corridor from one room to another
+     *
+     * @return the path, or null if the rooms overlap or sit too close for a corridor
+     */
+    public static CorridorPath between(RoomConfig from, RoomConfig to) {
+        if (from.getMinBounds() == null || from.getMaxBounds() == null
+                || to.getMinBounds() == null || to.getMaxBounds() == null) {
+            return null;
+        }
+        Location aMin = from.getMinBounds();
+        Location aMax = from.getMaxBounds();
+        Location bMin = to.getMinBounds();
+        Location bMax = to.getMaxBounds();
+        
+        int floorY = Math.max((int) aMin.getY(), (int) bMin.getY());
+        return plan((int) aMin.getX(), (int) aMin.getZ(), (int) aMax.getX(), (int) aMax.getZ(),
+            (int) bMin.getX(), (int) bMin.getZ(), (int) bMax.getX(), (int) bMax.getZ(), floorY);
+    }
+    
+    /**
+     * Plans a corridor between two room boxes on the floor plane, bounds inclusive
+     */
+    static CorridorPath plan(int aMinX, int aMinZ, int aMaxX, int aMaxZ,
+                             int bMinX, int bMinZ, int bMaxX, int bMaxZ, int floorY) {
+        boolean separatedX = bMinX > aMaxX || bMaxX < aMinX;
+        boolean separatedZ = bMinZ > aMaxZ || bMaxZ < aMinZ;
+        int aCenterX = (aMinX + aMaxX) / 2;
+        int aCenterZ = (aMinZ + aMaxZ) / 2;
+        int bCenterX = (bMinX + bMaxX) / 2;
+        int bCenterZ = (bMinZ + bMaxZ) / 2;
+        
+        // Straight along X while the rooms share enough of Z for the corridor
+        int lowZ = Math.max(aMinZ, bMinZ) + 1 + HALF_WIDTH;
+        int highZ = Math.min(aMaxZ, bMaxZ) - 1 - HALF_WIDTH;
+        if (separatedX && lowZ <= highZ) {
+            int z = Math.max(lowZ, Math.min(highZ, aCenterZ));
+            int startX = bMinX > aMaxX ? aMaxX : aMinX;
+            int endX = bMinX > aMaxX ? bMinX : bMaxX;
+            return new CorridorPath(floorY, new int[]{startX, endX}, new int[]{z, z});
+        }
+        
+        // Straight along Z while the rooms share enough of X
+        int lowX = Math.max(aMinX, bMinX) + 1 + HALF_WIDTH;
+        int highX = Math.min(aMaxX, bMaxX) - 1 - HALF_WIDTH;
+        if (separatedZ && lowX <= highX) {
+            int x = Math.max(lowX, Math.min(highX, aCenterX));
+            int startZ = bMinZ > aMaxZ ? aMaxZ : aMinZ;
+            int endZ = bMinZ > aMaxZ ? bMinZ : bMaxZ;
+            return new CorridorPath(floorY, new int[]{x, x}, new int[]{startZ, endZ});
+        }
+        
+        // X first, turning at (bCenterX, aCenterZ), which must be clear of both rooms
+        boolean cornerClearOfA = bCenterX - HALF_WIDTH > aMaxX || bCenterX + HALF_WIDTH < aMinX;
+        boolean cornerClearOfB = aCenterZ - HALF_WIDTH > bMaxZ || aCenterZ + HALF_WIDTH < bMinZ;
+        if (cornerClearOfA && cornerClearOfB) {
+            int startX = bCenterX > aMaxX ? aMaxX : aMinX;
+            int endZ = aCenterZ < bMinZ ? bMinZ : bMaxZ;
+            return new CorridorPath(floorY, new int[]{startX, bCenterX, bCenterX},
+                new int[]{aCenterZ, aCenterZ, endZ});
+        }
+        
+        // Z first, turning at (aCenterX, bCenterZ)
+        cornerClearOfA = bCenterZ - HALF_WIDTH > aMaxZ || bCenterZ + HALF_WIDTH < aMinZ;
+        cornerClearOfB = aCenterX - HALF_WIDTH > bMaxX || aCenterX + HALF_WIDTH < bMinX;
+        if (cornerClearOfA && cornerClearOfB) {
+            int startZ = bCenterZ > aMaxZ ? aMaxZ : aMinZ;
+            int endX = aCenterX < bMinX ? bMinX : bMaxX;
+            return new CorridorPath(floorY, new int[]{aCenterX, aCenterX, endX},
+                new int[]{startZ, bCenterZ, bCenterZ});
+        }
+        
+        return null;
+    }
+    
+    public int getFloorY() {
+        return floorY;
+    }
+    
+    /**
+     * Gets the number of waypoints, one more than the number of segments
+     */
+    public int size() {
+        return xs.length;
+    }
+    
+    public int getX(int waypoint) {
+        return xs[waypoint];
+    }
+    
+    public int getZ(int waypoint) {
+        return zs[waypoint];
+    }
+    
+    /**
+     * Gets the number of blocks along the center line
+     */
+    public int getLength() {
+        int length = 0;
+        for (int i = 1; i < xs.length; i++) {
+            length += Math.abs(xs[i] - xs[i - 1]) + Math.abs(zs[i] - zs[i - 1]);
+        }
+        return length;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CorridorPath{y=").append(floorY);
+        for (int i = 0; i < xs.length; i++) {
+            builder.append(i == 0 ? ", " : " -> ").append('(').append(xs[i]).append(", ").append(zs[i]).append(')');
+        }
+        return builder.append('}').toString();
+    }
+}
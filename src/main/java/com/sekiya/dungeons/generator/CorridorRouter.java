@@ -0,0 +1,483 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.config.RoomConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Routes the corridors between the rooms of a dungeon around every other room and corridor
+ *
+ * A corridor is first tried as the straight or L-shaped {@link CorridorPath#between}
+ * path, checked against {@link BoxIntervalTree}s of the rooms and of the corridors
+ * routed so far. When that path is blocked, an A* search runs over a coarse grid of
+ * 4x4 block cells, where a cell is blocked if any room touches it. The search
+ * starts from every free cell facing a wall of one room and ends at any free cell
+ * facing a wall of the other, so the corridor leaves and enters through whichever
+ * walls give the shortest way around. Turns and crossing an earlier corridor cost
+ * extra, so corridors keep to few, long segments and cross only to avoid a long
+ * detour. {@link WorldGenerator} opens the crossings into junctions.
+ *
+ * The search state lives in primitive arrays allocated on the first search and
+ * reused by every later one: a generation stamp marks which entries belong to the
+ * current search instead of clearing them, and the open set is a binary heap of
+ * packed longs. Not thread-safe.
+ */
+public class CorridorRouter {
+    private static final int CELL_SIZE = 4;
+    private static final int CELL_CENTER = CELL_SIZE / 2;
+    private static final int TURN_COST = 2 * CELL_SIZE;
+    private static final int CROSSING_COST = 8 * CELL_SIZE;
+    private static final int GRID_MARGIN = 4;
+    
+    // Directions: east (+X), south (+Z), west (-X), north (-Z)
+    private static final int[] DX = {1, 0, -1, 0};
+    private static final int[] DZ = {0, 1, 0, -1};
+    
+    private final int roomCount;
+    private final int[] minX;
+    private final int[] minZ;
+    private final int[] maxX;
+    private final int[] maxZ;
+    private final int[] floorY;
+    private final boolean[] placed;
+    
+    private final BoxIntervalTree roomBoxes;
+    private final BoxIntervalTree corridorBoxes;
+    private final int originX;
+    private final int originZ;
+    private final int columns;
+    private final int rows;
+    private final long[] blocked;
+    private final long[] crossed;
+    private int corridorCount;
+    
+    // Search pools, one entry per cell and direction
+    private int[] costs;
+    private int[] parents;
+    private int[] seen;
+    private int[] closed;
+    private int[] goals;
+    private byte[] goalDirections;
+    private long[] heap;
+    private int heapSize;
+    private int stamp;
+    private int[] cellPath;
+    
+    public CorridorRouter(List<RoomConfig> rooms) {
+        this.roomCount = rooms.size();
+        this.minX = new int[roomCount];
+        this.minZ = new int[roomCount];
+        this.maxX = new int[roomCount];
+        this.maxZ = new int[roomCount];
+        this.floorY = new int[roomCount];
+        this.placed = new boolean[roomCount];
+        this.roomBoxes = new BoxIntervalTree(roomCount);
+        this.corridorBoxes = new BoxIntervalTree(roomCount * 2);
+        
+        int lowX = Integer.MAX_VALUE;
+        int lowZ = Integer.MAX_VALUE;
+        int highX = Integer.MIN_VALUE;
+        int highZ = Integer.MIN_VALUE;
+        for (int i = 0; i < roomCount; i++) {
+            RoomConfig room = rooms.get(i);
+            if (room.getMinBounds() == null || room.getMaxBounds() == null) {
+                continue;
+            }
+            minX[i] = (int) Math.min(room.getMinBounds().getX(), room.getMaxBounds().getX());
+            minZ[i] = (int) Math.min(room.getMinBounds().getZ(), room.getMaxBounds().getZ());
+            maxX[i] = (int) Math.max(room.getMinBounds().getX(), room.getMaxBounds().getX());
+            maxZ[i] = (int) Math.max(room.getMinBounds().getZ(), room.getMaxBounds().getZ());
+            floorY[i] = (int) Math.min(room.getMinBounds().getY(), room.getMaxBounds().getY());
+            placed[i] = true;
+            roomBoxes.add(minX[i], minZ[i], maxX[i], maxZ[i], i);
+            
+            lowX = Math.min(lowX, minX[i]);
+            lowZ = Math.min(lowZ, minZ[i]);
+            highX = Math.max(highX, maxX[i]);
+            highZ = Math.max(highZ, maxZ[i]);
+        }
+        if (lowX > highX) {
+            lowX = lowZ = highX = highZ = 0;
+        }
+        
+        // Room for corridors to run around the outermost rooms
+        this.originX = lowX - GRID_MARGIN * CELL_SIZE;
+        this.originZ = lowZ - GRID_MARGIN * CELL_SIZE;
+        this.columns = Math.floorDiv(highX - originX, CELL_SIZE) + 1 + GRID_MARGIN;
+        this.rows = Math.floorDiv(highZ - originZ, CELL_SIZE) + 1 + GRID_MARGIN;
+        this.blocked = new long[(int) (((long) columns * rows + 63) >>> 6)];
+        this.crossed = new long[blocked.length];
+        for (int i = 0; i < roomCount; i++) {
+            if (placed[i]) {
+                mark(blocked, minX[i], minZ[i], maxX[i], maxZ[i]);
+            }
+        }
+    }
+    
+    /**
+     * Routes a corridor between each room and the next one, in order
+     *
+     * @return one path per pair of rooms, null where two rooms cannot be connected
+     */
+    public static List<CorridorPath> routeAll(List<RoomConfig> rooms) {
+        CorridorRouter router = new CorridorRouter(rooms);
+        List<CorridorPath> paths = new ArrayList<>(Math.max(0, rooms.size() - 1));
+        for (int i = 0; i + 1 < rooms.size(); i++) {
+            paths.add(router.route(i, i + 1));
+        }
+        return paths;
+    }
+    
+    /**
+     * Routes a corridor between two rooms, by their index in the room list
+     *
+     * The corridor becomes an obstacle for every later route.
+     *
+     * @return the path, or null if the rooms cannot be connected
+     */
+    public CorridorPath route(int from, int to) {
+        if (!placed[from] || !placed[to]) {
+            return null;
+        }
+        
+        int y = Math.max(floorY[from], floorY[to]);
+        CorridorPath path = CorridorPath.plan(minX[from], minZ[from], maxX[from], maxZ[from],
+            minX[to], minZ[to], maxX[to], maxZ[to], y);
+        if (path == null || !isClear(path, from, to)) {
+            CorridorPath searched = search(from, to, y);
+            if (searched != null) {
+                path = searched;
+            }
+        }
+        
+        if (path != null) {
+            addObstacle(path);
+        }
+        return path;
+    }
+    
+    /**
+     * Checks if a path stays clear of every room and corridor except the two it connects
+     */
+    private boolean isClear(CorridorPath path, int from, int to) {
+        int half = CorridorPath.HALF_WIDTH;
+        for (int i = 1; i < path.size(); i++) {
+            int x1 = Math.min(path.getX(i - 1), path.getX(i)) - half;
+            int x2 = Math.max(path.getX(i - 1), path.getX(i)) + half;
+            int z1 = Math.min(path.getZ(i - 1), path.getZ(i)) - half;
+            int z2 = Math.max(path.getZ(i - 1), path.getZ(i)) + half;
+            if (roomBoxes.findIntersecting(x1, z1, x2, z2, from, to) >= 0 || corridorBoxes.intersects(x1, z1, x2, z2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void addObstacle(CorridorPath path) {
+        int half = CorridorPath.HALF_WIDTH;
+        int id = corridorCount++;
+        for (int i = 1; i < path.size(); i++) {
+            int x1 = Math.min(path.getX(i - 1), path.getX(i)) - half;
+            int x2 = Math.max(path.getX(i - 1), path.getX(i)) + half;
+            int z1 = Math.min(path.getZ(i - 1), path.getZ(i)) - half;
+            int z2 = Math.max(path.getZ(i - 1), path.getZ(i)) + half;
+            corridorBoxes.add(x1, z1, x2, z2, id);
+            mark(crossed, x1, z1, x2, z2);
+        }
+    }
+    
+    /**
+     * A* over the cell grid from the cells facing one room to the cells facing the other
+     */
+    private CorridorPath search(int from, int to, int y) {
+        allocate();
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            Arrays.fill(goals, 0);
+            stamp = 1;
+        }
+        heapSize = 0;
+        
+        // Target rectangle in cells, for the heuristic
+        int goalMinColumn = cellX(minX[to]);
+        int goalMaxColumn = cellX(maxX[to]);
+        int goalMinRow = cellZ(minZ[to]);
+        int goalMaxRow = cellZ(maxZ[to]);
+        
+        for (int side = 0; side < 4; side++) {
+            seedWall(to, side, true, 0, 0, 0, 0);
+        }
+        for (int side = 0; side < 4; side++) {
+            seedWall(from, side, false, goalMinColumn, goalMinRow, goalMaxColumn, goalMaxRow);
+        }
+        
+        while (heapSize > 0) {
+            int node = (int) pop();
+            if (closed[node] == stamp) {
+                continue;
+            }
+            closed[node] = stamp;
+            
+            int cell = node >>> 2;
+            int direction = node & 3;
+            if (goals[cell] == stamp) {
+                return buildPath(node, from, to, y);
+            }
+            
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int next = 0; next < 4; next++) {
+                if (next == ((direction + 2) & 3)) {
+                    continue;
+                }
+                int nextColumn = column + DX[next];
+                int nextRow = row + DZ[next];
+                if (nextColumn < 0 || nextRow < 0 || nextColumn >= columns || nextRow >= rows) {
+                    continue;
+                }
+                int nextCell = nextRow * columns + nextColumn;
+                if (isBlocked(nextCell)) {
+                    continue;
+                }
+                
+                int cost = costs[node] + CELL_SIZE + (next != direction ? TURN_COST : 0)
+                    + (isSet(crossed, nextCell) ? CROSSING_COST : 0);
+                int nextNode = nextCell << 2 | next;
+                if (closed[nextNode] != stamp && (seen[nextNode] != stamp || cost < costs[nextNode])) {
+                    seen[nextNode] = stamp;
+                    costs[nextNode] = cost;
+                    parents[nextNode] = node;
+                    push(cost + heuristic(nextColumn, nextRow, goalMinColumn, goalMinRow, goalMaxColumn, goalMaxRow),
+                        nextNode);
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Marks the free cells facing one wall of a room as goals, or pushes them as start nodes
+     *
+     * @param side 0 east, 1 south, 2 west, 3 north
+     */
+    private void seedWall(int room, int side, boolean goal, int goalMinColumn, int goalMinRow,
+                          int goalMaxColumn, int goalMaxRow) {
+        int half = CorridorPath.HALF_WIDTH;
+        boolean alongZ = side == 0 || side == 2;
+        
+        // The cell row or column just past the wall, and the range of wall positions a corridor can open
+        int fixed = side == 0 ? cellX(maxX[room]) + 1 : side == 2 ? cellX(minX[room]) - 1
+            : side == 1 ? cellZ(maxZ[room]) + 1 : cellZ(minZ[room]) - 1;
+        int wallLow = (alongZ ? minZ[room] : minX[room]) + 1 + half;
+        int wallHigh = (alongZ ? maxZ[room] : maxX[room]) - 1 - half;
+        int first = alongZ ? cellZ(wallLow) : cellX(wallLow);
+        int last = alongZ ? cellZ(wallHigh) : cellX(wallHigh);
+        
+        for (int moving = first; moving <= last; moving++) {
+            int column = alongZ ? fixed : moving;
+            int row = alongZ ? moving : fixed;
+            if (column < 0 || row < 0 || column >= columns || row >= rows) {
+                continue;
+            }
+            int centerX = originX + column * CELL_SIZE + CELL_CENTER;
+            int centerZ = originZ + row * CELL_SIZE + CELL_CENTER;
+            int along = alongZ ? centerZ : centerX;
+            int cell = row * columns + column;
+            if (along < wallLow || along > wallHigh || isBlocked(cell)) {
+                continue;
+            }
+            
+            // The stub from the wall to the cell center runs through the room's own cell
+            int wallX = side == 0 ? maxX[room] : side == 2 ? minX[room] : centerX;
+            int wallZ = side == 1 ? maxZ[room] : side == 3 ? minZ[room] : centerZ;
+            int x1 = Math.min(wallX, centerX) - half;
+            int z1 = Math.min(wallZ, centerZ) - half;
+            int x2 = Math.max(wallX, centerX) + half;
+            int z2 = Math.max(wallZ, centerZ) + half;
+            if (roomBoxes.findIntersecting(x1, z1, x2, z2, room, room) >= 0) {
+                continue;
+            }
+            
+            if (goal) {
+                goals[cell] = stamp;
+                goalDirections[cell] = (byte) ((side + 2) & 3);
+            } else {
+                int node = cell << 2 | side;
+                int cost = Math.abs(centerX - wallX) + Math.abs(centerZ - wallZ)
+                    + (corridorBoxes.intersects(x1, z1, x2, z2) ? CROSSING_COST : 0);
+                if (seen[node] != stamp || cost < costs[node]) {
+                    seen[node] = stamp;
+                    costs[node] = cost;
+                    parents[node] = -1;
+                    push(cost + heuristic(column, row, goalMinColumn, goalMinRow, goalMaxColumn, goalMaxRow), node);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Walks the parents back to the start and keeps the turns as waypoints
+     */
+    private CorridorPath buildPath(int goalNode, int from, int to, int y) {
+        int length = 0;
+        for (int node = goalNode; node != -1; node = parents[node]) {
+            if (length == cellPath.length) {
+                cellPath = Arrays.copyOf(cellPath, length * 2);
+            }
+            cellPath[length++] = node;
+        }
+        
+        int[] xs = new int[length + 2];
+        int[] zs = new int[length + 2];
+        int count = 0;
+        
+        // Stub out of the first room, along the direction the search started in
+        int startNode = cellPath[length - 1];
+        int startX = centerX(startNode >>> 2);
+        int startZ = centerZ(startNode >>> 2);
+        int side = startNode & 3;
+        xs[count] = side == 0 ? maxX[from] : side == 2 ? minX[from] : startX;
+        zs[count] = side == 1 ? maxZ[from] : side == 3 ? minZ[from] : startZ;
+        count++;
+        
+        for (int i = length - 1; i >= 0; i--) {
+            int cell = cellPath[i] >>> 2;
+            count = addWaypoint(xs, zs, count, centerX(cell), centerZ(cell));
+        }
+        
+        // Stub into the second room
+        int goalCell = goalNode >>> 2;
+        int inward = goalDirections[goalCell];
+        int endX = centerX(goalCell);
+        int endZ = centerZ(goalCell);
+        endX = inward == 2 ? maxX[to] : inward == 0 ? minX[to] : endX;
+        endZ = inward == 3 ? maxZ[to] : inward == 1 ? minZ[to] : endZ;
+        count = addWaypoint(xs, zs, count, endX, endZ);
+        
+        return new CorridorPath(y, Arrays.copyOf(xs, count), Arrays.copyOf(zs, count));
+    }
+    
+    /**
+     * Appends a waypoint, dropping the previous one when it lies on a straight line
+     */
+    private static int addWaypoint(int[] xs, int[] zs, int count, int x, int z) {
+        if (count > 0 && xs[count - 1] == x && zs[count - 1] == z) {
+            return count;
+        }
+        if (count > 1) {
+            boolean straightX = zs[count - 2] == zs[count - 1] && zs[count - 1] == z;
+            boolean straightZ = xs[count - 2] == xs[count - 1] && xs[count - 1] == x;
+            if (straightX || straightZ) {
+                count--;
+            }
+        }
+        xs[count] = x;
+        zs[count] = z;
+        return count + 1;
+    }
+    
+    private int heuristic(int column, int row, int goalMinColumn, int goalMinRow, int goalMaxColumn, int goalMaxRow) {
+        int dx = Math.max(0, Math.max(goalMinColumn - column, column - goalMaxColumn));
+        int dz = Math.max(0, Math.max(goalMinRow - row, row - goalMaxRow));
+        
+        // The goal cells sit just outside the target room, one cell short of its box
+        return Math.max(0, dx + dz - 1) * CELL_SIZE;
+    }
+    
+    private void push(int priority, int node) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long entry = (long) priority << 32 | node;
+        int index = heapSize++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+    
+    private long pop() {
+        long top = heap[0];
+        long entry = heap[--heapSize];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (entry <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = entry;
+        return top & 0xFFFFFFFFL;
+    }
+    
+    private void allocate() {
+        if (costs != null) {
+            return;
+        }
+        int cells = columns * rows;
+        costs = new int[cells * 4];
+        parents = new int[cells * 4];
+        seen = new int[cells * 4];
+        closed = new int[cells * 4];
+        goals = new int[cells];
+        goalDirections = new byte[cells];
+        heap = new long[256];
+        cellPath = new int[64];
+    }
+    
+    /**
+     * Sets the bit of every cell a box touches, bounds inclusive
+     */
+    private void mark(long[] cells, int x1, int z1, int x2, int z2) {
+        int fromColumn = Math.max(0, cellX(x1));
+        int toColumn = Math.min(columns - 1, cellX(x2));
+        int fromRow = Math.max(0, cellZ(z1));
+        int toRow = Math.min(rows - 1, cellZ(z2));
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                int cell = row * columns + column;
+                cells[cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+    
+    private boolean isBlocked(int cell) {
+        return isSet(blocked, cell);
+    }
+    
+    private static boolean isSet(long[] cells, int cell) {
+        return (cells[cell >>> 6] & (1L << cell)) != 0;
+    }
+    
+    private int cellX(int x) {
+        return Math.floorDiv(x - originX, CELL_SIZE);
+    }
+    
+    private int cellZ(int z) {
+        return Math.floorDiv(z - originZ, CELL_SIZE);
+    }
+    
+    private int centerX(int cell) {
+        return originX + (cell % columns) * CELL_SIZE + CELL_CENTER;
+    }
+    
+    private int centerZ(int cell) {
+        return originZ + (cell / columns) * CELL_SIZE + CELL_CENTER;
+    }
+}
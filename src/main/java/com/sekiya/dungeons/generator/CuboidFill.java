@@ -0,0 +1,230 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.util.PackedPosition;
+
+/**
+ * A single region operation: fill an axis-aligned box (bounds inclusive)
+ * 
+ * The box is either solid or hollow (only its six faces), and takes its
+ * material from a {@link MaterialPalette}. With more than one palette entry the
+ * material is drawn per position from a hash of the seed and the coordinates, so a region
+ * always expands to the same blocks no matter in which order or in how many
+ * pieces it is applied.
+ * 
+ * A region can be clipped to a smaller box (see {@link #clip}). The clipped copy
+ * keeps the shape of the original, so a clipped shell still only writes the faces
+ * of the full box, and the bound getters return the clipped bounds.
+ */
+public class CuboidFill {
+    // Shape of the full box, used for shell faces
+    private final int shapeMinX;
+    private final int shapeMinY;
+    private final int shapeMinZ;
+    private final int shapeMaxX;
+    private final int shapeMaxY;
+    private final int shapeMaxZ;
+    
+    // Bounds actually written, equal to the shape unless clipped
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    private final boolean hollow;
+    private final MaterialPalette palette;
+    private final long seed;
+    
+    public CuboidFill(int x1, int y1, int z1, int x2, int y2, int z2, 
+                      boolean hollow, MaterialPalette palette, long seed) {
+        if (palette == null) {
+            throw new IllegalArgumentException("Palette must contain at least one block type");
+        }
+        
+        this.shapeMinX = Math.min(x1, x2);
+        this.shapeMinY = Math.min(y1, y2);
+        this.shapeMinZ = Math.min(z1, z2);
+        this.shapeMaxX = Math.max(x1, x2);
+        this.shapeMaxY = Math.max(y1, y2);
+        this.shapeMaxZ = Math.max(z1, z2);
+        this.minX = shapeMinX;
+        this.minY = shapeMinY;
+        this.minZ = shapeMinZ;
+        this.maxX = shapeMaxX;
+        this.maxY = shapeMaxY;
+        this.maxZ = shapeMaxZ;
+        this.hollow = hollow;
+        this.palette = palette;
+        this.seed = seed;
+    }
+    
+    private CuboidFill(CuboidFill shape, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.shapeMinX = shape.shapeMinX;
+        this.shapeMinY = shape.shapeMinY;
+        this.shapeMinZ = shape.shapeMinZ;
+        this.shapeMaxX = shape.shapeMaxX;
+        this.shapeMaxY = shape.shapeMaxY;
+        this.shapeMaxZ = shape.shapeMaxZ;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.hollow = shape.hollow;
+        this.palette = shape.palette;
+        this.seed = shape.seed;
+    }
+    
+    /**
+     * Creates a solid box of a single block type
+     */
+    public static CuboidFill solid(int x1, int y1, int z1, int x2, int y2, int z2, BlockType type) {
+        return new CuboidFill(x1, y1, z1, x2, y2, z2, false, MaterialPalette.of(type), 0L);
+    }
+    
+    /**
+     * Creates a solid box with materials drawn from a palette
+     */
+    public static CuboidFill palette(int x1, int y1, int z1, int x2, int y2, int z2, 
+                                     MaterialPalette palette, long seed) {
+        return new CuboidFill(x1, y1, z1, x2, y2, z2, false, palette, seed);
+    }
+    
+    /**
+     * Creates a hollow shell (floor, ceiling and four walls) with materials drawn from a palette
+     */
+    public static CuboidFill shell(int x1, int y1, int z1, int x2, int y2, int z2, 
+                                   MaterialPalette palette, long seed) {
+        return new CuboidFill(x1, y1, z1, x2, y2, z2, true, palette, seed);
+    }
+    
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMinZ() { return minZ; }
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+    public int getMaxZ() { return maxZ; }
+    
+    // Bounds of the full shape, differ from the bounds above once clipped
+    public int getShapeMinX() { return shapeMinX; }
+    public int getShapeMinY() { return shapeMinY; }
+    public int getShapeMinZ() { return shapeMinZ; }
+    public int getShapeMaxX() { return shapeMaxX; }
+    public int getShapeMaxY() { return shapeMaxY; }
+    public int getShapeMaxZ() { return shapeMaxZ; }
+    
+    public boolean isHollow() { return hollow; }
+    
+    public MaterialPalette getPalette() { return palette; }
+    
+    public long getSeed() { return seed; }
+    
+    /**
+     * Checks if the operation writes the given coordinate
+     */
+    public boolean contains(int x, int y, int z) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return false;
+        }
+        return !hollow || isOnFace(x, y, z);
+    }
+    
+    /**
+     * Gets the block written at a coordinate covered by this operation
+     */
+    public BlockType blockAt(int x, int y, int z) {
+        if (palette.size() == 1) {
+            return palette.getType(0);
+        }
+        return palette.sample(GenerationStreams.mix64(seed ^ PackedPosition.pack(x, y, z)));
+    }
+    
+    /**
+     * Gets the number of blocks this operation writes
+     */
+    public long getVolume() {
+        long volume = boxVolume(minX, minY, minZ, maxX, maxY, maxZ);
+        
+        if (hollow) {
+            // Remove the part of the shape's interior that lies inside the bounds
+            volume -= boxVolume(
+                Math.max(minX, shapeMinX + 1), Math.max(minY, shapeMinY + 1), Math.max(minZ, shapeMinZ + 1),
+                Math.min(maxX, shapeMaxX - 1), Math.min(maxY, shapeMaxY - 1), Math.min(maxZ, shapeMaxZ - 1));
+        }
+        return volume;
+    }
+    
+    /**
+     * Clips the operation to a box, keeping the original shape
+     * 
+     * @return the clipped operation, or null if it writes nothing inside the box
+     */
+    public CuboidFill clip(int clipMinX, int clipMinY, int clipMinZ, int clipMaxX, int clipMaxY, int clipMaxZ) {
+        int x1 = Math.max(minX, clipMinX);
+        int y1 = Math.max(minY, clipMinY);
+        int z1 = Math.max(minZ, clipMinZ);
+        int x2 = Math.min(maxX, clipMaxX);
+        int y2 = Math.min(maxY, clipMaxY);
+        int z2 = Math.min(maxZ, clipMaxZ);
+        
+        if (x1 > x2 || y1 > y2 || z1 > z2) {
+            return null;
+        }
+        if (x1 == minX && y1 == minY && z1 == minZ && x2 == maxX && y2 == maxY && z2 == maxZ) {
+            return this;
+        }
+        
+        CuboidFill clipped = new CuboidFill(this, x1, y1, z1, x2, y2, z2);
+        return clipped.getVolume() > 0 ? clipped : null;
+    }
+    
+    /**
+     * Expands the operation into individual placements
+     * 
+     * Materials are drawn for a whole column at a time, see {@link MaterialPalette#fillColumn}.
+     */
+    public void expandTo(BlockSink sink) {
+        int[] column = new int[maxY - minY + 1];
+        
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                boolean sideColumn = x == shapeMinX || x == shapeMaxX || z == shapeMinZ || z == shapeMaxZ;
+                
+                if (hollow && !sideColumn) {
+                    // Interior column of a shell, only floor and ceiling
+                    if (minY == shapeMinY) {
+                        sink.place(x, minY, z, blockAt(x, minY, z));
+                    }
+                    if (maxY == shapeMaxY && shapeMaxY != shapeMinY) {
+                        sink.place(x, maxY, z, blockAt(x, maxY, z));
+                    }
+                    continue;
+                }
+                
+                palette.fillColumn(seed, x, minY, z, column, column.length);
+                for (int y = minY; y <= maxY; y++) {
+                    sink.place(x, y, z, palette.getType(column[y - minY]));
+                }
+            }
+        }
+    }
+    
+    private boolean isOnFace(int x, int y, int z) {
+        return x == shapeMinX || x == shapeMaxX || y == shapeMinY || y == shapeMaxY 
+            || z == shapeMinZ || z == shapeMaxZ;
+    }
+    
+    private static long boxVolume(int x1, int y1, int z1, int x2, int y2, int z2) {
+        if (x1 > x2 || y1 > y2 || z1 > z2) {
+            return 0;
+        }
+        return (long) (x2 - x1 + 1) * (y2 - y1 + 1) * (z2 - z1 + 1);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("CuboidFill{min=(%d, %d, %d), max=(%d, %d, %d), hollow=%s, palette=%d}",
+            minX, minY, minZ, maxX, maxY, maxZ, hollow, palette.size());
+    }
+}
@@ -9,46 +9,75 @@ import java.util.*;
  * Procedurally generates dungeon templates
  */
 public class DungeonGenerator {
+    // Layout constants, shared with the GenerationEstimator
+    static final int ROOM_GAP = 5;
+    static final int FLOOR_Y = 60;
+    static final int BOSS_ROOM_WIDTH = 40;
+    static final int BOSS_ROOM_HEIGHT = 25;
+    static final int BOSS_ROOM_LENGTH = 40;
     
     /**
      * Generates a dungeon template based on configuration
      */
     public DungeonTemplate generate(String name, GenerationConfig config) {
-        Random random = config.getSeed() != 0 
-            ? new Random(config.getSeed()) 
+        return generate(name, config, config.getSeed());
+    }
+    
+    /**
+     * Generates a dungeon template with a seed other than the config's, 0 for a random layout
+     */
+    public DungeonTemplate generate(String name, GenerationConfig config, long seed) {
+        Random random = seed != 0 
+            ? new Random(seed) 
             : new Random();
         
         DungeonTemplate template = new DungeonTemplate();
-        template.setName(name);
-        template.setDisplayName(formatName(name));
         
         // Set basic properties based on difficulty
         applyDifficulty(template, config.getDifficulty());
         
-        // Generate rooms
+        // Generate rooms, placed one after another by the layout
         int roomCount = random.nextInt(config.getMaxRooms() - config.getMinRooms() + 1) + config.getMinRooms();
         List<RoomConfig> rooms = new ArrayList<>();
         
-        int xOffset = 0;
+        LayoutStrategy strategy = LayoutStrategy.fromName(config.getLayout());
+        RoomLayout layout = new RoomLayout(strategy != null ? strategy : LayoutStrategy.LINEAR,
+            roomCount + (config.isIncludeBoss() ? 1 : 0), config.getMaxRoomWidth(), config.getMaxRoomLength(),
+            ROOM_GAP, random);
+        
         for (int i = 0; i < roomCount; i++) {
-            RoomConfig room = generateRoom(i + 1, xOffset, random, config);
-            rooms.add(room);
+            int width = random.nextInt(config.getMaxRoomWidth() - config.getMinRoomWidth() + 1) 
+                + config.getMinRoomWidth();
+            int height = random.nextInt(config.getMaxRoomHeight() - config.getMinRoomHeight() + 1) 
+                + config.getMinRoomHeight();
+            int length = random.nextInt(config.getMaxRoomLength() - config.getMinRoomLength() + 1) 
+                + config.getMinRoomLength();
             
-            // Calculate offset for next room
-            Location maxBounds = room.getMaxBounds();
-            if (maxBounds != null) {
-                xOffset = (int) maxBounds.getX() + 5; // 5 block gap between rooms
-            }
+            int index = layout.place(width, length);
+            RoomConfig room = generateRoom(i + 1, layout.getMinX(index), layout.getMinZ(index), 
+                width, height, length, random, config);
+            rooms.add(room);
         }
         
         template.setRooms(rooms);
         
         // Generate boss room if enabled
         if (config.isIncludeBoss()) {
-            BossRoomConfig bossRoom = generateBossRoom(xOffset, random, config);
+            int index = layout.place(BOSS_ROOM_WIDTH, BOSS_ROOM_LENGTH);
+            BossRoomConfig bossRoom = generateBossRoom(layout.getMinX(index), layout.getMinZ(index), random, config);
             template.setBossRoom(bossRoom);
         }
         
+        // Doors fill the opening where the corridor to the next room leaves each room
+        List<CorridorPath> corridors = CorridorRouter.routeAll(WorldGenerator.getStructureRooms(template));
+        for (int i = 0; i < rooms.size() && i < corridors.size(); i++) {
+            CorridorPath corridor = corridors.get(i);
+            if (corridor != null && rooms.get(i).getDoor() != null) {
+                rooms.get(i).getDoor().setLocation(
+                    new Location("dungeon", corridor.getX(0), corridor.getFloorY() + 1, corridor.getZ(0)));
+            }
+        }
+        
         // Generate rewards
         if (config.isRandomLoot()) {
             List<RewardConfig> rewards = generateRewards(random, config);
@@ -57,41 +86,44 @@ public class DungeonGenerator {
         
         // Set placeholder locations (would be set by admin commands)
         template.setPortalLocation(new Location("world", 0, 64, 0));
-        template.setEntryPoint(new Location("dungeon_" + name, 0, 64, 0));
         template.setExitPoint(new Location("world", 0, 64, 5));
-        
-        template.setShardType(name + "_shard");
         template.setShardConsumed(true);
         
+        rename(template, name);
         return template;
     }
     
     /**
-     * Generates a single room
+     * Sets every name-derived property of a generated template
+     * 
+     * Lets a layout generated ahead of time be handed out under its final name.
+     */
+    public void rename(DungeonTemplate template, String name) {
+        template.setName(name);
+        template.setDisplayName(formatName(name));
+        template.setEntryPoint(new Location("dungeon_" + name, 0, 64, 0));
+        template.setShardType(name + "_shard");
+    }
+    
+    /**
+     * Generates a single room with its minimum corner at (x, FLOOR_Y, z)
      */
-    private RoomConfig generateRoom(int order, int xOffset, Random random, GenerationConfig config) {
+    private RoomConfig generateRoom(int order, int x, int z, int width, int height, int length, 
+                                    Random random, GenerationConfig config) {
         RoomConfig room = new RoomConfig();
         room.setId("room_" + order);
         room.setOrder(order);
         
-        // Generate room dimensions
-        int width = random.nextInt(config.getMaxRoomWidth() - config.getMinRoomWidth() + 1) 
-            + config.getMinRoomWidth();
-        int height = random.nextInt(config.getMaxRoomHeight() - config.getMinRoomHeight() + 1) 
-            + config.getMinRoomHeight();
-        int length = random.nextInt(config.getMaxRoomLength() - config.getMinRoomLength() + 1) 
-            + config.getMinRoomLength();
-        
         // Set bounds
         Map<String, Location> bounds = new HashMap<>();
-        bounds.put("min", new Location("dungeon", xOffset, 60, 0));
-        bounds.put("max", new Location("dungeon", xOffset + width, 60 + height, length));
+        bounds.put("min", new Location("dungeon", x, FLOOR_Y, z));
+        bounds.put("max", new Location("dungeon", x + width, FLOOR_Y + height, z + length));
         room.setBounds(bounds);
         
         // Create door
         DoorConfig door = new DoorConfig();
         door.setType("BLOCK_BARRIER");
-        door.setLocation(new Location("dungeon", xOffset + width, 64, length / 2));
+        door.setLocation(new Location("dungeon", x + width, FLOOR_Y + 1, z + length / 2));
         Map<String, Integer> doorSize = new HashMap<>();
         doorSize.put("width", 3);
         doorSize.put("height", 3);
@@ -110,8 +142,8 @@ public class DungeonGenerator {
             enemyCount -= count;
             
             // Random position within room
-            int spawnX = xOffset + random.nextInt(width - 2) + 1;
-            int spawnZ = random.nextInt(length - 2) + 1;
+            int spawnX = x + random.nextInt(width - 2) + 1;
+            int spawnZ = z + random.nextInt(length - 2) + 1;
             
             SpawnPointConfig spawn = new SpawnPointConfig();
             spawn.setId("spawn_" + (i + 1));
@@ -128,26 +160,26 @@ public class DungeonGenerator {
     }
     
     /**
-     * Generates a boss room
+     * Generates a boss room with its minimum corner at (x, FLOOR_Y, z)
      */
-    private BossRoomConfig generateBossRoom(int xOffset, Random random, GenerationConfig config) {
+    private BossRoomConfig generateBossRoom(int x, int z, Random random, GenerationConfig config) {
         BossRoomConfig bossRoom = new BossRoomConfig();
         bossRoom.setId("boss_room");
         
         // Boss rooms are larger
-        int width = 40;
-        int height = 25;
-        int length = 40;
+        int width = BOSS_ROOM_WIDTH;
+        int height = BOSS_ROOM_HEIGHT;
+        int length = BOSS_ROOM_LENGTH;
         
         // Set bounds
         Map<String, Location> bounds = new HashMap<>();
-        bounds.put("min", new Location("dungeon", xOffset, 60, 0));
-        bounds.put("max", new Location("dungeon", xOffset + width, 60 + height, length));
+        bounds.put("min", new Location("dungeon", x, FLOOR_Y, z));
+        bounds.put("max", new Location("dungeon", x + width, FLOOR_Y + height, z + length));
         bossRoom.setBounds(bounds);
         
         // Set boss
         bossRoom.setBossType(config.getBossTypes()[random.nextInt(config.getBossTypes().length)]);
-        bossRoom.setBossSpawnPoint(new Location("dungeon", xOffset + width / 2, 64, length / 2));
+        bossRoom.setBossSpawnPoint(new Location("dungeon", x + width / 2, 64, z + length / 2));
         bossRoom.setSpawnOnEntry(true);
         
         return bossRoom;
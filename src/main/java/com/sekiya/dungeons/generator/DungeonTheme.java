@@ -1,50 +1,65 @@
 package com.sekiya.dungeons.generator;
 
+import java.util.random.RandomGenerator;
+
 /**
  * Themes for dungeon world generation
  */
 public enum DungeonTheme {
-    STONE_CRYPT("Stone Crypt", new BlockType[]{
+    STONE_CRYPT("Stone Crypt", MaterialPalette.uniform(
         BlockType.STONE_BRICKS, BlockType.CRACKED_STONE_BRICKS, BlockType.MOSSY_STONE_BRICKS
-    }),
+    )),
     
-    CAVE("Cave", new BlockType[]{
-        BlockType.STONE, BlockType.COBBLESTONE, BlockType.STONE
-    }),
+    CAVE("Cave", new MaterialPalette(
+        new BlockType[]{BlockType.STONE, BlockType.COBBLESTONE},
+        new int[]{2, 1}
+    )),
     
-    DESERT_TOMB("Desert Tomb", new BlockType[]{
-        BlockType.SANDSTONE, BlockType.SANDSTONE_BRICKS, BlockType.SANDSTONE
-    }),
+    DESERT_TOMB("Desert Tomb", new MaterialPalette(
+        new BlockType[]{BlockType.SANDSTONE, BlockType.SANDSTONE_BRICKS},
+        new int[]{2, 1}
+    )),
     
-    ICE_CAVERN("Ice Cavern", new BlockType[]{
+    ICE_CAVERN("Ice Cavern", MaterialPalette.uniform(
         BlockType.PACKED_ICE, BlockType.ICE, BlockType.STONE_BRICKS
-    }),
+    )),
     
-    NETHER_FORTRESS("Nether Fortress", new BlockType[]{
+    NETHER_FORTRESS("Nether Fortress", MaterialPalette.uniform(
         BlockType.NETHER_BRICKS, BlockType.NETHERRACK, BlockType.OBSIDIAN
-    }),
+    )),
     
-    OCEAN_TEMPLE("Ocean Temple", new BlockType[]{
-        BlockType.DARK_PRISMARINE, BlockType.PRISMARINE_BRICKS, BlockType.DARK_PRISMARINE
-    });
+    OCEAN_TEMPLE("Ocean Temple", new MaterialPalette(
+        new BlockType[]{BlockType.DARK_PRISMARINE, BlockType.PRISMARINE_BRICKS},
+        new int[]{2, 1}
+    ));
     
     private final String displayName;
-    private final BlockType[] wallMaterials;
+    private final MaterialPalette wallPalette;
     
-    DungeonTheme(String displayName, BlockType[] wallMaterials) {
+    DungeonTheme(String displayName, MaterialPalette wallPalette) {
         this.displayName = displayName;
-        this.wallMaterials = wallMaterials;
+        this.wallPalette = wallPalette;
     }
     
     public String getDisplayName() {
         return displayName;
     }
     
+    /**
+     * Gets the weighted palette walls, floors and ceilings are built from
+     */
+    public MaterialPalette getWallPalette() {
+        return wallPalette;
+    }
+    
+    /**
+     * Gets the distinct wall block types of the theme
+     */
     public BlockType[] getWallMaterials() {
-        return wallMaterials;
+        return wallPalette.getTypes();
     }
     
-    public BlockType getRandomWallMaterial(java.util.Random random) {
-        return wallMaterials[random.nextInt(wallMaterials.length)];
+    public BlockType getRandomWallMaterial(RandomGenerator random) {
+        return wallPalette.sample(random);
     }
 }
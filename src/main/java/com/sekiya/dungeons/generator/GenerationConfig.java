@@ -4,6 +4,9 @@ package com.sekiya.dungeons.generator;
  * Configuration for dungeon generation
  */
 public class GenerationConfig {
+    /** Difficulties with a generation preset, from easiest to hardest */
+    public static final String[] DIFFICULTIES = {"EASY", "NORMAL", "HARD", "NIGHTMARE"};
+    
     private int minRooms = 3;
     private int maxRooms = 6;
     private int minEnemiesPerRoom = 2;
@@ -11,6 +14,8 @@ public class GenerationConfig {
     private boolean includeBoss = true;
     private String difficulty = "NORMAL";
     private long seed = 0;
+    private String layout = "LINEAR"; // See LayoutStrategy
+    private boolean deferDecorations = false; // Decorations applied when rooms are reached
     
     // Room size parameters
     private int minRoomWidth = 15;
@@ -39,6 +44,40 @@ public class GenerationConfig {
     
     public GenerationConfig() {}
     
+    /**
+     * Creates a config with the room and enemy counts preset for a difficulty
+     */
+    public static GenerationConfig forDifficulty(String difficulty) {
+        GenerationConfig config = new GenerationConfig();
+        config.setDifficulty(difficulty);
+        
+        switch (difficulty) {
+            case "EASY":
+                config.setMinRooms(2);
+                config.setMaxRooms(4);
+                config.setMinEnemiesPerRoom(2);
+                config.setMaxEnemiesPerRoom(5);
+                break;
+            case "HARD":
+                config.setMinRooms(4);
+                config.setMaxRooms(7);
+                config.setMinEnemiesPerRoom(5);
+                config.setMaxEnemiesPerRoom(10);
+                break;
+            case "NIGHTMARE":
+                config.setMinRooms(5);
+                config.setMaxRooms(8);
+                config.setMinEnemiesPerRoom(7);
+                config.setMaxEnemiesPerRoom(12);
+                break;
+            case "NORMAL":
+            default:
+                // Use defaults
+                break;
+        }
+        return config;
+    }
+    
     public int getMinRooms() { return minRooms; }
     public void setMinRooms(int minRooms) { this.minRooms = minRooms; }
     
@@ -60,6 +99,12 @@ public class GenerationConfig {
     public long getSeed() { return seed; }
     public void setSeed(long seed) { this.seed = seed; }
     
+    public String getLayout() { return layout; }
+    public void setLayout(String layout) { this.layout = layout; }
+    
+    public boolean isDeferDecorations() { return deferDecorations; }
+    public void setDeferDecorations(boolean deferDecorations) { this.deferDecorations = deferDecorations; }
+    
     public int getMinRoomWidth() { return minRoomWidth; }
     public void setMinRoomWidth(int minRoomWidth) { this.minRoomWidth = minRoomWidth; }
     
@@ -0,0 +1,81 @@
+package com.sekiya.dungeons.generator;
+
+/**
+ * Upper bounds for the cost of generating and building a dungeon, see {@link GenerationEstimator}
+ */
+public class GenerationEstimate {
+    private static final double TICKS_PER_SECOND = 20.0;
+    
+    private final int rooms;
+    private final long blocks;
+    private final long operations;
+    private final long sections;
+    private final long memoryBytes;
+    private final long applyTicks;
+    
+    public GenerationEstimate(int rooms, long blocks, long operations, long sections, long memoryBytes,
+                              long applyTicks) {
+        this.rooms = rooms;
+        this.blocks = blocks;
+        this.operations = operations;
+        this.sections = sections;
+        this.memoryBytes = memoryBytes;
+        this.applyTicks = applyTicks;
+    }
+    
+    /**
+     * Gets the number of structures, boss room included
+     */
+    public int getRooms() {
+        return rooms;
+    }
+    
+    /**
+     * Gets the number of blocks written into the world
+     */
+    public long getBlocks() {
+        return blocks;
+    }
+    
+    /**
+     * Gets the number of buffer entries (placements and region operations) before sorting
+     */
+    public long getOperations() {
+        return operations;
+    }
+    
+    /**
+     * Gets the number of chunk sections the dungeon touches
+     */
+    public long getSections() {
+        return sections;
+    }
+    
+    /**
+     * Gets the peak heap needed to generate the dungeon and write its schematic
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+    
+    public long getMemoryMB() {
+        return (memoryBytes + (1 << 20) - 1) >> 20;
+    }
+    
+    /**
+     * Gets the number of server ticks the block applier needs at its block budget
+     */
+    public long getApplyTicks() {
+        return applyTicks;
+    }
+    
+    public double getApplySeconds() {
+        return applyTicks / TICKS_PER_SECOND;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("GenerationEstimate{rooms=%d, blocks=%d, operations=%d, sections=%d, memory=%dMB, apply=%.1fs}",
+            rooms, blocks, operations, sections, getMemoryMB(), getApplySeconds());
+    }
+}
@@ -0,0 +1,125 @@
+package com.sekiya.dungeons.generator;
+
+/**
+ * Predicts the cost of a generated dungeon from its GenerationConfig, without generating it
+ *
+ * Every room is assumed to be as large as the config allows and the room count
+ * is the maximum, so the estimate is an upper bound of what
+ * {@link DungeonGenerator} and {@link WorldGenerator} can produce.
+ */
+public class GenerationEstimator {
+    // Corridor cross-section from WorldGenerator: 3 wide, floor to ceiling 5 high
+    private static final int CORRIDOR_WIDTH = 3;
+    private static final int CORRIDOR_HEIGHT = 5;
+    // Floor, ceiling, two walls and the interior per segment, and at most two segments per corridor
+    private static final int SEGMENT_OPERATIONS = 5;
+    private static final int CORRIDOR_SEGMENTS = 2;
+    
+    // Torch spacing and the most cobwebs and pillars WorldGenerator places in one room
+    private static final int TORCH_SPACING = 5;
+    private static final int MAX_COBWEBS = 6;
+    private static final int PILLARS = 4;
+    
+    // Heap per chunk section: the schematic writer's dense cells plus the section's buffer
+    private static final long SECTION_BYTES = 2L * 4096 + 1024;
+    // Heap per buffer entry: packed columns plus the region object, in the generation and compacted buffers
+    private static final long OPERATION_BYTES = 2 * (8 + 1 + 2 + 64);
+    
+    /**
+     * Estimates a dungeon generated from the config
+     *
+     * @param maxBlocksPerTick the block applier's budget per tick, used for the apply time
+     */
+    public GenerationEstimate estimate(GenerationConfig config, int maxBlocksPerTick) {
+        int rooms = Math.max(0, config.getMaxRooms());
+        int width = Math.max(0, config.getMaxRoomWidth());
+        int height = Math.max(0, config.getMaxRoomHeight());
+        int length = Math.max(0, config.getMaxRoomLength());
+        
+        // Deferred decorations are written room by room during runs, not by the build
+        boolean decorations = !config.isDeferDecorations();
+        long blocks = rooms * roomBlocks(width, height, length, decorations);
+        long operations = rooms * roomOperations(width, decorations);
+        int structures = rooms;
+        
+        LayoutStrategy layout = LayoutStrategy.fromName(config.getLayout());
+        boolean linear = layout == null || layout == LayoutStrategy.LINEAR;
+        
+        // Rooms are laid out along X, separated by corridors
+        long extentX = rooms * (long) (width + 1 + DungeonGenerator.ROOM_GAP);
+        int extentY = rooms > 0 ? height : 0;
+        long extentZ = rooms > 0 ? length : 0;
+        
+        if (config.isIncludeBoss()) {
+            blocks += roomBlocks(DungeonGenerator.BOSS_ROOM_WIDTH, DungeonGenerator.BOSS_ROOM_HEIGHT,
+                DungeonGenerator.BOSS_ROOM_LENGTH, decorations);
+            operations += roomOperations(DungeonGenerator.BOSS_ROOM_WIDTH, decorations);
+            structures++;
+            
+            extentX += DungeonGenerator.BOSS_ROOM_WIDTH + 1;
+            extentY = Math.max(extentY, DungeonGenerator.BOSS_ROOM_HEIGHT);
+            extentZ = Math.max(extentZ, DungeonGenerator.BOSS_ROOM_LENGTH);
+        }
+        
+        long corridorLength = DungeonGenerator.ROOM_GAP + 1;
+        if (!linear && structures > 0) {
+            // Other layouts spread the rooms over a square of cells, with slack for BSP and
+            // random placement, and a corridor may run the width and length of a cell
+            int cellWidth = Math.max(width, config.isIncludeBoss() ? DungeonGenerator.BOSS_ROOM_WIDTH : 0)
+                + 1 + DungeonGenerator.ROOM_GAP;
+            int cellLength = Math.max(length, config.isIncludeBoss() ? DungeonGenerator.BOSS_ROOM_LENGTH : 0)
+                + 1 + DungeonGenerator.ROOM_GAP;
+            long cells = layout == LayoutStrategy.GRID ? structures : (long) Math.ceil(structures * 1.5);
+            long side = (long) Math.ceil(Math.sqrt(cells));
+            extentX = side * cellWidth;
+            extentZ = side * cellLength;
+            corridorLength = cellWidth + cellLength;
+        }
+        
+        if (structures > 1) {
+            long corridors = structures - 1;
+            blocks += corridors * corridorLength * CORRIDOR_WIDTH * CORRIDOR_HEIGHT;
+            operations += corridors * (linear ? 1 : CORRIDOR_SEGMENTS) * SEGMENT_OPERATIONS;
+        }
+        
+        long sections = 0;
+        if (structures > 0) {
+            // Bounding box in sections, one extra along each axis for misaligned edges
+            long sectionsX = extentX / BlockSection.SIZE + 2;
+            long sectionsY = (DungeonGenerator.FLOOR_Y + extentY) / BlockSection.SIZE
+                - DungeonGenerator.FLOOR_Y / BlockSection.SIZE + 1;
+            long sectionsZ = extentZ / BlockSection.SIZE + 1;
+            sections = sectionsX * sectionsY * sectionsZ;
+        }
+        
+        long memoryBytes = sections * SECTION_BYTES + operations * OPERATION_BYTES;
+        long applyTicks = (blocks + Math.max(1, maxBlocksPerTick) - 1) / Math.max(1, maxBlocksPerTick);
+        
+        return new GenerationEstimate(structures, blocks, operations, sections, memoryBytes, applyTicks);
+    }
+    
+    /**
+     * Blocks written by one room: its box, then pillars, torches and cobwebs if decorated
+     */
+    private long roomBlocks(int width, int height, int length, boolean decorations) {
+        long blocks = (width + 1L) * (height + 1L) * (length + 1L);
+        if (!decorations) {
+            return blocks;
+        }
+        if (width > 15 && length > 15) {
+            blocks += PILLARS * (long) Math.max(0, height - 2);
+        }
+        return blocks + torches(width) + MAX_COBWEBS;
+    }
+    
+    /**
+     * Buffer entries of one room: shell, interior, then pillars, torches and cobwebs if decorated
+     */
+    private long roomOperations(int width, boolean decorations) {
+        return decorations ? 2 + PILLARS + torches(width) + MAX_COBWEBS : 2;
+    }
+    
+    private long torches(int width) {
+        return 2L * (width / TORCH_SPACING + 1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sekiya.dungeons.generator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic random streams for world generation
+ * 
+ * Every room and corridor gets its own SplittableRandom derived only from the
+ * master seed, the stream kind and the index. A stream never depends on how
+ * many other streams were drawn before it, so rooms can be generated in any
+ * order (or in parallel) and still produce the same blocks for a given seed.
+ */
+public class GenerationStreams {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long ROOM_SALT = 0x52_4F_4F_4DL;       // "ROOM"
+    private static final long CORRIDOR_SALT = 0x43_4F_52_52L;   // "CORR"
+    private static final long DECORATION_SALT = 0x44_45_43_4FL; // "DECO"
+    
+    private final long seed;
+    
+    public GenerationStreams(long seed) {
+        this.seed = seed;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * Gets the random stream for the room at the given index
+     */
+    public SplittableRandom forRoom(int index) {
+        return new SplittableRandom(deriveSeed(ROOM_SALT, index));
+    }
+    
+    /**
+     * Gets the random stream for the corridor leaving the room at the given index
+     */
+    public SplittableRandom forCorridor(int index) {
+        return new SplittableRandom(deriveSeed(CORRIDOR_SALT, index));
+    }
+    
+    /**
+     * Gets the random stream for the decorations of the room at the given index
+     */
+    public SplittableRandom forDecorations(int index) {
+        return new SplittableRandom(deriveSeed(DECORATION_SALT, index));
+    }
+    
+    private long deriveSeed(long salt, int index) {
+        return mix64(seed ^ mix64(salt + GOLDEN_GAMMA * (index + 1L)));
+    }
+    
+    /**
+     * Stafford variant 13 finalizer, the same mixer SplittableRandom uses
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,35 @@
+package com.sekiya.dungeons.generator;
+
+/**
+ * How {@link RoomLayout} arranges the rooms of a generated dungeon on the floor plane
+ */
+public enum LayoutStrategy {
+    /** One row along X, every room right after the previous one */
+    LINEAR,
+    
+    /** A grid of equal cells walked row by row in a snake, so consecutive rooms are neighbours */
+    GRID,
+    
+    /** Binary space partition of the floor area, one room per leaf */
+    BSP,
+    
+    /** Random positions around the previous room, rejected while they collide */
+    RANDOM;
+    
+    /**
+     * Gets a strategy by name, ignoring case
+     *
+     * @return the strategy, or null if there is none with that name
+     */
+    public static LayoutStrategy fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (LayoutStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+}
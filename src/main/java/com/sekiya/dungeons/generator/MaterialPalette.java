@@ -0,0 +1,220 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.util.PackedPosition;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Weighted set of block types, sampled in constant time through a Walker alias table
+ *
+ * A sample takes one 64-bit value (from a RandomGenerator or a position hash): the
+ * high 32 bits pick a column, the low 32 bits decide between the column's own
+ * type and its alias. The table is built once, so palettes are shared freely.
+ */
+public class MaterialPalette {
+    private static final long ALWAYS = 1L << 32;
+    private static final MaterialPalette[] SINGLES = new MaterialPalette[BlockType.values().length];
+    
+    private final BlockType[] types;
+    private final int[] weights;
+    
+    // Alias table: column i keeps its own type when the coin is below threshold[i]
+    private final long[] thresholds;
+    private final int[] aliases;
+    
+    public MaterialPalette(BlockType[] types, int[] weights) {
+        if (types == null || types.length == 0) {
+            throw new IllegalArgumentException("Palette must contain at least one block type");
+        }
+        if (weights == null || weights.length != types.length) {
+            throw new IllegalArgumentException("Palette needs one weight per block type");
+        }
+        
+        long total = 0;
+        for (int weight : weights) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Palette weights must be positive");
+            }
+            total += weight;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Palette weights must add up to at most " + Integer.MAX_VALUE);
+        }
+        
+        this.types = types.clone();
+        this.weights = weights.clone();
+        this.thresholds = new long[types.length];
+        this.aliases = new int[types.length];
+        buildAliasTable(total);
+    }
+    
+    /**
+     * Gets the palette of a single block type
+     */
+    public static MaterialPalette of(BlockType type) {
+        MaterialPalette palette = SINGLES[type.ordinal()];
+        if (palette == null) {
+            palette = new MaterialPalette(new BlockType[]{type}, new int[]{1});
+            SINGLES[type.ordinal()] = palette;
+        }
+        return palette;
+    }
+    
+    /**
+     * Creates a palette with every block type equally likely
+     */
+    public static MaterialPalette uniform(BlockType... types) {
+        int[] weights = new int[types.length];
+        Arrays.fill(weights, 1);
+        return new MaterialPalette(types, weights);
+    }
+    
+    /**
+     * Gets the palette index for a 64-bit random or hash value
+     */
+    public int sampleIndex(long bits) {
+        if (types.length == 1) {
+            return 0;
+        }
+        int column = (int) (((bits >>> 32) * types.length) >>> 32);
+        return (bits & 0xFFFFFFFFL) < thresholds[column] ? column : aliases[column];
+    }
+    
+    /**
+     * Gets the block type for a 64-bit random or hash value
+     */
+    public BlockType sample(long bits) {
+        return types[sampleIndex(bits)];
+    }
+    
+    /**
+     * Draws a block type from a random generator
+     */
+    public BlockType sample(RandomGenerator random) {
+        return types[sampleIndex(random.nextLong())];
+    }
+    
+    /**
+     * Draws count palette indices from a random generator into out, starting at offset
+     */
+    public void fillIndices(RandomGenerator random, int[] out, int offset, int count) {
+        if (types.length == 1) {
+            Arrays.fill(out, offset, offset + count, 0);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            out[offset + i] = sampleIndex(random.nextLong());
+        }
+    }
+    
+    /**
+     * Fills out with the palette indices of a vertical run of positions, hashed with a seed
+     *
+     * Index i belongs to (x, minY + i, z), the same value {@link CuboidFill#blockAt} picks there.
+     */
+    public void fillColumn(long seed, int x, int minY, int z, int[] out, int count) {
+        if (types.length == 1) {
+            Arrays.fill(out, 0, count, 0);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            out[i] = sampleIndex(GenerationStreams.mix64(seed ^ PackedPosition.pack(x, minY + i, z)));
+        }
+    }
+    
+    public BlockType getType(int index) {
+        return types[index];
+    }
+    
+    public int getWeight(int index) {
+        return weights[index];
+    }
+    
+    public int size() {
+        return types.length;
+    }
+    
+    /**
+     * Gets the coin threshold of an alias table column, scaled to 2^32
+     */
+    long getThreshold(int column) {
+        return thresholds[column];
+    }
+    
+    /**
+     * Gets the palette index a column falls back to when the coin is above its threshold
+     */
+    int getAlias(int column) {
+        return aliases[column];
+    }
+    
+    /**
+     * Gets the block types of the palette, in index order
+     */
+    public BlockType[] getTypes() {
+        return types.clone();
+    }
+    
+    /**
+     * Vose's alias method on integer weights, thresholds scaled to 2^32
+     */
+    private void buildAliasTable(long total) {
+        int n = types.length;
+        
+        // Weight of each column in units where the mean column holds exactly total
+        long[] scaled = new long[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (long) weights[i] * n;
+            if (scaled[i] < total) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            
+            thresholds[less] = (scaled[less] << 32) / total;
+            aliases[less] = more;
+            
+            scaled[more] -= total - scaled[less];
+            if (scaled[more] < total) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        
+        // Columns left over are full
+        while (largeCount > 0) {
+            int column = large[--largeCount];
+            thresholds[column] = ALWAYS;
+            aliases[column] = column;
+        }
+        while (smallCount > 0) {
+            int column = small[--smallCount];
+            thresholds[column] = ALWAYS;
+            aliases[column] = column;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MaterialPalette{");
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(types[i]).append('x').append(weights[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
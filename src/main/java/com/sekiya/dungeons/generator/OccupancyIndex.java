@@ -0,0 +1,204 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.util.LongIntHashMap;
+import com.sekiya.dungeons.util.PackedPosition;
+
+import java.util.Arrays;
+
+/**
+ * Sparse bitset of the blocks that belong to a dungeon, one bit per block
+ *
+ * Blocks are grouped in 16x16x16 chunk sections of 64 longs, allocated only for
+ * sections that hold at least one marked block, so memory stays at about one bit
+ * per block of the dungeon's sections. A lookup is one hash probe and one bit test.
+ *
+ * Bits use the section cell layout y << 8 | z << 4 | x, so the 16 blocks of a row
+ * along X share one word and boxes are marked and tested a row at a time.
+ *
+ * As a {@link BlockSink} it marks every placement and the whole box of every
+ * region (the space a shell encloses belongs to the dungeon too). Not thread-safe
+ * while being built; once built it can be read from any thread.
+ */
+public class OccupancyIndex implements BlockSink {
+    private static final int WORDS_PER_SECTION = BlockSection.SIZE * BlockSection.SIZE * BlockSection.SIZE / 64;
+    private static final long ROW_MASK = (1L << BlockSection.SIZE) - 1;
+    
+    private final LongIntHashMap sectionSlots;
+    private long[] words;
+    private int sectionCount;
+    
+    public OccupancyIndex() {
+        this(16);
+    }
+    
+    public OccupancyIndex(int expectedSections) {
+        this.sectionSlots = new LongIntHashMap(expectedSections, -1);
+        this.words = new long[Math.max(1, expectedSections) * WORDS_PER_SECTION];
+    }
+    
+    /**
+     * Checks if a block is marked
+     */
+    public boolean contains(int x, int y, int z) {
+        int slot = sectionSlots.get(sectionKey(x >> 4, y >> 4, z >> 4));
+        if (slot < 0) {
+            return false;
+        }
+        int cell = cell(x, y, z);
+        return (words[slot * WORDS_PER_SECTION + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+    
+    /**
+     * Marks a single block
+     */
+    public void mark(int x, int y, int z) {
+        // Allocate first, the words array may grow
+        int base = slotFor(x >> 4, y >> 4, z >> 4) * WORDS_PER_SECTION;
+        int cell = cell(x, y, z);
+        words[base + (cell >>> 6)] |= 1L << cell;
+    }
+    
+    /**
+     * Marks every block of a box, bounds inclusive in any order
+     */
+    public void markBox(int x1, int y1, int z1, int x2, int y2, int z2) {
+        int minX = Math.min(x1, x2);
+        int minY = Math.min(y1, y2);
+        int minZ = Math.min(z1, z2);
+        int maxX = Math.max(x1, x2);
+        int maxY = Math.max(y1, y2);
+        int maxZ = Math.max(z1, z2);
+        
+        for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+            for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+                for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+                    int base = slotFor(sx, sy, sz) * WORDS_PER_SECTION;
+                    long row = rowMask(sx, minX, maxX);
+                    int y2s = Math.min(maxY, (sy << 4) + 15);
+                    int z2s = Math.min(maxZ, (sz << 4) + 15);
+                    for (int y = Math.max(minY, sy << 4); y <= y2s; y++) {
+                        for (int z = Math.max(minZ, sz << 4); z <= z2s; z++) {
+                            int cell = cell(0, y, z);
+                            words[base + (cell >>> 6)] |= row << (cell & 63);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Checks if any block of a box is marked, bounds inclusive in any order
+     */
+    public boolean intersects(int x1, int y1, int z1, int x2, int y2, int z2) {
+        int minX = Math.min(x1, x2);
+        int minY = Math.min(y1, y2);
+        int minZ = Math.min(z1, z2);
+        int maxX = Math.max(x1, x2);
+        int maxY = Math.max(y1, y2);
+        int maxZ = Math.max(z1, z2);
+        
+        for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+            for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+                for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+                    int slot = sectionSlots.get(sectionKey(sx, sy, sz));
+                    if (slot < 0) {
+                        continue;
+                    }
+                    int base = slot * WORDS_PER_SECTION;
+                    long row = rowMask(sx, minX, maxX);
+                    int y2s = Math.min(maxY, (sy << 4) + 15);
+                    int z2s = Math.min(maxZ, (sz << 4) + 15);
+                    for (int y = Math.max(minY, sy << 4); y <= y2s; y++) {
+                        for (int z = Math.max(minZ, sz << 4); z <= z2s; z++) {
+                            int cell = cell(0, y, z);
+                            if ((words[base + (cell >>> 6)] & (row << (cell & 63))) != 0) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks if a chunk section holds any marked block
+     */
+    public boolean containsSection(int sectionX, int sectionY, int sectionZ) {
+        return sectionSlots.containsKey(sectionKey(sectionX, sectionY, sectionZ));
+    }
+    
+    @Override
+    public void place(int x, int y, int z, BlockType type, String metadata) {
+        mark(x, y, z);
+    }
+    
+    @Override
+    public void fill(CuboidFill region) {
+        markBox(region.getMinX(), region.getMinY(), region.getMinZ(),
+            region.getMaxX(), region.getMaxY(), region.getMaxZ());
+    }
+    
+    /**
+     * Gets the number of marked blocks
+     */
+    public long getBlockCount() {
+        long count = 0;
+        for (int i = 0; i < sectionCount * WORDS_PER_SECTION; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+    
+    public int getSectionCount() {
+        return sectionCount;
+    }
+    
+    public boolean isEmpty() {
+        return sectionCount == 0;
+    }
+    
+    /**
+     * Gets the heap held by the bitsets, excluding the section lookup table
+     */
+    public long getMemoryBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+    
+    /**
+     * Gets the slot of a section, allocating its bitset if needed
+     */
+    private int slotFor(int sectionX, int sectionY, int sectionZ) {
+        long key = sectionKey(sectionX, sectionY, sectionZ);
+        int slot = sectionSlots.get(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        
+        slot = sectionCount++;
+        if ((long) sectionCount * WORDS_PER_SECTION > words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        sectionSlots.put(key, slot);
+        return slot;
+    }
+    
+    /**
+     * Gets the bits of the X range covered in one section, starting at bit 0
+     */
+    private static long rowMask(int sectionX, int minX, int maxX) {
+        int from = Math.max(minX, sectionX << 4) & 15;
+        int to = Math.min(maxX, (sectionX << 4) + 15) & 15;
+        return (ROW_MASK >>> (15 - to + from)) << from;
+    }
+    
+    private static int cell(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+    
+    private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        return PackedPosition.pack(sectionX, sectionY, sectionZ);
+    }
+}
@@ -0,0 +1,332 @@
+package com.sekiya.dungeons.generator;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Places the rooms of a generated dungeon on the floor plane, one room at a time
+ *
+ * Rooms are placed in the order they are connected: every room gets a corridor
+ * to the one placed before it. Each strategy (see {@link LayoutStrategy}) proposes
+ * a position and the placed boxes, grown by the spacing, go into a
+ * {@link BoxIntervalTree} so a proposal is checked against the rooms near it only.
+ * A room that does not fit where its strategy wants it, such as a boss room larger
+ * than a grid cell, goes to a free side of the previous room.
+ *
+ * Corridors go into the tree too, so a later room is never placed across the
+ * corridor of two earlier ones.
+ *
+ * Positions are the minimum X and Z of a room whose box spans width + 1 by
+ * length + 1 blocks, as in {@link DungeonGenerator}.
+ */
+public class RoomLayout {
+    // Proposals tried around the previous room before the random window grows
+    private static final int RANDOM_ATTEMPTS = 32;
+    private static final int MAX_WINDOW_GROWTH = 6;
+    
+    // Tree ids of corridors, offset by the index of the room the corridor enters
+    private static final int CORRIDOR_IDS = 1 << 30;
+    
+    // BSP partitions a grid with this much more cells than rooms, leaving room to vary
+    private static final double BSP_SLACK = 1.5;
+    
+    private final LayoutStrategy strategy;
+    private final int spacing;
+    private final RandomGenerator random;
+    private final BoxIntervalTree boxes;
+    
+    // Cell of the largest room plus the spacing, used by the grid and BSP strategies
+    private final int cellWidth;
+    private final int cellLength;
+    private final int columns;
+    
+    // BSP leaves in placement order, in cells: x, z, width, length
+    private int[] leaves;
+    
+    private int[] minX;
+    private int[] minZ;
+    private int[] maxX;
+    private int[] maxZ;
+    private int count;
+    private int layoutMaxX;
+    
+    /**
+     * @param roomCount number of rooms that will be placed, including a boss room
+     * @param maxWidth largest room width the strategy plans cells for
+     * @param maxLength largest room length the strategy plans cells for
+     * @param spacing smallest distance between the walls of two rooms
+     */
+    public RoomLayout(LayoutStrategy strategy, int roomCount, int maxWidth, int maxLength, int spacing,
+                      RandomGenerator random) {
+        this.strategy = strategy;
+        this.spacing = spacing;
+        this.random = random;
+        this.boxes = new BoxIntervalTree(roomCount);
+        this.cellWidth = maxWidth + 1 + spacing;
+        this.cellLength = maxLength + 1 + spacing;
+        this.columns = Math.max(1, (int) Math.ceil(Math.sqrt(roomCount)));
+        
+        int capacity = Math.max(1, roomCount);
+        this.minX = new int[capacity];
+        this.minZ = new int[capacity];
+        this.maxX = new int[capacity];
+        this.maxZ = new int[capacity];
+        this.layoutMaxX = Integer.MIN_VALUE;
+        
+        if (strategy == LayoutStrategy.BSP) {
+            partition(roomCount);
+        }
+    }
+    
+    /**
+     * Places the next room
+     *
+     * @return the index of the room, for {@link #getMinX(int)} and {@link #getMinZ(int)}
+     */
+    public int place(int width, int length) {
+        long position;
+        switch (strategy) {
+            case GRID:
+            case BSP:
+                position = proposeInCell(width, length);
+                break;
+            case RANDOM:
+                position = proposeRandom(width, length);
+                break;
+            case LINEAR:
+            default:
+                position = proposeLinear();
+                if (!fits((int) (position >> 32), (int) position, width, length)) {
+                    position = placeNextToPrevious(width, length);
+                }
+                break;
+        }
+        return add((int) (position >> 32), (int) position, width, length);
+    }
+    
+    public int getMinX(int index) {
+        return minX[index];
+    }
+    
+    public int getMinZ(int index) {
+        return minZ[index];
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * Checks if a room box, grown by the spacing, is clear of every placed room
+     */
+    public boolean fits(int x, int z, int width, int length) {
+        int margin = spacing - 1;
+        return !boxes.intersects(x - margin, z - margin, x + width + margin, z + length + margin);
+    }
+    
+    /**
+     * Checks if a room at the given position could be reached from the previous room
+     * without the corridor running through another room
+     */
+    boolean corridorClear(int x, int z, int width, int length) {
+        if (count == 0) {
+            return true;
+        }
+        int previous = count - 1;
+        CorridorPath path = CorridorPath.plan(minX[previous], minZ[previous], maxX[previous], maxZ[previous],
+            x, z, x + width, z + length, 0);
+        if (path == null) {
+            return false;
+        }
+        
+        // The new room is not in the tree yet, so only the previous room needs ignoring. Crossing
+        // another corridor counts as blocked too, the walls of one would close the other
+        int half = CorridorPath.HALF_WIDTH;
+        for (int i = 1; i < path.size(); i++) {
+            int x1 = Math.min(path.getX(i - 1), path.getX(i)) - half;
+            int x2 = Math.max(path.getX(i - 1), path.getX(i)) + half;
+            int z1 = Math.min(path.getZ(i - 1), path.getZ(i)) - half;
+            int z2 = Math.max(path.getZ(i - 1), path.getZ(i)) + half;
+            if (boxes.findIntersecting(x1, z1, x2, z2, previous, previous) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private long proposeLinear() {
+        int x = count > 0 ? maxX[count - 1] + spacing : 0;
+        return pack(x, 0);
+    }
+    
+    /**
+     * Proposes positions in the room's grid cell or BSP leaf until one is clear
+     */
+    private long proposeInCell(int width, int length) {
+        for (int attempt = 0; attempt < RANDOM_ATTEMPTS; attempt++) {
+            long position = strategy == LayoutStrategy.GRID ? proposeGrid(width, length) : proposeBsp(width, length);
+            int x = (int) (position >> 32);
+            int z = (int) position;
+            if (fits(x, z, width, length) && corridorClear(x, z, width, length)) {
+                return position;
+            }
+        }
+        return placeNextToPrevious(width, length);
+    }
+    
+    private long proposeGrid(int width, int length) {
+        // Snake through the rows, so the last room of a row connects down to the next row
+        int row = count / columns;
+        int column = count % columns;
+        if ((row & 1) == 1) {
+            column = columns - 1 - column;
+        }
+        
+        int x = column * cellWidth + jitter(cellWidth - spacing - 1 - width);
+        int z = row * cellLength + jitter(cellLength - spacing - 1 - length);
+        return pack(x, z);
+    }
+    
+    private long proposeBsp(int width, int length) {
+        if (leaves == null || count * 4 >= leaves.length) {
+            return placeNextToPrevious(width, length);
+        }
+        
+        int leaf = count * 4;
+        int areaWidth = leaves[leaf + 2] * cellWidth - spacing - 1;
+        int areaLength = leaves[leaf + 3] * cellLength - spacing - 1;
+        int x = leaves[leaf] * cellWidth + jitter(areaWidth - width);
+        int z = leaves[leaf + 1] * cellLength + jitter(areaLength - length);
+        return pack(x, z);
+    }
+    
+    private long proposeRandom(int width, int length) {
+        if (count == 0) {
+            return pack(0, 0);
+        }
+        
+        // Sample a window around the previous room, widening it while everything collides
+        int previous = count - 1;
+        int reach = Math.max(width, length) + spacing + 1;
+        for (int growth = 0; growth < MAX_WINDOW_GROWTH; growth++) {
+            int window = reach << growth;
+            int fromX = minX[previous] - window - width;
+            int fromZ = minZ[previous] - window - length;
+            int spanX = maxX[previous] - minX[previous] + 2 * window + width;
+            int spanZ = maxZ[previous] - minZ[previous] + 2 * window + length;
+            
+            for (int attempt = 0; attempt < RANDOM_ATTEMPTS; attempt++) {
+                int x = fromX + random.nextInt(spanX + 1);
+                int z = fromZ + random.nextInt(spanZ + 1);
+                if (fits(x, z, width, length) && corridorClear(x, z, width, length)) {
+                    return pack(x, z);
+                }
+            }
+        }
+        return placeNextToPrevious(width, length);
+    }
+    
+    /**
+     * Finds a free position on one of the sides of the previous room, or past the
+     * east edge of the layout if all four are taken
+     */
+    private long placeNextToPrevious(int width, int length) {
+        if (count == 0) {
+            return pack(0, 0);
+        }
+        
+        int previous = count - 1;
+        int[] xs = {maxX[previous] + spacing, minX[previous], minX[previous] - spacing - width, minX[previous]};
+        int[] zs = {minZ[previous], maxZ[previous] + spacing, minZ[previous], minZ[previous] - spacing - length};
+        for (int side = 0; side < xs.length; side++) {
+            if (fits(xs[side], zs[side], width, length) && corridorClear(xs[side], zs[side], width, length)) {
+                return pack(xs[side], zs[side]);
+            }
+        }
+        return pack(layoutMaxX + spacing, minZ[previous]);
+    }
+    
+    /**
+     * Splits a grid of cells into one leaf per room, leaves in depth-first order
+     */
+    private void partition(int roomCount) {
+        int cells = Math.max(1, (int) Math.ceil(roomCount * BSP_SLACK));
+        int gridColumns = Math.max(1, (int) Math.ceil(Math.sqrt(cells)));
+        int gridRows = (cells + gridColumns - 1) / gridColumns;
+        
+        leaves = new int[Math.max(1, roomCount) * 4];
+        int[] written = new int[1];
+        split(0, 0, gridColumns, gridRows, Math.max(1, roomCount), written);
+    }
+    
+    private void split(int x, int z, int width, int length, int rooms, int[] written) {
+        if (rooms == 1) {
+            int leaf = written[0]++ * 4;
+            leaves[leaf] = x;
+            leaves[leaf + 1] = z;
+            leaves[leaf + 2] = width;
+            leaves[leaf + 3] = length;
+            return;
+        }
+        
+        // Cut the longer side anywhere, then share the rooms in proportion to the cell counts.
+        // Rooms never outnumber cells, so every cut leaves both halves at least one room
+        boolean alongX = width >= length;
+        int side = alongX ? width : length;
+        int across = alongX ? length : width;
+        
+        int cut = 1 + random.nextInt(side - 1);
+        int low = Math.max(1, rooms - (side - cut) * across);
+        int high = Math.min(rooms - 1, cut * across);
+        int first = Math.max(low, Math.min(high, (int) Math.round(rooms * (double) cut / side)));
+        
+        if (alongX) {
+            split(x, z, cut, length, first, written);
+            split(x + cut, z, width - cut, length, rooms - first, written);
+        } else {
+            split(x, z, width, cut, first, written);
+            split(x, z + cut, width, length - cut, rooms - first, written);
+        }
+    }
+    
+    private int add(int x, int z, int width, int length) {
+        if (count == minX.length) {
+            int capacity = count * 2;
+            minX = Arrays.copyOf(minX, capacity);
+            minZ = Arrays.copyOf(minZ, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+            maxZ = Arrays.copyOf(maxZ, capacity);
+        }
+        
+        int index = count++;
+        minX[index] = x;
+        minZ[index] = z;
+        maxX[index] = x + width;
+        maxZ[index] = z + length;
+        layoutMaxX = Math.max(layoutMaxX, x + width);
+        boxes.add(x, z, x + width, z + length, index);
+        
+        if (index > 0) {
+            CorridorPath path = CorridorPath.plan(minX[index - 1], minZ[index - 1], maxX[index - 1], maxZ[index - 1],
+                x, z, x + width, z + length, 0);
+            if (path != null) {
+                int half = CorridorPath.HALF_WIDTH;
+                for (int i = 1; i < path.size(); i++) {
+                    boxes.add(Math.min(path.getX(i - 1), path.getX(i)) - half, 
+                        Math.min(path.getZ(i - 1), path.getZ(i)) - half,
+                        Math.max(path.getX(i - 1), path.getX(i)) + half, 
+                        Math.max(path.getZ(i - 1), path.getZ(i)) + half, CORRIDOR_IDS + index);
+                }
+            }
+        }
+        return index;
+    }
+    
+    private int jitter(int range) {
+        return range > 0 ? random.nextInt(range + 1) : 0;
+    }
+    
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+}
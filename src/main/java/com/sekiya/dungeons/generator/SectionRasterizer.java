@@ -0,0 +1,109 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.util.PackedPosition;
+
+/**
+ * Writes region operations into a dense array of cell values for one 16x16x16 section
+ *
+ * Cells are indexed y << 8 | z << 4 | x in section-local coordinates, the layout of
+ * the schematic format. The region is filled one row along X at a time, with the
+ * Vector API when the jdk.incubator.vector module is available (see
+ * {@link VectorRasterizer}) and a scalar loop otherwise. Both write the same cells,
+ * the materials are the ones {@link CuboidFill#blockAt} picks.
+ *
+ * Set the system property sekiya.vectorFill to false to force the scalar loop.
+ */
+public class SectionRasterizer {
+    private static final boolean VECTORIZED = detectVectorSupport();
+    
+    /**
+     * Checks if rows are filled with the Vector API
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+    
+    /**
+     * Fills the cells a region writes, the region must already be clipped to the section
+     *
+     * @param cellValues the cell value of each palette index of the region
+     * @return the number of cells that were 0 before
+     */
+    public static int fill(CuboidFill region, short[] cells, int sectionX, int sectionY, int sectionZ,
+                           short[] cellValues) {
+        return fill(region, cells, sectionX, sectionY, sectionZ, cellValues, VECTORIZED);
+    }
+    
+    static int fill(CuboidFill region, short[] cells, int sectionX, int sectionY, int sectionZ,
+                    short[] cellValues, boolean vectorized) {
+        int baseX = sectionX * BlockSection.SIZE;
+        int baseY = sectionY * BlockSection.SIZE;
+        int baseZ = sectionZ * BlockSection.SIZE;
+        
+        int minX = region.getMinX();
+        int maxX = region.getMaxX();
+        int shapeMinX = region.getShapeMinX();
+        int shapeMaxX = region.getShapeMaxX();
+        boolean hollow = region.isHollow();
+        int filled = 0;
+        
+        for (int y = region.getMinY(); y <= region.getMaxY(); y++) {
+            for (int z = region.getMinZ(); z <= region.getMaxZ(); z++) {
+                int row = (y - baseY) << 8 | (z - baseZ) << 4;
+                boolean faceRow = !hollow || y == region.getShapeMinY() || y == region.getShapeMaxY()
+                    || z == region.getShapeMinZ() || z == region.getShapeMaxZ();
+                
+                if (faceRow) {
+                    filled += vectorized
+                        ? VectorRasterizer.fillRow(region, cells, row, baseX, minX, maxX, y, z, cellValues)
+                        : fillRow(region, cells, row, baseX, minX, maxX, y, z, cellValues);
+                    continue;
+                }
+                
+                // Only the two side walls cross an interior row of a shell
+                if (shapeMinX >= minX) {
+                    filled += fillRow(region, cells, row, baseX, shapeMinX, shapeMinX, y, z, cellValues);
+                }
+                if (shapeMaxX <= maxX && shapeMaxX != shapeMinX) {
+                    filled += fillRow(region, cells, row, baseX, shapeMaxX, shapeMaxX, y, z, cellValues);
+                }
+            }
+        }
+        return filled;
+    }
+    
+    /**
+     * Scalar fill of the cells x1..x2 of one row
+     */
+    static int fillRow(CuboidFill region, short[] cells, int row, int baseX, int x1, int x2, int y, int z,
+                       short[] cellValues) {
+        MaterialPalette palette = region.getPalette();
+        long seed = region.getSeed();
+        int filled = 0;
+        
+        for (int x = x1; x <= x2; x++) {
+            int cell = row | (x - baseX);
+            int index = palette.size() == 1
+                ? 0 : palette.sampleIndex(GenerationStreams.mix64(seed ^ PackedPosition.pack(x, y, z)));
+            if (cells[cell] == 0) {
+                filled++;
+            }
+            cells[cell] = cellValues[index];
+        }
+        return filled;
+    }
+    
+    private static boolean detectVectorSupport() {
+        if (!Boolean.parseBoolean(System.getProperty("sekiya.vectorFill", "true"))) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorRasterizer.isSupported();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.util.LongIntHashMap;
+import com.sekiya.dungeons.util.MortonCode;
+import com.sekiya.dungeons.util.PackedPosition;
+
+import java.util.*;
+
+/**
+ * Groups generated blocks into 16x16x16 chunk sections
+ * 
+ * Generation writes floors, ceilings, walls and decorations one after another,
+ * jumping across the same chunks many times. The sorter buckets the blocks per
+ * section, so every section is loaded, written and relit once:
+ * - Sections are ordered by chunk column (Z-order over the columns), then bottom to top
+ * - Region operations are clipped to each section and keep their relative order
+ * - Single placements follow the regions, in Morton order inside the section
+ * 
+ * The input is expected to be compacted (see {@link BlockCompactor}), so no single
+ * placement is overwritten by a later region and moving placements after the
+ * regions does not change the result.
+ */
+public class SectionSorter {
+    private int sectionCount;
+    private int columnCount;
+    
+    public SectionSorter() {
+        this.sectionCount = 0;
+        this.columnCount = 0;
+    }
+    
+    /**
+     * Splits a buffer into sections, in application order
+     */
+    public List<BlockSection> sort(BlockBuffer input) {
+        int size = input.size();
+        LongIntHashMap sectionIds = new LongIntHashMap();
+        List<Long> sectionKeys = new ArrayList<>();
+        List<List<CuboidFill>> sectionRegions = new ArrayList<>();
+        int[] pointSection = new int[size];
+        int pointCount = 0;
+        
+        // Assign every placement and every clipped region to its sections
+        for (int i = 0; i < size; i++) {
+            if (input.isRegion(i)) {
+                pointSection[i] = -1;
+                bucketRegion(input.getRegion(i), sectionIds, sectionKeys, sectionRegions);
+                continue;
+            }
+            
+            long position = input.getPosition(i);
+            long key = sectionKey(PackedPosition.unpackX(position) >> 4, PackedPosition.unpackY(position) >> 4, 
+                PackedPosition.unpackZ(position) >> 4);
+            pointSection[i] = sectionId(key, sectionIds, sectionKeys, sectionRegions);
+            pointCount++;
+        }
+        
+        // Counting sort of the placements by section, then Morton order within each one
+        int sections = sectionKeys.size();
+        int[] offsets = new int[sections + 1];
+        for (int i = 0; i < size; i++) {
+            if (pointSection[i] >= 0) {
+                offsets[pointSection[i] + 1]++;
+            }
+        }
+        for (int s = 0; s < sections; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        
+        // High bits hold the Morton code, low bits the original index to keep the sort stable
+        long[] order = new long[pointCount];
+        int[] fill = Arrays.copyOf(offsets, sections);
+        for (int i = 0; i < size; i++) {
+            int section = pointSection[i];
+            if (section >= 0) {
+                long position = input.getPosition(i);
+                int morton = MortonCode.encodeSection(PackedPosition.unpackX(position), 
+                    PackedPosition.unpackY(position), PackedPosition.unpackZ(position));
+                order[fill[section]++] = ((long) morton << 32) | i;
+            }
+        }
+        
+        List<BlockSection> result = new ArrayList<>(sections);
+        for (int s = 0; s < sections; s++) {
+            Arrays.sort(order, offsets[s], offsets[s + 1]);
+            
+            List<CuboidFill> regions = sectionRegions.get(s);
+            BlockBuffer blocks = new BlockBuffer(input.getWorld(), offsets[s + 1] - offsets[s] + regions.size());
+            for (CuboidFill region : regions) {
+                blocks.fill(region);
+            }
+            for (int j = offsets[s]; j < offsets[s + 1]; j++) {
+                blocks.placeFrom(input, (int) order[j]);
+            }
+            
+            long key = sectionKeys.get(s);
+            result.add(new BlockSection(PackedPosition.unpackX(key), PackedPosition.unpackY(key), 
+                PackedPosition.unpackZ(key), blocks));
+        }
+        
+        Comparator<BlockSection> byColumn = (a, b) -> Long.compareUnsigned(
+            MortonCode.encodeColumn(a.getChunkX(), a.getChunkZ()), MortonCode.encodeColumn(b.getChunkX(), b.getChunkZ()));
+        result.sort(byColumn.thenComparingInt(BlockSection::getSectionY));
+        
+        sectionCount += result.size();
+        columnCount += countColumns(result);
+        return result;
+    }
+    
+    /**
+     * Gets the number of sections produced so far
+     */
+    public int getSectionCount() {
+        return sectionCount;
+    }
+    
+    /**
+     * Gets the number of chunk columns touched so far
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+    
+    /**
+     * Adds the clipped parts of a region to every section it writes
+     */
+    private void bucketRegion(CuboidFill region, LongIntHashMap sectionIds, List<Long> sectionKeys, 
+                              List<List<CuboidFill>> sectionRegions) {
+        for (int sx = region.getMinX() >> 4; sx <= region.getMaxX() >> 4; sx++) {
+            for (int sz = region.getMinZ() >> 4; sz <= region.getMaxZ() >> 4; sz++) {
+                for (int sy = region.getMinY() >> 4; sy <= region.getMaxY() >> 4; sy++) {
+                    int minX = sx * BlockSection.SIZE;
+                    int minY = sy * BlockSection.SIZE;
+                    int minZ = sz * BlockSection.SIZE;
+                    CuboidFill clipped = region.clip(minX, minY, minZ, 
+                        minX + BlockSection.SIZE - 1, minY + BlockSection.SIZE - 1, minZ + BlockSection.SIZE - 1);
+                    
+                    // Sections inside a shell's hollow interior are not written at all
+                    if (clipped != null) {
+                        int id = sectionId(sectionKey(sx, sy, sz), sectionIds, sectionKeys, sectionRegions);
+                        sectionRegions.get(id).add(clipped);
+                    }
+                }
+            }
+        }
+    }
+    
+    private int sectionId(long key, LongIntHashMap sectionIds, List<Long> sectionKeys, 
+                          List<List<CuboidFill>> sectionRegions) {
+        int id = sectionIds.get(key);
+        if (id < 0) {
+            id = sectionKeys.size();
+            sectionIds.put(key, id);
+            sectionKeys.add(key);
+            sectionRegions.add(new ArrayList<>());
+        }
+        return id;
+    }
+    
+    private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        return PackedPosition.pack(sectionX, sectionY, sectionZ);
+    }
+    
+    private int countColumns(List<BlockSection> sections) {
+        int columns = 0;
+        BlockSection previous = null;
+        for (BlockSection section : sections) {
+            if (previous == null || previous.getChunkX() != section.getChunkX() 
+                    || previous.getChunkZ() != section.getChunkZ()) {
+                columns++;
+            }
+            previous = section;
+        }
+        return columns;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SectionSorter{sections=%d, columns=%d}", sectionCount, columnCount);
+    }
+}
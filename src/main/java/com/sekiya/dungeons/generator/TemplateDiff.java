@@ -0,0 +1,264 @@
+package com.sekiya.dungeons.generator;
+
+import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.config.RoomConfig;
+import com.sekiya.dungeons.config.RoomFingerprint;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rooms and corridors of a dungeon that must be built again after its template was edited
+ *
+ * Rooms are matched by id against the fingerprints of the last build (see
+ * {@link RoomFingerprint}). A room is changed when it is new or its fingerprint
+ * differs, and a corridor when its path or its position differs from the one built
+ * between the same two rooms. Positions pick the random materials of rooms and
+ * corridors, so one that moved in the list is rebuilt even where its box did not.
+ * The old boxes of changed and removed rooms and corridors are cleared.
+ *
+ * Writing a room or a corridor overwrites whatever it touches, so everything that
+ * intersects a cleared or rewritten box is rebuilt too, until nothing more is
+ * reached. The rebuilt blocks then match a full build of the edited template.
+ */
+public class TemplateDiff {
+    private final List<RoomConfig> rooms;
+    private final List<RoomFingerprint> fingerprints;
+    private final List<CorridorPath> corridors;
+    private final BitSet dirtyRooms;
+    private final BitSet dirtyCorridors;
+    
+    // Cleared boxes, six ints each: min x, y, z then max x, y, z
+    private final List<int[]> clearedBoxes;
+    
+    private TemplateDiff(List<RoomConfig> rooms, List<RoomFingerprint> fingerprints, List<CorridorPath> corridors) {
+        this.rooms = rooms;
+        this.fingerprints = fingerprints;
+        this.corridors = corridors;
+        this.dirtyRooms = new BitSet(rooms.size());
+        this.dirtyCorridors = new BitSet(corridors.size());
+        this.clearedBoxes = new ArrayList<>();
+    }
+    
+    /**
+     * Compares a template with the rooms it was last built with
+     *
+     * A template that was never built has every room and corridor changed.
+     */
+    public static TemplateDiff of(DungeonTemplate template) {
+        List<RoomConfig> rooms = WorldGenerator.getStructureRooms(template);
+        List<RoomFingerprint> fingerprints = RoomFingerprint.of(rooms, template.getTheme());
+        TemplateDiff diff = new TemplateDiff(rooms, fingerprints, CorridorRouter.routeAll(rooms));
+        
+        List<RoomFingerprint> built = template.getBuiltRooms() != null ? template.getBuiltRooms() : new ArrayList<>();
+        Map<String, RoomFingerprint> builtById = new HashMap<>();
+        for (RoomFingerprint fingerprint : built) {
+            builtById.put(fingerprint.getId(), fingerprint);
+        }
+        
+        // Rooms: new or changed ones are rebuilt, the old box of a changed or removed one cleared
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            RoomFingerprint old = builtById.get(fingerprints.get(i).getId());
+            indexById.put(fingerprints.get(i).getId(), i);
+            if (old == null || old.getHash() != fingerprints.get(i).getHash()) {
+                diff.dirtyRooms.set(i);
+            }
+        }
+        for (RoomFingerprint old : built) {
+            Integer index = indexById.get(old.getId());
+            if (index == null || diff.dirtyRooms.get(index)) {
+                diff.clearedBoxes.add(new int[]{old.getMinX(), old.getMinY(), old.getMinZ(),
+                    old.getMaxX(), old.getMaxY(), old.getMaxZ()});
+            }
+        }
+        
+        // Corridors: route the old rooms again, keyed by the ids of the two rooms they join
+        String world = rooms.isEmpty() || rooms.get(0).getMinBounds() == null
+            ? null : rooms.get(0).getMinBounds().getWorld();
+        List<RoomConfig> builtRooms = new ArrayList<>(built.size());
+        for (RoomFingerprint fingerprint : built) {
+            builtRooms.add(fingerprint.toBoxRoom(world));
+        }
+        List<CorridorPath> builtCorridors = CorridorRouter.routeAll(builtRooms);
+        Map<String, Integer> builtByRooms = new HashMap<>();
+        for (int i = 0; i < builtCorridors.size(); i++) {
+            if (builtCorridors.get(i) != null) {
+                builtByRooms.put(built.get(i).getId() + "\n" + built.get(i + 1).getId(), i);
+            }
+        }
+        
+        for (int i = 0; i < diff.corridors.size(); i++) {
+            CorridorPath corridor = diff.corridors.get(i);
+            Integer oldIndex = builtByRooms.remove(fingerprints.get(i).getId() + "\n" + fingerprints.get(i + 1).getId());
+            CorridorPath old = oldIndex != null ? builtCorridors.get(oldIndex) : null;
+            boolean same = samePath(corridor, old) && (old == null || oldIndex == i);
+            if (corridor != null && !same) {
+                diff.dirtyCorridors.set(i);
+            }
+            if (old != null && !same) {
+                WorldGenerator.addCorridorBoxes(old, diff.clearedBoxes);
+            }
+        }
+        for (int removed : builtByRooms.values()) {
+            WorldGenerator.addCorridorBoxes(builtCorridors.get(removed), diff.clearedBoxes);
+        }
+        
+        diff.spread();
+        return diff;
+    }
+    
+    /**
+     * Gets the rooms of the edited template, as indexed by {@link #isRoomDirty}
+     */
+    public List<RoomConfig> getRooms() {
+        return rooms;
+    }
+    
+    /**
+     * Gets the fingerprints of the edited template's rooms, to store once they are built
+     */
+    public List<RoomFingerprint> getFingerprints() {
+        return fingerprints;
+    }
+    
+    /**
+     * Gets the corridors of the edited template, as indexed by {@link #isCorridorDirty}
+     */
+    public List<CorridorPath> getCorridors() {
+        return corridors;
+    }
+    
+    public boolean isRoomDirty(int index) {
+        return dirtyRooms.get(index);
+    }
+    
+    public boolean isCorridorDirty(int index) {
+        return dirtyCorridors.get(index);
+    }
+    
+    public int getDirtyRoomCount() {
+        return dirtyRooms.cardinality();
+    }
+    
+    public int getDirtyCorridorCount() {
+        return dirtyCorridors.cardinality();
+    }
+    
+    /**
+     * Gets the boxes to clear before rebuilding, six ints each: min x, y, z then max x, y, z
+     */
+    public List<int[]> getClearedBoxes() {
+        return clearedBoxes;
+    }
+    
+    /**
+     * Checks if nothing needs building
+     */
+    public boolean isEmpty() {
+        return dirtyRooms.isEmpty() && dirtyCorridors.isEmpty() && clearedBoxes.isEmpty();
+    }
+    
+    /**
+     * Marks everything that a cleared or rebuilt box reaches, until nothing changes
+     */
+    private void spread() {
+        int[][] roomBoxes = new int[rooms.size()][];
+        for (int i = 0; i < rooms.size(); i++) {
+            RoomFingerprint room = fingerprints.get(i);
+            if (rooms.get(i).getMinBounds() != null && rooms.get(i).getMaxBounds() != null) {
+                roomBoxes[i] = new int[]{room.getMinX(), room.getMinY(), room.getMinZ(),
+                    room.getMaxX(), room.getMaxY(), room.getMaxZ()};
+            }
+        }
+        List<List<int[]>> corridorBoxes = new ArrayList<>(corridors.size());
+        for (CorridorPath corridor : corridors) {
+            List<int[]> boxes = new ArrayList<>();
+            if (corridor != null) {
+                WorldGenerator.addCorridorBoxes(corridor, boxes);
+            }
+            corridorBoxes.add(boxes);
+        }
+        
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < rooms.size(); i++) {
+                if (!dirtyRooms.get(i) && roomBoxes[i] != null
+                        && reached(roomBoxes[i], i, -1, roomBoxes, corridorBoxes)) {
+                    dirtyRooms.set(i);
+                    changed = true;
+                }
+            }
+            for (int i = 0; i < corridors.size(); i++) {
+                if (dirtyCorridors.get(i)) {
+                    continue;
+                }
+                for (int[] box : corridorBoxes.get(i)) {
+                    if (reached(box, -1, i, roomBoxes, corridorBoxes)) {
+                        dirtyCorridors.set(i);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Checks if the box of a room or corridor intersects a cleared box or the box of
+     * another dirty room or corridor
+     * 
+     * A corridor overlaps the walls of the two rooms it joins and is written after
+     * them, so a rebuilt room rebuilds the corridor but not the other way round.
+     */
+    private boolean reached(int[] box, int room, int corridor, int[][] roomBoxes, List<List<int[]>> corridorBoxes) {
+        for (int[] cleared : clearedBoxes) {
+            if (intersects(box, cleared)) {
+                return true;
+            }
+        }
+        for (int i = dirtyRooms.nextSetBit(0); i >= 0; i = dirtyRooms.nextSetBit(i + 1)) {
+            if (corridor >= 0 && (i == corridor || i == corridor + 1)) {
+                // The rebuilt wall closes the doorway
+                return true;
+            }
+            if (i != room && roomBoxes[i] != null && intersects(box, roomBoxes[i])) {
+                return true;
+            }
+        }
+        for (int i = dirtyCorridors.nextSetBit(0); i >= 0; i = dirtyCorridors.nextSetBit(i + 1)) {
+            if (i == corridor || (room >= 0 && (i == room || i + 1 == room))) {
+                continue;
+            }
+            for (int[] other : corridorBoxes.get(i)) {
+                if (intersects(box, other)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static boolean intersects(int[] a, int[] b) {
+        return a[0] <= b[3] && b[0] <= a[3] && a[1] <= b[4] && b[1] <= a[4] && a[2] <= b[5] && b[2] <= a[5];
+    }
+    
+    private static boolean samePath(CorridorPath a, CorridorPath b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a.size() != b.size() || a.getFloorY() != b.getFloorY()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.getX(i) != b.getX(i) || a.getZ(i) != b.getZ(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
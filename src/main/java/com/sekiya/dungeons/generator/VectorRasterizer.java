@@ -0,0 +1,130 @@
+package com.sekiya.dungeons.generator;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API row fill for {@link SectionRasterizer}
+ *
+ * Only loaded once SectionRasterizer has found the jdk.incubator.vector module.
+ * A single-material row is one masked 16-lane store. A palette row hashes the
+ * packed positions and samples the alias table lane-wise, with the same
+ * arithmetic as {@link GenerationStreams#mix64} and {@link MaterialPalette#sampleIndex}.
+ */
+class VectorRasterizer {
+    // One section row, 16 cells
+    private static final VectorSpecies<Short> ROW = ShortVector.SPECIES_256;
+    
+    // Hash lanes, and the short species with as many lanes to store them
+    private static final VectorSpecies<Long> LANES = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> LANE_CELLS =
+        VectorSpecies.of(short.class, VectorShape.forBitSize(LANES.length() * Short.SIZE));
+    
+    private static final long XZ_MASK = (1L << 26) - 1;
+    private static final long Y_MASK = (1L << 12) - 1;
+    private static final long COIN_MASK = 0xFFFFFFFFL;
+    
+    // Larger palettes take more blends per lane than the scalar loop costs
+    private static final int MAX_VECTOR_PALETTE = 8;
+    
+    /**
+     * Checks if the hardware has vectors wide enough for a whole row
+     */
+    static boolean isSupported() {
+        return ShortVector.SPECIES_PREFERRED.vectorBitSize() >= ROW.vectorBitSize() && LANES.length() >= 4;
+    }
+    
+    /**
+     * Fills the cells x1..x2 of one row
+     *
+     * @return the number of cells that were 0 before
+     */
+    static int fillRow(CuboidFill region, short[] cells, int row, int baseX, int x1, int x2, int y, int z,
+                       short[] cellValues) {
+        MaterialPalette palette = region.getPalette();
+        if (palette.size() == 1) {
+            return fillSolidRow(cells, row, x1 - baseX, x2 - x1 + 1, cellValues[0]);
+        }
+        if (palette.size() > MAX_VECTOR_PALETTE) {
+            return SectionRasterizer.fillRow(region, cells, row, baseX, x1, x2, y, z, cellValues);
+        }
+        return fillPaletteRow(palette, region.getSeed(), cells, row, baseX, x1, x2, y, z, cellValues);
+    }
+    
+    // Masked loads and stores are much slower than plain ones, so full rows and chunks skip the mask
+    
+    private static int fillSolidRow(short[] cells, int row, int from, int count, short value) {
+        ShortVector existing = ShortVector.fromArray(ROW, cells, row);
+        ShortVector values = ShortVector.broadcast(ROW, value);
+        
+        if (count == BlockSection.SIZE) {
+            int filled = existing.eq((short) 0).trueCount();
+            values.intoArray(cells, row);
+            return filled;
+        }
+        
+        VectorMask<Short> lanes = ROW.indexInRange(-from, count);
+        int filled = existing.eq((short) 0).and(lanes).trueCount();
+        values.intoArray(cells, row, lanes);
+        return filled;
+    }
+    
+    private static int fillPaletteRow(MaterialPalette palette, long seed, short[] cells, int row, int baseX,
+                                      int x1, int x2, int y, int z, short[] cellValues) {
+        int paletteSize = palette.size();
+        
+        // PackedPosition.pack with the X bits left out
+        long rowBits = ((z & XZ_MASK) << 12) | (y & Y_MASK);
+        LongVector laneOffsets = LongVector.zero(LANES).addIndex(1);
+        int filled = 0;
+        
+        for (int start = x1; start <= x2; start += LANES.length()) {
+            int count = Math.min(LANES.length(), x2 - start + 1);
+            
+            LongVector packed = laneOffsets.add(start).and(XZ_MASK).lanewise(VectorOperators.LSHL, 38).or(rowBits);
+            LongVector hash = mix64(packed.lanewise(VectorOperators.XOR, seed));
+            
+            // Alias table lookup: pick a column, then keep it or take its alias
+            LongVector column = hash.lanewise(VectorOperators.LSHR, 32).mul(paletteSize)
+                .lanewise(VectorOperators.LSHR, 32);
+            LongVector coin = hash.and(COIN_MASK);
+            LongVector threshold = LongVector.zero(LANES);
+            LongVector keep = LongVector.zero(LANES);
+            LongVector alias = LongVector.zero(LANES);
+            for (int c = 0; c < paletteSize; c++) {
+                VectorMask<Long> inColumn = column.eq(c);
+                threshold = threshold.blend(palette.getThreshold(c), inColumn);
+                keep = keep.blend(cellValues[c], inColumn);
+                alias = alias.blend(cellValues[palette.getAlias(c)], inColumn);
+            }
+            LongVector values = alias.blend(keep, coin.lt(threshold));
+            
+            int offset = row + start - baseX;
+            ShortVector cellValuesOut = (ShortVector) values.castShape(LANE_CELLS, 0);
+            if (count == LANES.length()) {
+                filled += ShortVector.fromArray(LANE_CELLS, cells, offset).eq((short) 0).trueCount();
+                cellValuesOut.intoArray(cells, offset);
+                continue;
+            }
+            
+            VectorMask<Short> lanes = LANE_CELLS.indexInRange(0, count);
+            ShortVector existing = ShortVector.fromArray(LANE_CELLS, cells, offset, lanes);
+            filled += existing.eq((short) 0).and(lanes).trueCount();
+            cellValuesOut.intoArray(cells, offset, lanes);
+        }
+        return filled;
+    }
+    
+    /**
+     * Lane-wise {@link GenerationStreams#mix64}
+     */
+    private static LongVector mix64(LongVector z) {
+        z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 30)).mul(0xBF58476D1CE4E5B9L);
+        z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 27)).mul(0x94D049BB133111EBL);
+        return z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 31));
+    }
+}
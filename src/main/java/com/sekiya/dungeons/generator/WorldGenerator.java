@@ -1,42 +1,201 @@
 package com.sekiya.dungeons.generator;
 
+import com.sekiya.dungeons.config.BossRoomConfig;
+import com.sekiya.dungeons.config.DungeonTemplate;
 import com.sekiya.dungeons.config.RoomConfig;
 import com.sekiya.dungeons.util.Location;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.random.RandomGenerator;
 
 /**
  * Generates actual world structures for dungeons
  */
 public class WorldGenerator {
+    private static final int CORRIDOR_HEIGHT = 4;
+    
+    private final boolean decorations;
+    
+    public WorldGenerator() {
+        this(true);
+    }
+    
+    /**
+     * @param decorations whether whole dungeons are generated with their decorations, when
+     *                    false they are left to {@link #generateRoomDecorations}
+     */
+    public WorldGenerator(boolean decorations) {
+        this.decorations = decorations;
+    }
     
     /**
      * Generates block placements for a complete dungeon
      */
-    public List<BlockPlacement> generateDungeonWorld(List<RoomConfig> rooms, DungeonTheme theme, long seed) {
-        List<BlockPlacement> placements = new ArrayList<>();
-        Random random = new Random(seed);
+    public BlockBuffer generateDungeonWorld(List<RoomConfig> rooms, DungeonTheme theme, long seed) {
+        BlockBuffer placements = new BlockBuffer(resolveWorld(rooms), estimateCapacity(rooms));
+        generateDungeonWorld(rooms, theme, seed, placements);
+        return placements;
+    }
+    
+    /**
+     * Streams block placements for a complete dungeon into a sink
+     * 
+     * Each room and corridor draws from its own stream (see {@link GenerationStreams}),
+     * so the output is identical to {@link #generateDungeonWorld(List, DungeonTheme, long, ForkJoinPool)}.
+     */
+    public void generateDungeonWorld(List<RoomConfig> rooms, DungeonTheme theme, long seed, BlockSink sink) {
+        GenerationStreams streams = new GenerationStreams(seed);
         
-        for (RoomConfig room : rooms) {
-            placements.addAll(generateRoom(room, theme, random));
+        for (int i = 0; i < rooms.size(); i++) {
+            generateRoomStructure(rooms.get(i), theme, streams.forRoom(i), sink);
+            if (decorations) {
+                generateRoomDecorations(rooms.get(i), theme, streams.forDecorations(i), sink);
+            }
         }
         
-        // Generate corridors between rooms
-        for (int i = 0; i < rooms.size() - 1; i++) {
-            placements.addAll(generateCorridor(rooms.get(i), rooms.get(i + 1), theme, random));
+        // Generate corridors between rooms, all shells before any interior so crossings stay open
+        List<CorridorPath> corridors = CorridorRouter.routeAll(rooms);
+        for (int i = 0; i < corridors.size(); i++) {
+            generateCorridorShell(corridors.get(i), theme, streams.forCorridor(i), sink);
+        }
+        for (CorridorPath corridor : corridors) {
+            generateCorridorInterior(corridor, sink);
+        }
+    }
+    
+    /**
+     * Generates block placements for a complete dungeon, one fork-join task per room and corridor
+     * 
+     * Results are merged in the same order as the serial pass, so a given seed always
+     * produces the same buffer regardless of how the pool schedules the tasks.
+     */
+    public BlockBuffer generateDungeonWorld(List<RoomConfig> rooms, DungeonTheme theme, long seed, 
+                                            ForkJoinPool pool) {
+        GenerationStreams streams = new GenerationStreams(seed);
+        String world = resolveWorld(rooms);
+        List<ForkJoinTask<BlockBuffer>> tasks = new ArrayList<>(rooms.size() * 2);
+        
+        for (int i = 0; i < rooms.size(); i++) {
+            RoomConfig room = rooms.get(i);
+            int index = i;
+            tasks.add(pool.submit(() -> {
+                BlockBuffer buffer = new BlockBuffer(world, estimateCapacity(Collections.singletonList(room)));
+                generateRoomStructure(room, theme, streams.forRoom(index), buffer);
+                if (decorations) {
+                    generateRoomDecorations(room, theme, streams.forDecorations(index), buffer);
+                }
+                return buffer;
+            }));
+        }
+        
+        // Routing depends on the corridors before, so it runs here and only the blocks are forked
+        List<CorridorPath> corridors = CorridorRouter.routeAll(rooms);
+        for (int i = 0; i < corridors.size(); i++) {
+            CorridorPath corridor = corridors.get(i);
+            int index = i;
+            tasks.add(pool.submit(() -> {
+                BlockBuffer buffer = new BlockBuffer(world);
+                generateCorridorShell(corridor, theme, streams.forCorridor(index), buffer);
+                return buffer;
+            }));
         }
         
+        BlockBuffer placements = new BlockBuffer(world, estimateCapacity(rooms));
+        for (ForkJoinTask<BlockBuffer> task : tasks) {
+            placements.addAll(task.join());
+        }
+        for (CorridorPath corridor : corridors) {
+            generateCorridorInterior(corridor, placements);
+        }
         return placements;
     }
     
     /**
-     * Generates a single room structure
+     * Streams the blocks that changed since a template was last built into a sink
+     * 
+     * Cleared boxes are filled with air first, then the dirty rooms, corridor shells
+     * and corridor interiors are written in the order of a full build, each from its
+     * own stream, so the result matches {@link #generateDungeonWorld} for the edited rooms.
      */
-    public List<BlockPlacement> generateRoom(RoomConfig room, DungeonTheme theme, Random random) {
-        List<BlockPlacement> placements = new ArrayList<>();
+    public void generateChanges(TemplateDiff diff, DungeonTheme theme, long seed, BlockSink sink) {
+        GenerationStreams streams = new GenerationStreams(seed);
         
+        for (int[] box : diff.getClearedBoxes()) {
+            sink.fill(CuboidFill.solid(box[0], box[1], box[2], box[3], box[4], box[5], BlockType.AIR));
+        }
+        
+        List<RoomConfig> rooms = diff.getRooms();
+        for (int i = 0; i < rooms.size(); i++) {
+            if (diff.isRoomDirty(i)) {
+                generateRoomStructure(rooms.get(i), theme, streams.forRoom(i), sink);
+                if (decorations) {
+                    generateRoomDecorations(rooms.get(i), theme, streams.forDecorations(i), sink);
+                }
+            }
+        }
+        
+        List<CorridorPath> corridors = diff.getCorridors();
+        for (int i = 0; i < corridors.size(); i++) {
+            if (diff.isCorridorDirty(i)) {
+                generateCorridorShell(corridors.get(i), theme, streams.forCorridor(i), sink);
+            }
+        }
+        for (int i = 0; i < corridors.size(); i++) {
+            if (diff.isCorridorDirty(i)) {
+                generateCorridorInterior(corridors.get(i), sink);
+            }
+        }
+    }
+    
+    /**
+     * Generates a single room structure
+     */
+    public BlockBuffer generateRoom(RoomConfig room, DungeonTheme theme, RandomGenerator random) {
+        BlockBuffer placements = new BlockBuffer(
+            room.getMinBounds() != null ? room.getMinBounds().getWorld() : null,
+            estimateCapacity(Collections.singletonList(room)));
+        generateRoom(room, theme, random, placements);
+        return placements;
+    }
+    
+    /**
+     * Streams a single room structure and its decorations into a sink
+     */
+    public void generateRoom(RoomConfig room, DungeonTheme theme, RandomGenerator random, BlockSink sink) {
+        generateRoomStructure(room, theme, random, sink);
+        generateRoomDecorations(room, theme, random, sink);
+    }
+    
+    /**
+     * Streams the decorations of one room of a whole dungeon into a sink
+     * 
+     * Draws from the same stream as {@link #generateDungeonWorld}, so decorations
+     * generated after the build match the ones it would have placed.
+     * 
+     * @param index index of the room in the dungeon's rooms, see {@link #getStructureRooms}
+     * @param seed the seed the dungeon was generated with
+     */
+    public void generateRoomDecorations(RoomConfig room, int index, DungeonTheme theme, long seed, 
+                                        BlockSink sink) {
+        generateRoomDecorations(room, theme, new GenerationStreams(seed).forDecorations(index), sink);
+    }
+    
+    private void generateRoomDecorations(RoomConfig room, DungeonTheme theme, RandomGenerator random, 
+                                         BlockSink sink) {
+        if (room.getMinBounds() != null && room.getMaxBounds() != null) {
+            generateDecorations(room.getMinBounds(), room.getMaxBounds(), theme, random, sink);
+        }
+    }
+    
+    /**
+     * Streams the floor, ceiling, walls and cleared interior of a room into a sink
+     */
+    private void generateRoomStructure(RoomConfig room, DungeonTheme theme, RandomGenerator random, 
+                                       BlockSink sink) {
         if (room.getMinBounds() == null || room.getMaxBounds() == null) {
-            return placements;
+            return;
         }
         
         Location min = room.getMinBounds();
@@ -49,159 +208,129 @@ public class WorldGenerator {
         int maxY = (int) max.getY();
         int maxZ = (int) max.getZ();
         
-        String world = min.getWorld();
+        // Floor, ceiling and walls as one shell, materials hashed per position
+        MaterialPalette materials = theme.getWallPalette();
+        sink.fill(CuboidFill.shell(minX, minY, minZ, maxX, maxY, maxZ, materials, random.nextLong()));
         
-        // Generate floor
-        for (int x = minX; x <= maxX; x++) {
-            for (int z = minZ; z <= maxZ; z++) {
-                BlockType floorMaterial = theme.getRandomWallMaterial(random);
-                placements.add(new BlockPlacement(
-                    new Location(world, x, minY, z),
-                    floorMaterial
-                ));
-            }
+        // Clear interior (air)
+        if (maxX - minX > 1 && maxY - minY > 1 && maxZ - minZ > 1) {
+            sink.fill(CuboidFill.solid(minX + 1, minY + 1, minZ + 1, maxX - 1, maxY - 1, maxZ - 1, BlockType.AIR));
         }
-        
-        // Generate ceiling
-        for (int x = minX; x <= maxX; x++) {
-            for (int z = minZ; z <= maxZ; z++) {
-                BlockType ceilingMaterial = theme.getRandomWallMaterial(random);
-                placements.add(new BlockPlacement(
-                    new Location(world, x, maxY, z),
-                    ceilingMaterial
-                ));
-            }
+    }
+    
+    /**
+     * Streams a straight or L-shaped corridor between two rooms into a sink
+     * 
+     * The corridor follows {@link CorridorPath#between} and ignores any other room,
+     * a whole dungeon routes its corridors with a {@link CorridorRouter}.
+     */
+    public void generateCorridor(RoomConfig room1, RoomConfig room2, DungeonTheme theme, 
+                                 RandomGenerator random, BlockSink sink) {
+        generateCorridor(CorridorPath.between(room1, room2), theme, random, sink);
+    }
+    
+    /**
+     * Streams a corridor along a path into a sink
+     * 
+     * The corridor is 3 wide and 5 high, walls included. The shell of every segment
+     * is written before any interior, so a segment's walls never close the turn into
+     * the next segment.
+     */
+    public void generateCorridor(CorridorPath path, DungeonTheme theme, RandomGenerator random, BlockSink sink) {
+        generateCorridorShell(path, theme, random, sink);
+        generateCorridorInterior(path, sink);
+    }
+    
+    /**
+     * Streams the floor, ceiling and side walls of a corridor into a sink
+     */
+    private void generateCorridorShell(CorridorPath path, DungeonTheme theme, RandomGenerator random, 
+                                       BlockSink sink) {
+        if (path == null) {
+            return;
         }
         
-        // Generate walls
-        // North and South walls
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = minY + 1; y < maxY; y++) {
-                // North wall
-                BlockType wallMaterial = theme.getRandomWallMaterial(random);
-                placements.add(new BlockPlacement(
-                    new Location(world, x, y, minZ),
-                    wallMaterial
-                ));
-                
-                // South wall
-                wallMaterial = theme.getRandomWallMaterial(random);
-                placements.add(new BlockPlacement(
-                    new Location(world, x, y, maxZ),
-                    wallMaterial
-                ));
+        MaterialPalette materials = theme.getWallPalette();
+        long paletteSeed = random.nextLong();
+        int half = CorridorPath.HALF_WIDTH;
+        int floorY = path.getFloorY();
+        int topY = floorY + CORRIDOR_HEIGHT;
+        int last = path.size() - 1;
+        
+        // Floor, ceiling and side walls, reaching past every turn so the outer corner is closed
+        for (int i = 1; i <= last; i++) {
+            int x1 = path.getX(i - 1);
+            int z1 = path.getZ(i - 1);
+            int x2 = path.getX(i);
+            int z2 = path.getZ(i);
+            boolean alongX = z1 == z2;
+            
+            // Position along the segment, pushed outwards at the ends that are turns
+            int start = alongX ? x1 : z1;
+            int end = alongX ? x2 : z2;
+            int direction = end >= start ? 1 : -1;
+            if (i > 1) {
+                start -= direction * half;
             }
-        }
-        
-        // East and West walls
-        for (int z = minZ + 1; z < maxZ; z++) {
-            for (int y = minY + 1; y < maxY; y++) {
-                // West wall
-                BlockType wallMaterial = theme.getRandomWallMaterial(random);
-                placements.add(new BlockPlacement(
-                    new Location(world, minX, y, z),
-                    wallMaterial
-                ));
-                
-                // East wall
-                wallMaterial = theme.getRandomWallMaterial(random);
-                placements.add(new BlockPlacement(
-                    new Location(world, maxX, y, z),
-                    wallMaterial
-                ));
+            if (i < last) {
+                end += direction * half;
             }
-        }
-        
-        // Clear interior (air)
-        for (int x = minX + 1; x < maxX; x++) {
-            for (int z = minZ + 1; z < maxZ; z++) {
-                for (int y = minY + 1; y < maxY; y++) {
-                    placements.add(new BlockPlacement(
-                        new Location(world, x, y, z),
-                        BlockType.AIR
-                    ));
-                }
+            int from = Math.min(start, end);
+            int to = Math.max(start, end);
+            
+            if (alongX) {
+                sink.fill(CuboidFill.palette(from, floorY, z1 - half, to, floorY, z1 + half, 
+                    materials, paletteSeed));
+                sink.fill(CuboidFill.palette(from, topY, z1 - half, to, topY, z1 + half, 
+                    materials, paletteSeed));
+                sink.fill(CuboidFill.palette(from, floorY + 1, z1 - half, to, topY - 1, z1 - half, 
+                    materials, paletteSeed));
+                sink.fill(CuboidFill.palette(from, floorY + 1, z1 + half, to, topY - 1, z1 + half, 
+                    materials, paletteSeed));
+            } else {
+                sink.fill(CuboidFill.palette(x1 - half, floorY, from, x1 + half, floorY, to, 
+                    materials, paletteSeed));
+                sink.fill(CuboidFill.palette(x1 - half, topY, from, x1 + half, topY, to, 
+                    materials, paletteSeed));
+                sink.fill(CuboidFill.palette(x1 - half, floorY + 1, from, x1 - half, topY - 1, to, 
+                    materials, paletteSeed));
+                sink.fill(CuboidFill.palette(x1 + half, floorY + 1, from, x1 + half, topY - 1, to, 
+                    materials, paletteSeed));
             }
         }
-        
-        // Add decorations
-        placements.addAll(generateDecorations(min, max, world, theme, random));
-        
-        return placements;
     }
     
     /**
-     * Generates corridor between two rooms
+     * Streams the air between the side walls of a corridor into a sink, from waypoint to waypoint
+     * 
+     * Written after the shells of all crossing corridors, it opens every crossing into a junction.
      */
-    private List<BlockPlacement> generateCorridor(RoomConfig room1, RoomConfig room2, 
-                                                  DungeonTheme theme, Random random) {
-        List<BlockPlacement> placements = new ArrayList<>();
-        
-        if (room1.getMaxBounds() == null || room2.getMinBounds() == null) {
-            return placements;
+    private void generateCorridorInterior(CorridorPath path, BlockSink sink) {
+        int inner = CorridorPath.HALF_WIDTH - 1;
+        if (path == null || inner < 0) {
+            return;
         }
         
-        Location start = room1.getMaxBounds();
-        Location end = room2.getMinBounds();
-        
-        int startX = (int) start.getX();
-        int startY = (int) start.getY();
-        int startZ = (int) (start.getZ() + (room1.getMinBounds().getZ() - start.getZ()) / 2);
-        
-        int endX = (int) end.getX();
-        int endY = (int) end.getY();
-        int endZ = (int) (end.getZ() + (room2.getMaxBounds().getZ() - end.getZ()) / 2);
-        
-        String world = start.getWorld();
-        
-        // Simple corridor - just connect the centers
-        int corridorWidth = 3;
-        int corridorHeight = 4;
-        
-        for (int x = startX; x <= endX; x++) {
-            for (int offsetZ = -corridorWidth/2; offsetZ <= corridorWidth/2; offsetZ++) {
-                // Floor
-                placements.add(new BlockPlacement(
-                    new Location(world, x, startY, startZ + offsetZ),
-                    theme.getRandomWallMaterial(random)
-                ));
-                
-                // Ceiling
-                placements.add(new BlockPlacement(
-                    new Location(world, x, startY + corridorHeight, startZ + offsetZ),
-                    theme.getRandomWallMaterial(random)
-                ));
-                
-                // Clear interior
-                for (int y = startY + 1; y < startY + corridorHeight; y++) {
-                    placements.add(new BlockPlacement(
-                        new Location(world, x, y, startZ + offsetZ),
-                        BlockType.AIR
-                    ));
-                }
-                
-                // Side walls
-                if (Math.abs(offsetZ) == corridorWidth/2) {
-                    for (int y = startY + 1; y < startY + corridorHeight; y++) {
-                        placements.add(new BlockPlacement(
-                            new Location(world, x, y, startZ + offsetZ),
-                            theme.getRandomWallMaterial(random)
-                        ));
-                    }
-                }
+        int floorY = path.getFloorY();
+        int topY = floorY + CORRIDOR_HEIGHT;
+        for (int i = 1; i < path.size(); i++) {
+            int x1 = path.getX(i - 1);
+            int z1 = path.getZ(i - 1);
+            int x2 = path.getX(i);
+            int z2 = path.getZ(i);
+            if (z1 == z2) {
+                sink.fill(CuboidFill.solid(x1, floorY + 1, z1 - inner, x2, topY - 1, z1 + inner, BlockType.AIR));
+            } else {
+                sink.fill(CuboidFill.solid(x1 - inner, floorY + 1, z1, x1 + inner, topY - 1, z2, BlockType.AIR));
             }
         }
-        
-        return placements;
     }
     
     /**
-     * Generates decorative elements for a room
+     * Streams decorative elements for a room into a sink
      */
-    private List<BlockPlacement> generateDecorations(Location min, Location max, String world,
-                                                     DungeonTheme theme, Random random) {
-        List<BlockPlacement> placements = new ArrayList<>();
-        
+    public void generateDecorations(Location min, Location max, DungeonTheme theme, 
+                                    RandomGenerator random, BlockSink sink) {
         int minX = (int) min.getX();
         int minY = (int) min.getY();
         int minZ = (int) min.getZ();
@@ -213,20 +342,12 @@ public class WorldGenerator {
         
         // North wall torches
         for (int x = minX + 2; x < maxX; x += torchSpacing) {
-            placements.add(new BlockPlacement(
-                new Location(world, x, minY + 2, minZ + 1),
-                BlockType.WALL_TORCH,
-                "facing=south"
-            ));
+            sink.place(x, minY + 2, minZ + 1, BlockType.WALL_TORCH, "facing=south");
         }
         
         // South wall torches
         for (int x = minX + 2; x < maxX; x += torchSpacing) {
-            placements.add(new BlockPlacement(
-                new Location(world, x, minY + 2, maxZ - 1),
-                BlockType.WALL_TORCH,
-                "facing=north"
-            ));
+            sink.place(x, minY + 2, maxZ - 1, BlockType.WALL_TORCH, "facing=north");
         }
         
         // Add some cobwebs for atmosphere (random)
@@ -236,10 +357,7 @@ public class WorldGenerator {
             int y = random.nextInt(3) + minY + 3; // Upper portion of room
             int z = random.nextInt(maxZ - minZ - 2) + minZ + 1;
             
-            placements.add(new BlockPlacement(
-                new Location(world, x, y, z),
-                BlockType.COBWEB
-            ));
+            sink.place(x, y, z, BlockType.COBWEB);
         }
         
         // Add pillars in corners (for larger rooms)
@@ -249,112 +367,116 @@ public class WorldGenerator {
         if (width > 15 && length > 15) {
             // Place pillars
             int pillarHeight = (int) (max.getY() - min.getY() - 1);
+            int topY = minY + pillarHeight - 1;
             
-            for (int y = minY + 1; y < minY + pillarHeight; y++) {
+            if (topY > minY) {
                 // Corner pillars
-                placements.add(new BlockPlacement(
-                    new Location(world, minX + 2, y, minZ + 2),
-                    BlockType.STONE_BRICKS
-                ));
-                placements.add(new BlockPlacement(
-                    new Location(world, maxX - 2, y, minZ + 2),
-                    BlockType.STONE_BRICKS
-                ));
-                placements.add(new BlockPlacement(
-                    new Location(world, minX + 2, y, maxZ - 2),
-                    BlockType.STONE_BRICKS
-                ));
-                placements.add(new BlockPlacement(
-                    new Location(world, maxX - 2, y, maxZ - 2),
-                    BlockType.STONE_BRICKS
-                ));
+                sink.fill(CuboidFill.solid(minX + 2, minY + 1, minZ + 2, minX + 2, topY, minZ + 2, BlockType.STONE_BRICKS));
+                sink.fill(CuboidFill.solid(maxX - 2, minY + 1, minZ + 2, maxX - 2, topY, minZ + 2, BlockType.STONE_BRICKS));
+                sink.fill(CuboidFill.solid(minX + 2, minY + 1, maxZ - 2, minX + 2, topY, maxZ - 2, BlockType.STONE_BRICKS));
+                sink.fill(CuboidFill.solid(maxX - 2, minY + 1, maxZ - 2, maxX - 2, topY, maxZ - 2, BlockType.STONE_BRICKS));
             }
         }
-        
-        return placements;
     }
     
     /**
      * Generates a treasure room
      */
-    public List<BlockPlacement> generateTreasureRoom(Location center, DungeonTheme theme, Random random) {
-        List<BlockPlacement> placements = new ArrayList<>();
-        
-        String world = center.getWorld();
+    public BlockBuffer generateTreasureRoom(Location center, DungeonTheme theme, RandomGenerator random) {
+        BlockBuffer placements = new BlockBuffer(center.getWorld());
+        generateTreasureRoom(center, theme, random, placements);
+        return placements;
+    }
+    
+    /**
+     * Streams a treasure room into a sink
+     */
+    public void generateTreasureRoom(Location center, DungeonTheme theme, RandomGenerator random, BlockSink sink) {
         int cx = (int) center.getX();
         int cy = (int) center.getY();
         int cz = (int) center.getZ();
         
         int size = 7;
         
-        // Small square room
-        for (int x = cx - size/2; x <= cx + size/2; x++) {
-            for (int z = cz - size/2; z <= cz + size/2; z++) {
-                // Floor
-                placements.add(new BlockPlacement(
-                    new Location(world, x, cy, z),
-                    BlockType.STONE_BRICKS
-                ));
-                
-                // Ceiling
-                placements.add(new BlockPlacement(
-                    new Location(world, x, cy + 4, z),
-                    BlockType.STONE_BRICKS
-                ));
-            }
-        }
-        
-        // Walls
-        for (int i = 1; i < 4; i++) {
-            // North/South
-            for (int x = cx - size/2; x <= cx + size/2; x++) {
-                placements.add(new BlockPlacement(
-                    new Location(world, x, cy + i, cz - size/2),
-                    BlockType.STONE_BRICKS
-                ));
-                placements.add(new BlockPlacement(
-                    new Location(world, x, cy + i, cz + size/2),
-                    BlockType.STONE_BRICKS
-                ));
-            }
-            
-            // East/West
-            for (int z = cz - size/2; z <= cz + size/2; z++) {
-                placements.add(new BlockPlacement(
-                    new Location(world, cx - size/2, cy + i, z),
-                    BlockType.STONE_BRICKS
-                ));
-                placements.add(new BlockPlacement(
-                    new Location(world, cx + size/2, cy + i, z),
-                    BlockType.STONE_BRICKS
-                ));
-            }
-        }
+        // Small square room, floor, ceiling and walls
+        int half = size / 2;
+        sink.fill(CuboidFill.shell(cx - half, cy, cz - half, cx + half, cy + 4, cz + half, 
+            MaterialPalette.of(BlockType.STONE_BRICKS), 0L));
         
         // Place chest in center
-        placements.add(new BlockPlacement(
-            new Location(world, cx, cy + 1, cz),
-            BlockType.CHEST
-        ));
+        sink.place(cx, cy + 1, cz, BlockType.CHEST);
         
         // Glowstone lighting
-        placements.add(new BlockPlacement(
-            new Location(world, cx - 2, cy + 3, cz),
-            BlockType.GLOWSTONE
-        ));
-        placements.add(new BlockPlacement(
-            new Location(world, cx + 2, cy + 3, cz),
-            BlockType.GLOWSTONE
-        ));
-        placements.add(new BlockPlacement(
-            new Location(world, cx, cy + 3, cz - 2),
-            BlockType.GLOWSTONE
-        ));
-        placements.add(new BlockPlacement(
-            new Location(world, cx, cy + 3, cz + 2),
-            BlockType.GLOWSTONE
-        ));
+        sink.place(cx - 2, cy + 3, cz, BlockType.GLOWSTONE);
+        sink.place(cx + 2, cy + 3, cz, BlockType.GLOWSTONE);
+        sink.place(cx, cy + 3, cz - 2, BlockType.GLOWSTONE);
+        sink.place(cx, cy + 3, cz + 2, BlockType.GLOWSTONE);
+    }
+    
+    /**
+     * Adds the boxes a corridor's blocks occupy, one per segment with its shell, six
+     * ints each: min x, y, z then max x, y, z
+     */
+    public static void addCorridorBoxes(CorridorPath corridor, List<int[]> boxes) {
+        int half = CorridorPath.HALF_WIDTH;
+        int topY = corridor.getFloorY() + CORRIDOR_HEIGHT;
+        for (int i = 1; i < corridor.size(); i++) {
+            boxes.add(new int[]{
+                Math.min(corridor.getX(i - 1), corridor.getX(i)) - half, corridor.getFloorY(),
+                Math.min(corridor.getZ(i - 1), corridor.getZ(i)) - half,
+                Math.max(corridor.getX(i - 1), corridor.getX(i)) + half, topY,
+                Math.max(corridor.getZ(i - 1), corridor.getZ(i)) + half});
+        }
+    }
+    
+    /**
+     * Gets every room of a template that has a physical structure, boss room last
+     */
+    public static List<RoomConfig> getStructureRooms(DungeonTemplate template) {
+        List<RoomConfig> rooms = new ArrayList<>();
+        if (template.getRooms() != null) {
+            rooms.addAll(template.getRooms());
+        }
         
-        return placements;
+        BossRoomConfig bossRoom = template.getBossRoom();
+        if (bossRoom != null && bossRoom.getBounds() != null) {
+            RoomConfig bossStructure = new RoomConfig();
+            bossStructure.setId(bossRoom.getId());
+            bossStructure.setOrder(rooms.size() + 1);
+            bossStructure.setBounds(bossRoom.getBounds());
+            rooms.add(bossStructure);
+        }
+        
+        return rooms;
+    }
+    
+    /**
+     * Gets the world name shared by the given rooms
+     */
+    private String resolveWorld(List<RoomConfig> rooms) {
+        for (RoomConfig room : rooms) {
+            if (room.getMinBounds() != null) {
+                return room.getMinBounds().getWorld();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Estimates the number of buffer entries needed for all rooms, used to pre-size buffers
+     * 
+     * Shells, interiors and pillars are single region entries, so only the wall
+     * torches and cobwebs grow with the room size.
+     */
+    private int estimateCapacity(List<RoomConfig> rooms) {
+        long total = 0;
+        for (RoomConfig room : rooms) {
+            Location min = room.getMinBounds();
+            Location max = room.getMaxBounds();
+            if (min != null && max != null) {
+                total += 16 + 2L * (((int) max.getX() - (int) min.getX()) / 5 + 1);
+            }
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE - 8);
     }
 }
@@ -2,10 +2,14 @@ package com.sekiya.dungeons.instance;
 
 import com.sekiya.dungeons.boss.BossManager;
 import com.sekiya.dungeons.boss.BossRoom;
+import com.sekiya.dungeons.build.DecorationScheduler;
+import com.sekiya.dungeons.config.DungeonBlueprint;
 import com.sekiya.dungeons.config.DungeonTemplate;
 import com.sekiya.dungeons.enemy.EnemyManager;
+import com.sekiya.dungeons.room.DungeonRoom;
 import com.sekiya.dungeons.room.RoomManager;
 import com.sekiya.dungeons.util.Location;
+import com.sekiya.dungeons.util.WorldIds;
 
 import java.util.*;
 
@@ -14,6 +18,7 @@ import java.util.*;
  */
 public class DungeonInstance {
     private final String instanceId;
+    private final DungeonBlueprint blueprint;
     private final DungeonTemplate template;
     private final RoomManager roomManager;
     private final EnemyManager enemyManager;
@@ -25,11 +30,19 @@ public class DungeonInstance {
     private long completionTime;
     private int deathCount;
     
-    public DungeonInstance(String instanceId, DungeonTemplate template) {
+    public DungeonInstance(String instanceId, DungeonBlueprint blueprint) {
+        this(instanceId, blueprint, null);
+    }
+    
+    /**
+     * @param decorationScheduler decorates rooms as they are unlocked, or null
+     */
+    public DungeonInstance(String instanceId, DungeonBlueprint blueprint, DecorationScheduler decorationScheduler) {
         this.instanceId = instanceId;
-        this.template = template;
+        this.blueprint = blueprint;
+        this.template = blueprint.getTemplate();
         this.enemyManager = new EnemyManager();
-        this.roomManager = new RoomManager(enemyManager);
+        this.roomManager = new RoomManager(enemyManager, decorationScheduler);
         this.bossManager = new BossManager();
         this.players = new HashSet<>();
         this.state = InstanceState.WAITING;
@@ -37,14 +50,10 @@ public class DungeonInstance {
         this.completionTime = 0;
         this.deathCount = 0;
         
-        // Initialize rooms
-        if (template.getRooms() != null) {
-            roomManager.initializeRooms(template.getRooms());
-        }
-        
-        // Initialize boss room
-        if (template.getBossRoom() != null) {
-            this.bossRoom = new BossRoom(template.getBossRoom());
+        // Rooms share the compiled blueprint, only their state is per instance
+        roomManager.initializeRooms(blueprint);
+        if (blueprint.getBossRoom() != null) {
+            this.bossRoom = new BossRoom(blueprint);
         }
     }
     
@@ -52,6 +61,10 @@ public class DungeonInstance {
         return instanceId;
     }
     
+    public DungeonBlueprint getBlueprint() {
+        return blueprint;
+    }
+    
     public DungeonTemplate getTemplate() {
         return template;
     }
@@ -76,6 +89,36 @@ public class DungeonInstance {
         return bossRoom;
     }
     
+    /**
+     * Gets the room or boss room that contains a location, or null if it is in none
+     */
+    public DungeonRoom getRoomAt(Location location) {
+        return getRoomByIndex(blueprint.getRoomIndex().find(location));
+    }
+    
+    /**
+     * Gets the room or boss room that contains a block, or null if it is in none
+     */
+    public DungeonRoom getRoomAt(String world, int x, int y, int z) {
+        return getRoomAt(x, y, z, WorldIds.idOf(world));
+    }
+    
+    /**
+     * Gets the room or boss room that contains a block, or null if it is in none
+     *
+     * @param worldId id of the block's world, see {@link WorldIds}
+     */
+    public DungeonRoom getRoomAt(int x, int y, int z, int worldId) {
+        return getRoomByIndex(blueprint.getRoomIndex().find(x, y, z, worldId));
+    }
+    
+    private DungeonRoom getRoomByIndex(int index) {
+        if (index < 0) {
+            return null;
+        }
+        return index < roomManager.getRoomCount() ? roomManager.getRoom(index) : bossRoom;
+    }
+    
     public InstanceState getState() {
         return state;
     }
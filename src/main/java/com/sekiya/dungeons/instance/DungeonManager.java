@@ -1,7 +1,8 @@
 package com.sekiya.dungeons.instance;
 
+import com.sekiya.dungeons.build.DecorationScheduler;
 import com.sekiya.dungeons.config.ConfigManager;
-import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.config.DungeonBlueprint;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -11,12 +12,21 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class DungeonManager {
     private final ConfigManager configManager;
+    private final DecorationScheduler decorationScheduler;
     private final Map<String, DungeonInstance> instances;
     private final Map<String, String> playerToInstance;
     private int instanceCounter;
     
     public DungeonManager(ConfigManager configManager) {
+        this(configManager, null);
+    }
+    
+    /**
+     * @param decorationScheduler decorates rooms as instances reach them, or null
+     */
+    public DungeonManager(ConfigManager configManager, DecorationScheduler decorationScheduler) {
         this.configManager = configManager;
+        this.decorationScheduler = decorationScheduler;
         this.instances = new ConcurrentHashMap<>();
         this.playerToInstance = new ConcurrentHashMap<>();
         this.instanceCounter = 0;
@@ -26,13 +36,13 @@ public class DungeonManager {
      * Creates a new dungeon instance
      */
     public DungeonInstance createInstance(String dungeonName) {
-        DungeonTemplate template = configManager.getDungeonTemplate(dungeonName);
-        if (template == null) {
+        DungeonBlueprint blueprint = configManager.getDungeonBlueprint(dungeonName);
+        if (blueprint == null) {
             return null;
         }
         
         String instanceId = generateInstanceId(dungeonName);
-        DungeonInstance instance = new DungeonInstance(instanceId, template);
+        DungeonInstance instance = new DungeonInstance(instanceId, blueprint, decorationScheduler);
         instances.put(instanceId, instance);
         
         return instance;
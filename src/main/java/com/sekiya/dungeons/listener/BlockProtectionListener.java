@@ -0,0 +1,116 @@
+package com.sekiya.dungeons.listener;
+
+import com.sekiya.dungeons.config.ConfigManager;
+import com.sekiya.dungeons.instance.DungeonInstance;
+import com.sekiya.dungeons.protection.Protection;
+import com.sekiya.dungeons.protection.ProtectionManager;
+import com.sekiya.dungeons.room.DungeonRoom;
+import com.sekiya.dungeons.room.RoomDoor;
+import com.sekiya.dungeons.util.MessageUtil;
+
+/**
+ * Protects the blocks of dungeons from being broken, placed or used
+ * Note: This is a placeholder. Actual implementation depends on Hytale's event system
+ *
+ * Runs on every block event of the server, so blocks outside dungeons are let
+ * through after one hash probe. Inside a dungeon, breaking and placing are denied.
+ * Players may use blocks of the dungeon they are in, except the doors of rooms
+ * that are not cleared yet.
+ *
+ * World ids come from {@link com.sekiya.dungeons.util.WorldIds}, interned once per
+ * world rather than per event.
+ */
+public class BlockProtectionListener {
+    private final ProtectionManager protectionManager;
+    private final ConfigManager configManager;
+    
+    public BlockProtectionListener(ProtectionManager protectionManager, ConfigManager configManager) {
+        this.protectionManager = protectionManager;
+        this.configManager = configManager;
+    }
+    
+    /**
+     * Handles a block being broken
+     * This would be registered as a Hytale event listener
+     *
+     * @return true if the event must be cancelled
+     */
+    public boolean onBlockBreak(Object player, int x, int y, int z, int worldId) {
+        return denyChange(player, x, y, z, worldId);
+    }
+    
+    /**
+     * Handles a block being placed
+     * This would be registered as a Hytale event listener
+     *
+     * @return true if the event must be cancelled
+     */
+    public boolean onBlockPlace(Object player, int x, int y, int z, int worldId) {
+        return denyChange(player, x, y, z, worldId);
+    }
+    
+    /**
+     * Handles a player using a block
+     * This would be registered as a Hytale event listener
+     *
+     * @return true if the event must be cancelled
+     */
+    public boolean onBlockInteract(Object player, int x, int y, int z, int worldId) {
+        Protection protection = getProtection(player, x, y, z, worldId);
+        if (protection == null) {
+            return false;
+        }
+        
+        DungeonInstance instance = protectionManager.getInstance(protection, getPlayerName(player));
+        if (instance == null) {
+            MessageUtil.sendMessage(player, MessageUtil.formatWithPrefix("&cYou are not in this dungeon!"));
+            return true;
+        }
+        
+        // Doors open when their room is cleared, not by hand
+        if (protection.isDoor()) {
+            DungeonRoom room = instance.getRoomManager().getRoom(protection.getRoomIndex());
+            RoomDoor door = room != null ? room.getDoor() : null;
+            if (door != null && !door.isOpen()) {
+                MessageUtil.sendMessage(player, MessageUtil.formatWithPrefix("&cClear the room to open this door!"));
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean denyChange(Object player, int x, int y, int z, int worldId) {
+        if (getProtection(player, x, y, z, worldId) == null) {
+            return false;
+        }
+        MessageUtil.sendMessage(player, MessageUtil.formatWithPrefix("&cDungeon blocks are protected!"));
+        return true;
+    }
+    
+    /**
+     * Gets the protection of a block the player cannot bypass, or null if they may change it
+     */
+    private Protection getProtection(Object player, int x, int y, int z, int worldId) {
+        // Checked first, so events cost no lookup while protection is off
+        if (!configManager.getPluginConfig().isProtectDungeons() || canBypass(player)) {
+            return null;
+        }
+        return protectionManager.getProtection(x, y, z, worldId);
+    }
+    
+    /**
+     * Checks if a player may change dungeon blocks (placeholder)
+     */
+    private boolean canBypass(Object player) {
+        // Placeholder: Use Hytale's permission API with sekiyadungeons.bypass
+        return false;
+    }
+    
+    /**
+     * Gets player name (placeholder)
+     */
+    private String getPlayerName(Object player) {
+        // Placeholder: Use Hytale's player API
+        return "Player";
+    }
+}
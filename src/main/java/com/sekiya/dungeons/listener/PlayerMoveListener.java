@@ -6,16 +6,28 @@ import com.sekiya.dungeons.instance.DungeonManager;
 import com.sekiya.dungeons.room.DungeonRoom;
 import com.sekiya.dungeons.room.RoomState;
 import com.sekiya.dungeons.util.Location;
+import com.sekiya.dungeons.util.WorldIds;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Listens for player movement to trigger room activation
  * Note: This is a placeholder. Actual implementation depends on Hytale's event system
+ *
+ * Most move events only turn the head or move within a block, so the block and
+ * the room each player was last seen in are remembered. A move inside the same
+ * block returns right away, and a move to another block tests the last room's
+ * bounds before looking the room up. Rooms contain whole blocks, so a room is
+ * entered exactly when the player crosses into one of its blocks.
  */
 public class PlayerMoveListener {
     private final DungeonManager dungeonManager;
+    private final Map<String, MoveState> moveStates;
     
     public PlayerMoveListener(DungeonManager dungeonManager) {
         this.dungeonManager = dungeonManager;
+        this.moveStates = new ConcurrentHashMap<>();
     }
     
     /**
@@ -24,26 +36,59 @@ public class PlayerMoveListener {
      */
     public void onPlayerMove(Object player, Location from, Location to) {
         String playerName = getPlayerName(player);
-        DungeonInstance instance = dungeonManager.getPlayerInstance(playerName);
+        MoveState state = moveStates.get(playerName);
+        if (state == null) {
+            state = new MoveState();
+            moveStates.put(playerName, state);
+        }
+        int x = to.getBlockX();
+        int y = to.getBlockY();
+        int z = to.getBlockZ();
+        int worldId = to.getWorldId();
+        if (x == state.blockX && y == state.blockY && z == state.blockZ && worldId == state.worldId) {
+            return;
+        }
+        state.blockX = x;
+        state.blockY = y;
+        state.blockZ = z;
+        state.worldId = worldId;
         
+        DungeonInstance instance = dungeonManager.getPlayerInstance(playerName);
         if (instance == null || !instance.isActive()) {
+            state.instance = null;
+            state.room = null;
             return;
         }
+        if (state.instance != instance) {
+            state.instance = instance;
+            state.room = null;
+        }
         
-        // Check if player entered a new room
-        for (DungeonRoom room : instance.getRoomManager().getRooms()) {
-            if (room.isPlayerInRoom(to) && !room.isPlayerInRoom(from)) {
-                onPlayerEnterRoom(instance, room);
-            }
+        // Still in the last room, the common case once inside
+        if (state.room != null && state.room.contains(x, y, z, worldId)) {
+            return;
+        }
+        
+        DungeonRoom room = instance.getRoomAt(x, y, z, worldId);
+        state.room = room;
+        if (room == null) {
+            return;
         }
         
-        // Check boss room
-        BossRoom bossRoom = instance.getBossRoom();
-        if (bossRoom != null && bossRoom.isPlayerInRoom(to) && !bossRoom.isPlayerInRoom(from)) {
-            onPlayerEnterBossRoom(instance, bossRoom);
+        if (room instanceof BossRoom) {
+            onPlayerEnterBossRoom(instance, (BossRoom) room);
+        } else {
+            onPlayerEnterRoom(instance, room);
         }
     }
     
+    /**
+     * Forgets where a player was, once they quit
+     */
+    public void forget(String playerName) {
+        moveStates.remove(playerName);
+    }
+    
     /**
      * Handles player entering a room
      */
@@ -79,4 +124,16 @@ public class PlayerMoveListener {
         // Placeholder: Use Hytale's player API
         return "Player";
     }
+    
+    /**
+     * Block and room a player was last seen in
+     */
+    private static class MoveState {
+        private int worldId = WorldIds.NONE;
+        private int blockX;
+        private int blockY;
+        private int blockZ;
+        private DungeonInstance instance;
+        private DungeonRoom room;
+    }
 }
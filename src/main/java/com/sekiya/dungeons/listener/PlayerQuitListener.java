@@ -8,9 +8,18 @@ import com.sekiya.dungeons.instance.DungeonManager;
  */
 public class PlayerQuitListener {
     private final DungeonManager dungeonManager;
+    private final PlayerMoveListener moveListener;
     
     public PlayerQuitListener(DungeonManager dungeonManager) {
+        this(dungeonManager, null);
+    }
+    
+    /**
+     * @param moveListener forgets the movement state of players that quit, or null
+     */
+    public PlayerQuitListener(DungeonManager dungeonManager, PlayerMoveListener moveListener) {
         this.dungeonManager = dungeonManager;
+        this.moveListener = moveListener;
     }
     
     /**
@@ -22,6 +31,10 @@ public class PlayerQuitListener {
         
         // Remove player from any active dungeon instance
         dungeonManager.removePlayerFromInstance(playerName);
+        
+        if (moveListener != null) {
+            moveListener.forget(playerName);
+        }
     }
     
     /**
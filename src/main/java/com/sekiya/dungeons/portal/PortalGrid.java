@@ -0,0 +1,125 @@
+package com.sekiya.dungeons.portal;
+
+import com.sekiya.dungeons.util.LongIntHashMap;
+import com.sekiya.dungeons.util.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spatial hash of portals, to find the portal near a location without testing every portal
+ *
+ * Portals are bucketed in cubic cells of 8 blocks keyed by world id and cell
+ * coordinates. A radius query visits only the cells the radius reaches (at most
+ * 8 for a radius of 3) and compares squared distances, so it costs the same with
+ * a handful of portals or hundreds of them.
+ *
+ * Cell coordinates wrap after 65536 cells, so far apart cells may share a bucket;
+ * every candidate is checked exactly, which keeps results correct. Not thread-safe.
+ */
+public class PortalGrid {
+    private static final int CELL_SHIFT = 3;
+    private static final long CELL_MASK = 0xFFFF;
+    
+    private final LongIntHashMap bucketByCell;
+    private final List<List<DungeonPortal>> buckets;
+    private int size;
+    
+    public PortalGrid() {
+        this.bucketByCell = new LongIntHashMap(64, -1);
+        this.buckets = new ArrayList<>();
+    }
+    
+    /**
+     * Adds a portal at its location
+     */
+    public void add(DungeonPortal portal) {
+        Location location = portal.getLocation();
+        long key = cellKey(location.getWorldId(), location.getBlockX() >> CELL_SHIFT,
+            location.getBlockY() >> CELL_SHIFT, location.getBlockZ() >> CELL_SHIFT);
+        int bucket = bucketByCell.get(key);
+        if (bucket < 0) {
+            bucket = buckets.size();
+            buckets.add(new ArrayList<>(2));
+            bucketByCell.put(key, bucket);
+        }
+        buckets.get(bucket).add(portal);
+        size++;
+    }
+    
+    /**
+     * Removes a portal, if it was added
+     */
+    public void remove(DungeonPortal portal) {
+        Location location = portal.getLocation();
+        int bucket = bucketByCell.get(cellKey(location.getWorldId(), location.getBlockX() >> CELL_SHIFT,
+            location.getBlockY() >> CELL_SHIFT, location.getBlockZ() >> CELL_SHIFT));
+        // Emptied buckets keep their cell, portals are rarely removed
+        if (bucket >= 0 && buckets.get(bucket).remove(portal)) {
+            size--;
+        }
+    }
+    
+    /**
+     * Gets the portal nearest to a location within a radius, or null if there is none
+     */
+    public DungeonPortal findNearest(Location location, double radius) {
+        if (size == 0 || location == null) {
+            return null;
+        }
+        
+        int worldId = location.getWorldId();
+        double x = location.getX();
+        double y = location.getY();
+        double z = location.getZ();
+        int minCellX = (int) Math.floor(x - radius) >> CELL_SHIFT;
+        int minCellY = (int) Math.floor(y - radius) >> CELL_SHIFT;
+        int minCellZ = (int) Math.floor(z - radius) >> CELL_SHIFT;
+        int maxCellX = (int) Math.floor(x + radius) >> CELL_SHIFT;
+        int maxCellY = (int) Math.floor(y + radius) >> CELL_SHIFT;
+        int maxCellZ = (int) Math.floor(z + radius) >> CELL_SHIFT;
+        
+        DungeonPortal nearest = null;
+        double nearestDistanceSquared = radius * radius;
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                    int bucket = bucketByCell.get(cellKey(worldId, cx, cy, cz));
+                    if (bucket < 0) {
+                        continue;
+                    }
+                    for (DungeonPortal portal : buckets.get(bucket)) {
+                        Location other = portal.getLocation();
+                        if (other.getWorldId() != worldId) {
+                            continue;
+                        }
+                        double dx = other.getX() - x;
+                        double dy = other.getY() - y;
+                        double dz = other.getZ() - z;
+                        double distanceSquared = dx * dx + dy * dy + dz * dz;
+                        if (distanceSquared <= nearestDistanceSquared
+                                && (nearest == null || distanceSquared < nearestDistanceSquared)) {
+                            nearest = portal;
+                            nearestDistanceSquared = distanceSquared;
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public void clear() {
+        bucketByCell.clear();
+        buckets.clear();
+        size = 0;
+    }
+    
+    private static long cellKey(int worldId, int cellX, int cellY, int cellZ) {
+        return ((long) worldId << 48) | ((cellX & CELL_MASK) << 32) | ((cellY & CELL_MASK) << 16) | (cellZ & CELL_MASK);
+    }
+}
@@ -10,12 +10,15 @@ import java.util.Map;
  * Manages dungeon portals
  */
 public class PortalManager {
+    // Players interact with a portal from up to this many blocks away
+    private static final double INTERACT_RADIUS = 3.0;
+    
     private final Map<String, DungeonPortal> portals;
-    private final Map<Location, DungeonPortal> portalsByLocation;
+    private final PortalGrid portalGrid;
     
     public PortalManager() {
         this.portals = new HashMap<>();
-        this.portalsByLocation = new HashMap<>();
+        this.portalGrid = new PortalGrid();
     }
     
     /**
@@ -27,8 +30,11 @@ public class PortalManager {
         }
         
         DungeonPortal portal = new DungeonPortal(template.getName(), template.getPortalLocation());
-        portals.put(template.getName(), portal);
-        portalsByLocation.put(template.getPortalLocation(), portal);
+        DungeonPortal previous = portals.put(template.getName(), portal);
+        if (previous != null) {
+            portalGrid.remove(previous);
+        }
+        portalGrid.add(portal);
     }
     
     /**
@@ -39,23 +45,10 @@ public class PortalManager {
     }
     
     /**
-     * Gets a portal at a location
+     * Gets the portal nearest to a location, within 3 blocks
      */
     public DungeonPortal getPortalAtLocation(Location location) {
-        // Check exact location first
-        DungeonPortal exact = portalsByLocation.get(location);
-        if (exact != null) {
-            return exact;
-        }
-        
-        // Check nearby locations (within 3 blocks)
-        for (Map.Entry<Location, DungeonPortal> entry : portalsByLocation.entrySet()) {
-            if (entry.getKey().distance(location) <= 3.0) {
-                return entry.getValue();
-            }
-        }
-        
-        return null;
+        return portalGrid.findNearest(location, INTERACT_RADIUS);
     }
     
     /**
@@ -96,7 +89,7 @@ public class PortalManager {
     public void removePortal(String dungeonName) {
         DungeonPortal portal = portals.remove(dungeonName);
         if (portal != null) {
-            portalsByLocation.remove(portal.getLocation());
+            portalGrid.remove(portal);
         }
     }
     
@@ -105,6 +98,6 @@ public class PortalManager {
      */
     public void clearAll() {
         portals.clear();
-        portalsByLocation.clear();
+        portalGrid.clear();
     }
 }
@@ -0,0 +1,148 @@
+package com.sekiya.dungeons.protection;
+
+import com.sekiya.dungeons.config.DungeonBlueprint;
+import com.sekiya.dungeons.config.DungeonTemplate;
+import com.sekiya.dungeons.config.RoomBlueprint;
+import com.sekiya.dungeons.generator.CorridorPath;
+import com.sekiya.dungeons.generator.CorridorRouter;
+import com.sekiya.dungeons.generator.OccupancyIndex;
+import com.sekiya.dungeons.generator.WorldGenerator;
+import com.sekiya.dungeons.room.RoomDoor;
+import com.sekiya.dungeons.util.Location;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The protected footprint of one dungeon: its rooms, boss room, corridors and doors
+ *
+ * Room boxes come from the compiled blueprint. Dungeons built by the generator
+ * also get the boxes of the corridors routed between their rooms, the same boxes
+ * the build writes. The boxes are marked in an {@link OccupancyIndex}, so testing
+ * a block is one hash probe and one bit test. Immutable once built.
+ */
+public class ProtectedDungeon {
+    private final DungeonBlueprint blueprint;
+    private final int worldId;
+    private final List<int[]> boxes;
+    private final OccupancyIndex footprint;
+    
+    // Seven ints per door: room index, then min x, y, z and max x, y, z
+    private final int[] doorBoxes;
+    
+    private ProtectedDungeon(DungeonBlueprint blueprint, int worldId, List<int[]> boxes, int[] doorBoxes) {
+        this.blueprint = blueprint;
+        this.worldId = worldId;
+        this.boxes = Collections.unmodifiableList(boxes);
+        this.doorBoxes = doorBoxes;
+        
+        OccupancyIndex index = new OccupancyIndex();
+        for (int[] box : boxes) {
+            index.markBox(box[0], box[1], box[2], box[3], box[4], box[5]);
+        }
+        this.footprint = index;
+    }
+    
+    /**
+     * Gets the footprint of a dungeon
+     *
+     * @return the footprint, or null if the dungeon has no rooms or was generated
+     *         but never built into the world
+     */
+    public static ProtectedDungeon of(DungeonBlueprint blueprint) {
+        DungeonTemplate template = blueprint.getTemplate();
+        boolean generated = template.getTheme() != null;
+        if ((generated && template.getBuiltRooms() == null) || blueprint.getRoomCount() == 0) {
+            return null;
+        }
+        
+        int roomCount = blueprint.getRoomCount();
+        int worldId = blueprint.getRoom(0).getWorldId();
+        List<int[]> boxes = new ArrayList<>();
+        List<Integer> doors = new ArrayList<>();
+        for (int i = 0; i <= roomCount; i++) {
+            RoomBlueprint room = i < roomCount ? blueprint.getRoom(i) : blueprint.getBossRoom();
+            if (room == null || room.getWorldId() != worldId) {
+                continue;
+            }
+            boxes.add(new int[]{room.getMinBlockX(), room.getMinBlockY(), room.getMinBlockZ(),
+                room.getMaxBlockX(), room.getMaxBlockY(), room.getMaxBlockZ()});
+            
+            RoomDoor door = room.createDoor();
+            if (door != null && door.getLocation() != null) {
+                // The door faces along either axis, so cover its width both ways
+                Location location = door.getLocation();
+                int half = Math.max(0, door.getWidth() / 2);
+                int x = location.getBlockX();
+                int y = location.getBlockY();
+                int z = location.getBlockZ();
+                int[] box = {x - half, y, z - half, x + half, y + Math.max(0, door.getHeight() - 1), z + half};
+                boxes.add(box);
+                doors.add(i);
+                for (int value : box) {
+                    doors.add(value);
+                }
+            }
+        }
+        
+        if (generated) {
+            for (CorridorPath corridor : CorridorRouter.routeAll(WorldGenerator.getStructureRooms(template))) {
+                if (corridor != null) {
+                    WorldGenerator.addCorridorBoxes(corridor, boxes);
+                }
+            }
+        }
+        
+        int[] doorBoxes = new int[doors.size()];
+        for (int i = 0; i < doorBoxes.length; i++) {
+            doorBoxes[i] = doors.get(i);
+        }
+        return new ProtectedDungeon(blueprint, worldId, boxes, doorBoxes);
+    }
+    
+    /**
+     * Checks if a block belongs to the dungeon
+     */
+    public boolean contains(int x, int y, int z, int worldId) {
+        return worldId == this.worldId && footprint.contains(x, y, z);
+    }
+    
+    /**
+     * Gets the room whose door covers a block, or -1 if no door does
+     */
+    public int getDoorRoomAt(int x, int y, int z) {
+        for (int i = 0; i < doorBoxes.length; i += 7) {
+            if (x >= doorBoxes[i + 1] && x <= doorBoxes[i + 4] && y >= doorBoxes[i + 2] && y <= doorBoxes[i + 5]
+                    && z >= doorBoxes[i + 3] && z <= doorBoxes[i + 6]) {
+                return doorBoxes[i];
+            }
+        }
+        return -1;
+    }
+    
+    public String getName() {
+        return blueprint.getName();
+    }
+    
+    public DungeonBlueprint getBlueprint() {
+        return blueprint;
+    }
+    
+    public int getWorldId() {
+        return worldId;
+    }
+    
+    /**
+     * Gets the protected boxes, six ints each: min x, y, z then max x, y, z
+     */
+    public List<int[]> getBoxes() {
+        return boxes;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ProtectedDungeon{name=%s, boxes=%d, doors=%d}",
+            getName(), boxes.size(), doorBoxes.length / 7);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sekiya.dungeons.protection;
+
+import com.sekiya.dungeons.config.DungeonBlueprint;
+import com.sekiya.dungeons.config.RoomBlueprint;
+
+/**
+ * Why a block is protected: the dungeon it belongs to, and the room or door it is part of
+ */
+public class Protection {
+    private final ProtectedDungeon dungeon;
+    private final int roomIndex;
+    private final boolean door;
+    
+    Protection(ProtectedDungeon dungeon, int roomIndex, boolean door) {
+        this.dungeon = dungeon;
+        this.roomIndex = roomIndex;
+        this.door = door;
+    }
+    
+    public String getDungeonName() {
+        return dungeon.getName();
+    }
+    
+    public DungeonBlueprint getBlueprint() {
+        return dungeon.getBlueprint();
+    }
+    
+    /**
+     * Gets the position of the room in the room order, the room count for the boss
+     * room, or -1 for a corridor
+     */
+    public int getRoomIndex() {
+        return roomIndex;
+    }
+    
+    /**
+     * Gets the room the block is part of, or null for a corridor
+     */
+    public RoomBlueprint getRoom() {
+        DungeonBlueprint blueprint = dungeon.getBlueprint();
+        if (roomIndex < 0) {
+            return null;
+        }
+        return roomIndex < blueprint.getRoomCount() ? blueprint.getRoom(roomIndex) : blueprint.getBossRoom();
+    }
+    
+    public boolean isCorridor() {
+        return roomIndex < 0;
+    }
+    
+    /**
+     * Checks if the block is part of the door of the room
+     */
+    public boolean isDoor() {
+        return door;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Protection{dungeon=%s, room=%d, door=%s}", getDungeonName(), roomIndex, door);
+    }
+}
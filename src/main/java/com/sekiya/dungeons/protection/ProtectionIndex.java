@@ -0,0 +1,83 @@
+package com.sekiya.dungeons.protection;
+
+import com.sekiya.dungeons.util.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Chunk-keyed index of protected dungeons, to find the dungeon a block belongs to
+ *
+ * Every chunk column a dungeon's boxes touch is keyed by world id and chunk
+ * coordinates, and lists the dungeons in it. A block outside every dungeon costs
+ * one hash probe; inside one, its dungeons test their footprint. Chunk coordinates
+ * wrap after 2^24 chunks, which only adds candidates since footprints are exact.
+ *
+ * Immutable once built, so it can be read from any thread.
+ */
+public class ProtectionIndex {
+    private static final long CHUNK_MASK = 0xFFFFFF;
+    
+    private final LongIntHashMap bucketByColumn;
+    private final ProtectedDungeon[][] buckets;
+    
+    public ProtectionIndex(Collection<ProtectedDungeon> dungeons) {
+        this.bucketByColumn = new LongIntHashMap(Math.max(16, dungeons.size() * 4), -1);
+        List<List<ProtectedDungeon>> lists = new ArrayList<>();
+        
+        for (ProtectedDungeon dungeon : dungeons) {
+            for (int[] box : dungeon.getBoxes()) {
+                for (int chunkX = box[0] >> 4; chunkX <= box[3] >> 4; chunkX++) {
+                    for (int chunkZ = box[2] >> 4; chunkZ <= box[5] >> 4; chunkZ++) {
+                        long key = columnKey(dungeon.getWorldId(), chunkX, chunkZ);
+                        int bucket = bucketByColumn.get(key);
+                        if (bucket < 0) {
+                            bucket = lists.size();
+                            lists.add(new ArrayList<>(1));
+                            bucketByColumn.put(key, bucket);
+                        }
+                        
+                        // Dungeons are added one after the other, so a repeat is always the last one
+                        List<ProtectedDungeon> list = lists.get(bucket);
+                        if (list.isEmpty() || list.get(list.size() - 1) != dungeon) {
+                            list.add(dungeon);
+                        }
+                    }
+                }
+            }
+        }
+        
+        this.buckets = new ProtectedDungeon[lists.size()][];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = lists.get(i).toArray(new ProtectedDungeon[0]);
+        }
+    }
+    
+    /**
+     * Gets the dungeon a block belongs to, or null if it is in none
+     */
+    public ProtectedDungeon find(int x, int y, int z, int worldId) {
+        int bucket = bucketByColumn.get(columnKey(worldId, x >> 4, z >> 4));
+        if (bucket < 0) {
+            return null;
+        }
+        for (ProtectedDungeon dungeon : buckets[bucket]) {
+            if (dungeon.contains(x, y, z, worldId)) {
+                return dungeon;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the number of chunk columns holding protected blocks
+     */
+    public int getColumnCount() {
+        return buckets.length;
+    }
+    
+    private static long columnKey(int worldId, int chunkX, int chunkZ) {
+        return ((long) worldId << 48) | ((chunkX & CHUNK_MASK) << 24) | (chunkZ & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,130 @@
+package com.sekiya.dungeons.protection;
+
+import com.sekiya.dungeons.config.BlueprintListener;
+import com.sekiya.dungeons.config.ConfigManager;
+import com.sekiya.dungeons.config.DungeonBlueprint;
+import com.sekiya.dungeons.instance.DungeonInstance;
+import com.sekiya.dungeons.instance.DungeonManager;
+import com.sekiya.dungeons.util.Location;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells which dungeon, room and door a block belongs to, for block protection
+ *
+ * Follows the blueprints of the {@link ConfigManager}: every dungeon in the world
+ * is kept as a {@link ProtectedDungeon}, and the {@link ProtectionIndex} over them
+ * is rebuilt on the first check after a change. A block outside every dungeon is
+ * answered with one hash probe. Checks can run on any thread.
+ */
+public class ProtectionManager implements BlueprintListener {
+    private final DungeonManager dungeonManager;
+    private final Map<String, ProtectedDungeon> dungeons;
+    private volatile ProtectionIndex index;
+    private volatile boolean dirty;
+    
+    public ProtectionManager(DungeonManager dungeonManager) {
+        this.dungeonManager = dungeonManager;
+        this.dungeons = new ConcurrentHashMap<>();
+        this.index = new ProtectionIndex(Collections.emptyList());
+    }
+    
+    /**
+     * Protects every dungeon of a config manager and follows its changes
+     */
+    public void attach(ConfigManager configManager) {
+        configManager.setBlueprintListener(this);
+        for (String name : configManager.getAllDungeonTemplates().keySet()) {
+            DungeonBlueprint blueprint = configManager.getDungeonBlueprint(name);
+            if (blueprint != null) {
+                onBlueprintCompiled(blueprint);
+            }
+        }
+    }
+    
+    @Override
+    public void onBlueprintCompiled(DungeonBlueprint blueprint) {
+        ProtectedDungeon dungeon = ProtectedDungeon.of(blueprint);
+        if (dungeon != null) {
+            dungeons.put(blueprint.getName(), dungeon);
+            dirty = true;
+        } else if (dungeons.remove(blueprint.getName()) != null) {
+            dirty = true;
+        }
+    }
+    
+    @Override
+    public void onBlueprintRemoved(String name) {
+        if (dungeons.remove(name) != null) {
+            dirty = true;
+        }
+    }
+    
+    /**
+     * Gets why a block is protected
+     *
+     * @param worldId id of the block's world, see {@link com.sekiya.dungeons.util.WorldIds}
+     * @return the protection, or null if the block is in no dungeon
+     */
+    public Protection getProtection(int x, int y, int z, int worldId) {
+        ProtectedDungeon dungeon = getIndex().find(x, y, z, worldId);
+        if (dungeon == null) {
+            return null;
+        }
+        
+        int doorRoom = dungeon.getDoorRoomAt(x, y, z);
+        if (doorRoom >= 0) {
+            return new Protection(dungeon, doorRoom, true);
+        }
+        return new Protection(dungeon, dungeon.getBlueprint().getRoomIndex().find(x, y, z, worldId), false);
+    }
+    
+    /**
+     * Gets why the block at a location is protected, or null if it is in no dungeon
+     */
+    public Protection getProtection(Location location) {
+        return getProtection(location.getBlockX(), location.getBlockY(), location.getBlockZ(), location.getWorldId());
+    }
+    
+    /**
+     * Checks if a block belongs to a dungeon
+     */
+    public boolean isProtected(int x, int y, int z, int worldId) {
+        return getIndex().find(x, y, z, worldId) != null;
+    }
+    
+    /**
+     * Gets the instance of the protecting dungeon a player is in, or null if they are in none
+     */
+    public DungeonInstance getInstance(Protection protection, String playerName) {
+        DungeonInstance instance = dungeonManager.getPlayerInstance(playerName);
+        return instance != null && instance.getDungeonName().equals(protection.getDungeonName()) ? instance : null;
+    }
+    
+    /**
+     * Gets every instance of the protecting dungeon, they all share its blocks
+     */
+    public List<DungeonInstance> getInstances(Protection protection) {
+        return dungeonManager.getInstancesForDungeon(protection.getDungeonName());
+    }
+    
+    public int getProtectedDungeonCount() {
+        return dungeons.size();
+    }
+    
+    private ProtectionIndex getIndex() {
+        if (dirty) {
+            synchronized (this) {
+                if (dirty) {
+                    // Cleared first, so a change made while building marks it again
+                    dirty = false;
+                    index = new ProtectionIndex(dungeons.values());
+                }
+            }
+        }
+        return index;
+    }
+}
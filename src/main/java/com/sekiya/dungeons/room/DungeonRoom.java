@@ -1,75 +1,59 @@
 package com.sekiya.dungeons.room;
 
-import com.sekiya.dungeons.config.RoomConfig;
+import com.sekiya.dungeons.config.RoomBlueprint;
 import com.sekiya.dungeons.enemy.SpawnPoint;
 import com.sekiya.dungeons.room.RoomState;
 import com.sekiya.dungeons.util.BlockRegion;
 import com.sekiya.dungeons.util.Location;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a room in a dungeon instance
  */
 public class DungeonRoom {
-    private final String id;
-    private final int order;
-    private final BlockRegion bounds;
+    private final RoomBlueprint blueprint;
     private final RoomDoor door;
-    private final List<SpawnPoint> spawnPoints;
     private RoomState state;
     
-    public DungeonRoom(RoomConfig config) {
-        this.id = config.getId();
-        this.order = config.getOrder();
-        this.bounds = new BlockRegion(config.getMinBounds(), config.getMaxBounds());
+    public DungeonRoom(RoomBlueprint blueprint) {
+        this.blueprint = blueprint;
+        this.door = blueprint.createDoor();
         this.state = RoomState.LOCKED;
-        this.spawnPoints = new ArrayList<>();
-        
-        // Initialize spawn points
-        if (config.getSpawnPoints() != null) {
-            for (var spConfig : config.getSpawnPoints()) {
-                spawnPoints.add(new SpawnPoint(
-                    spConfig.getId(),
-                    spConfig.getLocation(),
-                    spConfig.getEnemyType(),
-                    spConfig.getCount()
-                ));
-            }
-        }
-        
-        // Initialize door
-        if (config.getDoor() != null) {
-            this.door = new RoomDoor(
-                config.getDoor().getLocation(),
-                config.getDoor().getType(),
-                config.getDoor().getWidth(),
-                config.getDoor().getHeight()
-            );
-        } else {
-            this.door = null;
-        }
     }
     
     public String getId() {
-        return id;
+        return blueprint.getId();
     }
     
     public int getOrder() {
-        return order;
+        return blueprint.getOrder();
+    }
+    
+    /**
+     * Gets the position of the room in the dungeon's room order
+     */
+    public int getIndex() {
+        return blueprint.getIndex();
+    }
+    
+    public RoomBlueprint getBlueprint() {
+        return blueprint;
     }
     
     public BlockRegion getBounds() {
-        return bounds;
+        return blueprint.getBounds();
     }
     
     public RoomDoor getDoor() {
         return door;
     }
     
+    /**
+     * Gets the spawn points of the room, shared with other instances and unmodifiable
+     */
     public List<SpawnPoint> getSpawnPoints() {
-        return spawnPoints;
+        return blueprint.getSpawnPoints();
     }
     
     public RoomState getState() {
@@ -81,7 +65,16 @@ public class DungeonRoom {
     }
     
     public boolean isPlayerInRoom(Location playerLocation) {
-        return bounds.contains(playerLocation);
+        return blueprint.contains(playerLocation);
+    }
+    
+    /**
+     * Checks if a block is inside the room
+     *
+     * @param worldId id of the block's world, see {@link com.sekiya.dungeons.util.WorldIds}
+     */
+    public boolean contains(int x, int y, int z, int worldId) {
+        return blueprint.contains(x, y, z, worldId);
     }
     
     public void unlock() {
@@ -116,6 +109,6 @@ public class DungeonRoom {
     
     @Override
     public String toString() {
-        return String.format("DungeonRoom{id=%s, order=%d, state=%s}", id, order, state);
+        return String.format("DungeonRoom{id=%s, order=%d, state=%s}", getId(), getOrder(), state);
     }
 }
@@ -1,6 +1,7 @@
 package com.sekiya.dungeons.room;
 
-import com.sekiya.dungeons.config.RoomConfig;
+import com.sekiya.dungeons.build.DecorationScheduler;
+import com.sekiya.dungeons.config.DungeonBlueprint;
 import com.sekiya.dungeons.enemy.EnemyManager;
 
 import java.util.*;
@@ -9,31 +10,38 @@ import java.util.*;
  * Manages rooms in dungeon instances
  */
 public class RoomManager {
-    private final Map<String, DungeonRoom> rooms;
     private final EnemyManager enemyManager;
+    private final DecorationScheduler decorationScheduler;
+    private DungeonBlueprint blueprint;
+    private DungeonRoom[] rooms;
     
     public RoomManager(EnemyManager enemyManager) {
-        this.rooms = new LinkedHashMap<>();
+        this(enemyManager, null);
+    }
+    
+    /**
+     * @param decorationScheduler decorates rooms as they are unlocked, or null
+     */
+    public RoomManager(EnemyManager enemyManager, DecorationScheduler decorationScheduler) {
         this.enemyManager = enemyManager;
+        this.decorationScheduler = decorationScheduler;
+        this.rooms = new DungeonRoom[0];
     }
     
     /**
-     * Initializes rooms from configuration
+     * Initializes rooms from a compiled dungeon, already in order
      */
-    public void initializeRooms(List<RoomConfig> roomConfigs) {
-        rooms.clear();
-        
-        // Sort by order
-        roomConfigs.sort(Comparator.comparingInt(RoomConfig::getOrder));
-        
-        for (RoomConfig config : roomConfigs) {
-            DungeonRoom room = new DungeonRoom(config);
-            rooms.put(room.getId(), room);
+    public void initializeRooms(DungeonBlueprint blueprint) {
+        this.blueprint = blueprint;
+        this.rooms = new DungeonRoom[blueprint.getRoomCount()];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new DungeonRoom(blueprint.getRoom(i));
         }
         
         // Unlock first room
-        if (!rooms.isEmpty()) {
-            rooms.values().iterator().next().unlock();
+        if (rooms.length > 0) {
+            rooms[0].unlock();
+            decorate(rooms[0]);
         }
     }
     
@@ -41,23 +49,36 @@ public class RoomManager {
      * Gets a room by ID
      */
     public DungeonRoom getRoom(String roomId) {
-        return rooms.get(roomId);
+        int index = blueprint != null ? blueprint.getRoomIndex(roomId) : -1;
+        return index >= 0 ? rooms[index] : null;
+    }
+    
+    /**
+     * Gets a room by its position in the room order, or null if there is no such room
+     */
+    public DungeonRoom getRoom(int index) {
+        return index >= 0 && index < rooms.length ? rooms[index] : null;
     }
     
     /**
      * Gets all rooms in order
      */
     public List<DungeonRoom> getRooms() {
-        return new ArrayList<>(rooms.values());
+        return Collections.unmodifiableList(Arrays.asList(rooms));
+    }
+    
+    public int getRoomCount() {
+        return rooms.length;
     }
     
     /**
      * Activates a room (spawns enemies)
      */
     public void activateRoom(String roomId) {
-        DungeonRoom room = rooms.get(roomId);
+        DungeonRoom room = getRoom(roomId);
         if (room != null && room.getState() == RoomState.UNLOCKED) {
             room.activate();
+            decorate(room);
             
             // Spawn enemies
             for (var spawnPoint : room.getSpawnPoints()) {
@@ -70,29 +91,32 @@ public class RoomManager {
      * Marks a room as cleared and opens the door
      */
     public void clearRoom(String roomId) {
-        DungeonRoom room = rooms.get(roomId);
+        DungeonRoom room = getRoom(roomId);
         if (room != null) {
             room.clear();
             
             // Unlock next room
-            unlockNextRoom(roomId);
+            unlockNextRoom(room);
         }
     }
     
     /**
      * Unlocks the next room in sequence
      */
-    private void unlockNextRoom(String currentRoomId) {
-        List<DungeonRoom> roomList = getRooms();
-        
-        for (int i = 0; i < roomList.size() - 1; i++) {
-            if (roomList.get(i).getId().equals(currentRoomId)) {
-                DungeonRoom nextRoom = roomList.get(i + 1);
-                if (nextRoom.isLocked()) {
-                    nextRoom.unlock();
-                }
-                break;
-            }
+    private void unlockNextRoom(DungeonRoom current) {
+        int next = current.getIndex() + 1;
+        if (next < rooms.length && rooms[next].isLocked()) {
+            rooms[next].unlock();
+            decorate(rooms[next]);
+        }
+    }
+    
+    /**
+     * Applies the deferred decorations of a room and the one after it, if not done yet
+     */
+    private void decorate(DungeonRoom room) {
+        if (decorationScheduler != null && blueprint != null) {
+            decorationScheduler.onRoomReached(blueprint.getTemplate(), room.getId());
         }
     }
     
@@ -100,21 +124,26 @@ public class RoomManager {
      * Checks if all rooms are cleared
      */
     public boolean areAllRoomsCleared() {
-        return rooms.values().stream().allMatch(DungeonRoom::isCleared);
+        for (DungeonRoom room : rooms) {
+            if (!room.isCleared()) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
      * Resets all rooms to initial state
      */
     public void resetAllRooms() {
-        for (DungeonRoom room : rooms.values()) {
+        for (DungeonRoom room : rooms) {
             room.reset();
             enemyManager.clearRoomEnemies(room.getId());
         }
         
         // Unlock first room again
-        if (!rooms.isEmpty()) {
-            rooms.values().iterator().next().unlock();
+        if (rooms.length > 0) {
+            rooms[0].unlock();
         }
     }
     
@@ -122,7 +151,7 @@ public class RoomManager {
      * Gets the current active room (first non-cleared room)
      */
     public DungeonRoom getCurrentRoom() {
-        for (DungeonRoom room : rooms.values()) {
+        for (DungeonRoom room : rooms) {
             if (!room.isCleared()) {
                 return room;
             }
@@ -134,21 +163,24 @@ public class RoomManager {
      * Gets the current room index (0-based)
      */
     public int getCurrentRoomIndex() {
-        List<DungeonRoom> roomList = getRooms();
-        for (int i = 0; i < roomList.size(); i++) {
-            if (!roomList.get(i).isCleared()) {
+        for (int i = 0; i < rooms.length; i++) {
+            if (!rooms[i].isCleared()) {
                 return i;
             }
         }
-        return roomList.size() - 1;
+        return rooms.length - 1;
     }
     
     /**
      * Gets the number of completed rooms
      */
     public int getCompletedRoomCount() {
-        return (int) rooms.values().stream()
-            .filter(DungeonRoom::isCleared)
-            .count();
+        int completed = 0;
+        for (DungeonRoom room : rooms) {
+            if (room.isCleared()) {
+                completed++;
+            }
+        }
+        return completed;
     }
 }
@@ -0,0 +1,83 @@
+package com.sekiya.dungeons.schematic;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and encoding helpers of the binary dungeon schematic format
+ * 
+ * Layout (big-endian):
+ * - Header: magic, version, flags, world name, block count
+ * - Palette: entry count, then per entry the BlockType name and optional metadata
+ * - Section index: section count, then per section its coordinates, data offset,
+ *   data length and block count. Offsets are relative to the end of the header
+ * - Section data: runs of (length, palette index) as varints, covering the 4096
+ *   cells of the section in y, z, x order. Palette index 0 marks cells the
+ *   structure does not write
+ * 
+ * Strings are a varint length (0 for null, otherwise length + 1) followed by UTF-8 bytes.
+ */
+public class SchematicFormat {
+    public static final int MAGIC = 0x534B4453; // "SKDS"
+    public static final short VERSION = 1;
+    public static final String FILE_EXTENSION = ".sds";
+    
+    public static final int SECTION_VOLUME = 4096;
+    public static final int INDEX_ENTRY_BYTES = 3 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+    
+    /**
+     * Palette index of cells that are not part of the structure
+     */
+    public static final int UNSET = 0;
+    
+    /**
+     * Gets the cell index of a position inside a section
+     */
+    public static int cellIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+    
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    public static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint is too long");
+    }
+    
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+    
+    public static String readString(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+        if (length == 0) {
+            return null;
+        }
+        
+        byte[] bytes = new byte[length - 1];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
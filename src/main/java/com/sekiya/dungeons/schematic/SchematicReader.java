@@ -0,0 +1,323 @@
+package com.sekiya.dungeons.schematic;
+
+import com.sekiya.dungeons.generator.BlockBuffer;
+import com.sekiya.dungeons.generator.BlockSection;
+import com.sekiya.dungeons.generator.BlockSink;
+import com.sekiya.dungeons.generator.BlockType;
+import com.sekiya.dungeons.generator.CuboidFill;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a binary schematic through a memory-mapped file
+ * 
+ * Only the header, palette and section index are parsed when the file is
+ * opened. Sections are decoded one at a time straight from the mapping, so a
+ * prebuilt dungeon can be streamed into the world without ever holding the
+ * whole structure on the heap. Runs that cover complete rows are handed to the
+ * sink as region operations.
+ */
+public class SchematicReader implements Closeable {
+    private final Path file;
+    private MappedByteBuffer mapping;
+    private final String world;
+    private final long blockCount;
+    private final BlockType[] paletteTypes;
+    private final String[] paletteMetadata;
+    private final int[] sectionX;
+    private final int[] sectionY;
+    private final int[] sectionZ;
+    private final long[] sectionOffsets;
+    private final int[] sectionLengths;
+    private final int[] sectionBlockCounts;
+    private final int dataStart;
+    
+    private SchematicReader(Path file, MappedByteBuffer mapping) throws IOException {
+        this.file = file;
+        this.mapping = mapping;
+        
+        try {
+            ByteBuffer header = mapping.duplicate();
+            if (header.getInt() != SchematicFormat.MAGIC) {
+                throw new IOException("Not a dungeon schematic: " + file);
+            }
+            short version = header.getShort();
+            if (version != SchematicFormat.VERSION) {
+                throw new IOException("Unsupported schematic version " + version + ": " + file);
+            }
+            header.getShort(); // Flags, unused
+            
+            this.world = SchematicFormat.readString(header);
+            this.blockCount = header.getLong();
+            
+            int paletteSize = SchematicFormat.readVarInt(header);
+            this.paletteTypes = new BlockType[paletteSize];
+            this.paletteMetadata = new String[paletteSize];
+            for (int i = 1; i < paletteSize; i++) {
+                String typeName = SchematicFormat.readString(header);
+                try {
+                    paletteTypes[i] = BlockType.valueOf(typeName);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    throw new IOException("Unknown block type '" + typeName + "' in schematic: " + file);
+                }
+                paletteMetadata[i] = SchematicFormat.readString(header);
+            }
+            
+            int sections = header.getInt();
+            if (sections < 0 || (long) sections * SchematicFormat.INDEX_ENTRY_BYTES > header.remaining()) {
+                throw new IOException("Corrupt section index in schematic: " + file);
+            }
+            this.sectionX = new int[sections];
+            this.sectionY = new int[sections];
+            this.sectionZ = new int[sections];
+            this.sectionOffsets = new long[sections];
+            this.sectionLengths = new int[sections];
+            this.sectionBlockCounts = new int[sections];
+            for (int i = 0; i < sections; i++) {
+                sectionX[i] = header.getInt();
+                sectionY[i] = header.getInt();
+                sectionZ[i] = header.getInt();
+                sectionOffsets[i] = header.getLong();
+                sectionLengths[i] = header.getInt();
+                sectionBlockCounts[i] = header.getInt();
+            }
+            this.dataStart = header.position();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated schematic: " + file);
+        }
+    }
+    
+    /**
+     * Opens and maps a schematic file
+     */
+    public static SchematicReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SchematicReader(file, mapping);
+        }
+    }
+    
+    public String getWorld() {
+        return world;
+    }
+    
+    public long getBlockCount() {
+        return blockCount;
+    }
+    
+    public int getSectionCount() {
+        return sectionX.length;
+    }
+    
+    public int getSectionBlockCount(int index) {
+        return sectionBlockCounts[index];
+    }
+    
+    /**
+     * Gets the section coordinates of a section, in file order
+     */
+    public int getSectionX(int index) {
+        return sectionX[index];
+    }
+    
+    public int getSectionY(int index) {
+        return sectionY[index];
+    }
+    
+    public int getSectionZ(int index) {
+        return sectionZ[index];
+    }
+    
+    /**
+     * Decodes one section into a sink
+     */
+    public void readSection(int index, BlockSink sink) throws IOException {
+        ByteBuffer data = sectionData(index);
+        int baseX = sectionX[index] << 4;
+        int baseY = sectionY[index] << 4;
+        int baseZ = sectionZ[index] << 4;
+        
+        try {
+            int cell = 0;
+            while (cell < SchematicFormat.SECTION_VOLUME) {
+                int length = SchematicFormat.readVarInt(data);
+                int paletteId = SchematicFormat.readVarInt(data);
+                if (length <= 0 || cell + length > SchematicFormat.SECTION_VOLUME 
+                        || paletteId < 0 || paletteId >= paletteTypes.length) {
+                    throw new IOException("Corrupt section " + index + " in schematic: " + file);
+                }
+                
+                if (paletteId == SchematicFormat.UNSET) {
+                    cell += length;
+                } else if (paletteMetadata[paletteId] == null && length >= 16) {
+                    writeRun(sink, baseX, baseY, baseZ, cell, cell + length, paletteTypes[paletteId]);
+                    cell += length;
+                } else {
+                    BlockType type = paletteTypes[paletteId];
+                    String metadata = paletteMetadata[paletteId];
+                    for (int end = cell + length; cell < end; cell++) {
+                        place(sink, baseX, baseY, baseZ, cell, type, metadata);
+                    }
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated section " + index + " in schematic: " + file);
+        }
+    }
+    
+    /**
+     * Writes a long run, complete rows of 16 cells become region operations
+     */
+    private void writeRun(BlockSink sink, int baseX, int baseY, int baseZ, int cell, int end, BlockType type) {
+        // Partial row at the start
+        while (cell < end && (cell & 15) != 0) {
+            place(sink, baseX, baseY, baseZ, cell++, type, null);
+        }
+        
+        // Complete rows: up to the end of the current layer, whole layers, then the rest
+        int firstRow = cell >> 4;
+        int rowEnd = end >> 4;
+        while (firstRow < rowEnd) {
+            int layer = firstRow >> 4;
+            int z = firstRow & 15;
+            int rows;
+            if (z == 0 && rowEnd - firstRow >= 16) {
+                int layers = (rowEnd - firstRow) >> 4;
+                sink.fill(CuboidFill.solid(baseX, baseY + layer, baseZ, 
+                    baseX + 15, baseY + layer + layers - 1, baseZ + 15, type));
+                rows = layers << 4;
+            } else {
+                rows = Math.min(16 - z, rowEnd - firstRow);
+                sink.fill(CuboidFill.solid(baseX, baseY + layer, baseZ + z, 
+                    baseX + 15, baseY + layer, baseZ + z + rows - 1, type));
+            }
+            firstRow += rows;
+        }
+        cell = rowEnd << 4;
+        
+        // Partial row at the end
+        while (cell < end) {
+            place(sink, baseX, baseY, baseZ, cell++, type, null);
+        }
+    }
+    
+    private static void place(BlockSink sink, int baseX, int baseY, int baseZ, int cell, 
+                              BlockType type, String metadata) {
+        sink.place(baseX + (cell & 15), baseY + (cell >> 8), baseZ + ((cell >> 4) & 15), type, metadata);
+    }
+    
+    /**
+     * Decodes one section into a batch that can be applied to the world
+     */
+    public BlockSection loadSection(int index) throws IOException {
+        BlockBuffer blocks = new BlockBuffer(world, sectionBlockCounts[index]);
+        readSection(index, blocks);
+        return new BlockSection(sectionX[index], sectionY[index], sectionZ[index], blocks);
+    }
+    
+    /**
+     * Streams all sections in file order, decoding each one when it is reached
+     */
+    public Iterator<BlockSection> sections() {
+        return new Iterator<>() {
+            private int next = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return next < sectionX.length;
+            }
+            
+            @Override
+            public BlockSection next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return loadSection(next++);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Replays the whole structure into a sink, section by section
+     */
+    public void readAll(BlockSink sink) throws IOException {
+        for (int i = 0; i < sectionX.length; i++) {
+            readSection(i, sink);
+        }
+    }
+    
+    /**
+     * Writes the whole schematic to another file, straight from the mapping
+     * 
+     * Works even if the mapped file was deleted since it was opened.
+     */
+    public void copyTo(Path target) throws IOException {
+        if (mapping == null) {
+            throw new IOException("Schematic is closed: " + file);
+        }
+        
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        ByteBuffer data = mapping.duplicate();
+        data.clear();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, 
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private ByteBuffer sectionData(int index) throws IOException {
+        if (mapping == null) {
+            throw new IOException("Schematic is closed: " + file);
+        }
+        
+        long start = dataStart + sectionOffsets[index];
+        if (sectionOffsets[index] < 0 || start + sectionLengths[index] > mapping.capacity()) {
+            throw new IOException("Section " + index + " is out of bounds in schematic: " + file);
+        }
+        
+        // Duplicates share the mapping but not the position, so sections can be read concurrently
+        ByteBuffer data = mapping.duplicate();
+        data.position((int) start);
+        data.limit((int) start + sectionLengths[index]);
+        return data;
+    }
+    
+    /**
+     * Releases the mapping, it is unmapped once garbage collected
+     */
+    @Override
+    public void close() {
+        mapping = null;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SchematicReader{file=%s, sections=%d, blocks=%d}", 
+            file, sectionX.length, blockCount);
+    }
+}
@@ -0,0 +1,258 @@
+package com.sekiya.dungeons.schematic;
+
+import com.sekiya.dungeons.generator.BlockSection;
+import com.sekiya.dungeons.generator.BlockSink;
+import com.sekiya.dungeons.generator.BlockType;
+import com.sekiya.dungeons.generator.CuboidFill;
+import com.sekiya.dungeons.generator.MaterialPalette;
+import com.sekiya.dungeons.generator.SectionRasterizer;
+import com.sekiya.dungeons.util.LongIntHashMap;
+import com.sekiya.dungeons.util.MortonCode;
+import com.sekiya.dungeons.util.PackedPosition;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Collects generated blocks and writes them as a binary schematic
+ * 
+ * The writer is a {@link BlockSink}, so it can be fed straight from
+ * WorldGenerator or from sorted {@link BlockSection}s. Blocks are kept in one
+ * dense palette-indexed array per 16x16x16 section, the last write to a
+ * coordinate wins. Region operations are rasterized into the cells row by row
+ * (see {@link SectionRasterizer}) instead of being expanded block by block.
+ */
+public class SchematicWriter implements BlockSink {
+    private final String world;
+    
+    // Palette, index 0 is reserved for unset cells
+    private final List<BlockType> paletteTypes;
+    private final List<String> paletteMetadata;
+    private final int[] plainPaletteIds;
+    private final Map<String, Integer> metadataPaletteIds;
+    
+    private final LongIntHashMap sectionIds;
+    private final List<Long> sectionKeys;
+    private final List<short[]> sectionCells;
+    private int[] sectionBlockCounts;
+    private long blockCount;
+    
+    public SchematicWriter(String world) {
+        this.world = world;
+        this.paletteTypes = new ArrayList<>();
+        this.paletteMetadata = new ArrayList<>();
+        this.paletteTypes.add(null);
+        this.paletteMetadata.add(null);
+        this.plainPaletteIds = new int[BlockType.values().length];
+        this.metadataPaletteIds = new HashMap<>();
+        this.sectionIds = new LongIntHashMap();
+        this.sectionKeys = new ArrayList<>();
+        this.sectionCells = new ArrayList<>();
+        this.sectionBlockCounts = new int[16];
+        this.blockCount = 0;
+    }
+    
+    @Override
+    public void place(int x, int y, int z, BlockType type, String metadata) {
+        int section = sectionId(x >> 4, y >> 4, z >> 4);
+        short[] cells = sectionCells.get(section);
+        int cell = SchematicFormat.cellIndex(x, y, z);
+        
+        if (cells[cell] == SchematicFormat.UNSET) {
+            sectionBlockCounts[section]++;
+            blockCount++;
+        }
+        cells[cell] = (short) paletteId(type, metadata);
+    }
+    
+    /**
+     * Writes a region straight into the dense cells of every section it touches
+     */
+    @Override
+    public void fill(CuboidFill region) {
+        MaterialPalette palette = region.getPalette();
+        short[] cellValues = new short[palette.size()];
+        for (int i = 0; i < cellValues.length; i++) {
+            cellValues[i] = (short) paletteId(palette.getType(i), null);
+        }
+        
+        for (int sectionX = region.getMinX() >> 4; sectionX <= region.getMaxX() >> 4; sectionX++) {
+            for (int sectionY = region.getMinY() >> 4; sectionY <= region.getMaxY() >> 4; sectionY++) {
+                for (int sectionZ = region.getMinZ() >> 4; sectionZ <= region.getMaxZ() >> 4; sectionZ++) {
+                    int minX = sectionX << 4;
+                    int minY = sectionY << 4;
+                    int minZ = sectionZ << 4;
+                    CuboidFill clipped = region.clip(minX, minY, minZ, minX + 15, minY + 15, minZ + 15);
+                    if (clipped == null) {
+                        continue;
+                    }
+                    
+                    int section = sectionId(sectionX, sectionY, sectionZ);
+                    int filled = SectionRasterizer.fill(clipped, sectionCells.get(section), 
+                        sectionX, sectionY, sectionZ, cellValues);
+                    sectionBlockCounts[section] += filled;
+                    blockCount += filled;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Adds every block of the given sections
+     */
+    public void addSections(List<BlockSection> sections) {
+        for (BlockSection section : sections) {
+            section.writeTo(this);
+        }
+    }
+    
+    public String getWorld() {
+        return world;
+    }
+    
+    public long getBlockCount() {
+        return blockCount;
+    }
+    
+    public int getSectionCount() {
+        return sectionKeys.size();
+    }
+    
+    public int getPaletteSize() {
+        return paletteTypes.size() - 1;
+    }
+    
+    /**
+     * Writes the schematic, replacing the file atomically
+     * 
+     * @return the size of the written file in bytes
+     */
+    public long write(Path file) throws IOException {
+        // Sections in application order: by chunk column, then bottom to top
+        Integer[] order = new Integer[sectionKeys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Comparator<Integer> byColumn = (a, b) -> Long.compareUnsigned(
+            MortonCode.encodeColumn(PackedPosition.unpackX(sectionKeys.get(a)), PackedPosition.unpackZ(sectionKeys.get(a))), 
+            MortonCode.encodeColumn(PackedPosition.unpackX(sectionKeys.get(b)), PackedPosition.unpackZ(sectionKeys.get(b))));
+        Arrays.sort(order, byColumn.thenComparingInt(i -> PackedPosition.unpackY(sectionKeys.get(i))));
+        
+        // Encode section data first, the index needs the offsets
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        long[] offsets = new long[order.length];
+        int[] lengths = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            offsets[i] = data.size();
+            encodeSection(sectionCells.get(order[i]), dataOut);
+            lengths[i] = (int) (data.size() - offsets[i]);
+        }
+        
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SchematicFormat.MAGIC);
+            out.writeShort(SchematicFormat.VERSION);
+            out.writeShort(0);
+            SchematicFormat.writeString(out, world);
+            out.writeLong(blockCount);
+            
+            SchematicFormat.writeVarInt(out, paletteTypes.size());
+            for (int i = 1; i < paletteTypes.size(); i++) {
+                SchematicFormat.writeString(out, paletteTypes.get(i).name());
+                SchematicFormat.writeString(out, paletteMetadata.get(i));
+            }
+            
+            out.writeInt(order.length);
+            for (int i = 0; i < order.length; i++) {
+                long key = sectionKeys.get(order[i]);
+                out.writeInt(PackedPosition.unpackX(key));
+                out.writeInt(PackedPosition.unpackY(key));
+                out.writeInt(PackedPosition.unpackZ(key));
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+                out.writeInt(sectionBlockCounts[order[i]]);
+            }
+            
+            data.writeTo(out);
+        }
+        
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(file);
+    }
+    
+    /**
+     * Encodes the cells of a section as runs of equal palette indices
+     */
+    private void encodeSection(short[] cells, DataOutput out) throws IOException {
+        int start = 0;
+        while (start < cells.length) {
+            short value = cells[start];
+            int end = start + 1;
+            while (end < cells.length && cells[end] == value) {
+                end++;
+            }
+            
+            SchematicFormat.writeVarInt(out, end - start);
+            SchematicFormat.writeVarInt(out, value);
+            start = end;
+        }
+    }
+    
+    private int sectionId(int sectionX, int sectionY, int sectionZ) {
+        long key = PackedPosition.pack(sectionX, sectionY, sectionZ);
+        int id = sectionIds.get(key);
+        if (id < 0) {
+            id = sectionKeys.size();
+            sectionIds.put(key, id);
+            sectionKeys.add(key);
+            sectionCells.add(new short[SchematicFormat.SECTION_VOLUME]);
+            if (id == sectionBlockCounts.length) {
+                sectionBlockCounts = Arrays.copyOf(sectionBlockCounts, id * 2);
+            }
+        }
+        return id;
+    }
+    
+    private int paletteId(BlockType type, String metadata) {
+        if (metadata == null) {
+            int id = plainPaletteIds[type.ordinal()];
+            if (id == 0) {
+                id = addPaletteEntry(type, null);
+                plainPaletteIds[type.ordinal()] = id;
+            }
+            return id;
+        }
+        
+        String key = type.ordinal() + ":" + metadata;
+        Integer id = metadataPaletteIds.get(key);
+        if (id == null) {
+            id = addPaletteEntry(type, metadata);
+            metadataPaletteIds.put(key, id);
+        }
+        return id;
+    }
+    
+    private int addPaletteEntry(BlockType type, String metadata) {
+        if (paletteTypes.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct blocks in schematic");
+        }
+        paletteTypes.add(type);
+        paletteMetadata.add(metadata);
+        return paletteTypes.size() - 1;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SchematicWriter{world=%s, sections=%d, blocks=%d, palette=%d}", 
+            world, sectionKeys.size(), blockCount, getPaletteSize());
+    }
+}
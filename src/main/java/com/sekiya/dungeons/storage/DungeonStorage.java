@@ -2,6 +2,7 @@ package com.sekiya.dungeons.storage;
 
 import com.sekiya.dungeons.config.DungeonTemplate;
 import com.sekiya.dungeons.config.PluginConfig;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -24,6 +25,11 @@ public interface DungeonStorage {
      */
     void deleteDungeon(String name);
     
+    /**
+     * Gets the file holding the binary schematic of a dungeon's structure
+     */
+    Path getSchematicPath(String name);
+    
     /**
      * Loads all dungeon templates
      */
@@ -3,6 +3,7 @@ package com.sekiya.dungeons.storage;
 import com.google.gson.*;
 import com.sekiya.dungeons.config.DungeonTemplate;
 import com.sekiya.dungeons.config.PluginConfig;
+import com.sekiya.dungeons.schematic.SchematicFormat;
 import com.sekiya.dungeons.util.Location;
 
 import java.io.*;
@@ -27,6 +28,7 @@ public class JsonDungeonStorage implements DungeonStorage {
         try {
             Files.createDirectories(dataFolder);
             Files.createDirectories(dataFolder.resolve("dungeons"));
+            Files.createDirectories(dataFolder.resolve("schematics"));
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -62,11 +64,17 @@ public class JsonDungeonStorage implements DungeonStorage {
         Path file = dataFolder.resolve("dungeons").resolve(name + ".json");
         try {
             Files.deleteIfExists(file);
+            Files.deleteIfExists(getSchematicPath(name));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
     
+    @Override
+    public Path getSchematicPath(String name) {
+        return dataFolder.resolve("schematics").resolve(name + SchematicFormat.FILE_EXTENSION);
+    }
+    
     @Override
     public List<DungeonTemplate> loadAllDungeons() {
         List<DungeonTemplate> dungeons = new ArrayList<>();
@@ -1,54 +1,103 @@
 package com.sekiya.dungeons.util;
 
 /**
- * Represents a 3D rectangular region
+ * Represents a 3D rectangular region of blocks
+ *
+ * Bounds are inclusive block coordinates and the world is kept as its interned id,
+ * so {@link #contains(int, int, int, int)} is six int comparisons and one more for
+ * the world, without a Location or a string comparison. A location is inside when
+ * the block it stands in is, and a location without a world is in no region.
  */
 public class BlockRegion {
-    private final Location min;
-    private final Location max;
+    private final String world;
+    private final int worldId;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
     
     public BlockRegion(Location pos1, Location pos2) {
         if (!pos1.getWorld().equals(pos2.getWorld())) {
             throw new IllegalArgumentException("Positions must be in the same world");
         }
         
-        double minX = Math.min(pos1.getX(), pos2.getX());
-        double minY = Math.min(pos1.getY(), pos2.getY());
-        double minZ = Math.min(pos1.getZ(), pos2.getZ());
-        
-        double maxX = Math.max(pos1.getX(), pos2.getX());
-        double maxY = Math.max(pos1.getY(), pos2.getY());
-        double maxZ = Math.max(pos1.getZ(), pos2.getZ());
-        
-        this.min = new Location(pos1.getWorld(), minX, minY, minZ);
-        this.max = new Location(pos1.getWorld(), maxX, maxY, maxZ);
+        this.world = pos1.getWorld();
+        this.worldId = pos1.getWorldId();
+        this.minX = Math.min(pos1.getBlockX(), pos2.getBlockX());
+        this.minY = Math.min(pos1.getBlockY(), pos2.getBlockY());
+        this.minZ = Math.min(pos1.getBlockZ(), pos2.getBlockZ());
+        this.maxX = Math.max(pos1.getBlockX(), pos2.getBlockX());
+        this.maxY = Math.max(pos1.getBlockY(), pos2.getBlockY());
+        this.maxZ = Math.max(pos1.getBlockZ(), pos2.getBlockZ());
+    }
+    
+    public BlockRegion(String world, int x1, int y1, int z1, int x2, int y2, int z2) {
+        this.world = world;
+        this.worldId = WorldIds.idOf(world);
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.max(y1, y2);
+        this.maxZ = Math.max(z1, z2);
     }
     
+    /**
+     * Gets the minimum corner, as a new Location
+     */
     public Location getMin() {
-        return min;
+        return new Location(world, minX, minY, minZ);
     }
     
+    /**
+     * Gets the maximum corner, as a new Location
+     */
     public Location getMax() {
-        return max;
+        return new Location(world, maxX, maxY, maxZ);
+    }
+    
+    public String getWorld() {
+        return world;
     }
     
+    public int getWorldId() {
+        return worldId;
+    }
+    
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMinZ() { return minZ; }
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+    public int getMaxZ() { return maxZ; }
+    
     public boolean contains(Location loc) {
-        return LocationUtil.isInRegion(loc, min, max);
+        return contains(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), loc.getWorldId());
+    }
+    
+    /**
+     * Checks if a block is inside the region
+     *
+     * @param worldId id of the block's world, see {@link WorldIds}
+     */
+    public boolean contains(int x, int y, int z, int worldId) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ
+            && worldId == this.worldId && worldId != WorldIds.NONE;
     }
     
     public Location getCenter() {
-        return LocationUtil.getCenter(min, max);
+        return new Location(world, (minX + maxX) / 2.0, (minY + maxY) / 2.0, (minZ + maxZ) / 2.0);
     }
     
     public int getVolume() {
-        int dx = (int) (max.getX() - min.getX() + 1);
-        int dy = (int) (max.getY() - min.getY() + 1);
-        int dz = (int) (max.getZ() - min.getZ() + 1);
-        return dx * dy * dz;
+        return (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
     }
     
     @Override
     public String toString() {
-        return String.format("BlockRegion{min=%s, max=%s}", min, max);
+        return String.format("BlockRegion{world=%s, min=%d,%d,%d, max=%d,%d,%d}",
+            world, minX, minY, minZ, maxX, maxY, maxZ);
     }
 }
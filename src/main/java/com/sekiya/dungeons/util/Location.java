@@ -1,5 +1,7 @@
 package com.sekiya.dungeons.util;
 
+import java.util.Objects;
+
 /**
  * Represents a 3D location in the world
  */
@@ -11,6 +13,9 @@ public class Location {
     private final float yaw;
     private final float pitch;
     
+    // Interned id of the world plus one, 0 until first asked for; not serialized
+    private transient int worldIdPlusOne;
+    
     public Location(String world, double x, double y, double z) {
         this(world, x, y, z, 0f, 0f);
     }
@@ -40,6 +45,18 @@ public class Location {
         return z;
     }
     
+    /**
+     * Gets the interned id of the world, see {@link WorldIds}
+     */
+    public int getWorldId() {
+        int id = worldIdPlusOne;
+        if (id == 0) {
+            id = WorldIds.idOf(world) + 1;
+            worldIdPlusOne = id;
+        }
+        return id - 1;
+    }
+    
     public float getYaw() {
         return yaw;
     }
@@ -70,6 +87,25 @@ public class Location {
         return Math.sqrt(dx * dx + dy * dy + dz * dz);
     }
     
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Location)) {
+            return false;
+        }
+        Location other = (Location) o;
+        return Double.compare(x, other.x) == 0 && Double.compare(y, other.y) == 0
+            && Double.compare(z, other.z) == 0 && Float.compare(yaw, other.yaw) == 0
+            && Float.compare(pitch, other.pitch) == 0 && Objects.equals(world, other.world);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(world, x, y, z, yaw, pitch);
+    }
+    
     @Override
     public String toString() {
         return String.format("Location{world=%s, x=%.2f, y=%.2f, z=%.2f}", world, x, y, z);
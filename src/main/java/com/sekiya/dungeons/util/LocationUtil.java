@@ -7,15 +7,19 @@ public class LocationUtil {
     
     /**
      * Checks if a location is within a bounded region
+     * 
+     * Same rule as {@link BlockRegion#contains(Location)}: bounds are inclusive block
+     * coordinates, and a location without a world is in no region.
      */
     public static boolean isInRegion(Location loc, Location min, Location max) {
-        if (!loc.getWorld().equals(min.getWorld())) {
+        int worldId = loc.getWorldId();
+        if (worldId == WorldIds.NONE || worldId != min.getWorldId()) {
             return false;
         }
         
-        return loc.getX() >= min.getX() && loc.getX() <= max.getX() &&
-               loc.getY() >= min.getY() && loc.getY() <= max.getY() &&
-               loc.getZ() >= min.getZ() && loc.getZ() <= max.getZ();
+        return loc.getBlockX() >= min.getBlockX() && loc.getBlockX() <= max.getBlockX() &&
+               loc.getBlockY() >= min.getBlockY() && loc.getBlockY() <= max.getBlockY() &&
+               loc.getBlockZ() >= min.getBlockZ() && loc.getBlockZ() <= max.getBlockZ();
     }
     
     /**
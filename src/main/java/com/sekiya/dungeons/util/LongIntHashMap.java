@@ -0,0 +1,172 @@
+package com.sekiya.dungeons.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to primitive int values
+ * 
+ * Uses linear probing over parallel arrays, so lookups and inserts never box
+ * or allocate. Absent keys report {@link #getMissingValue()}.
+ */
+public class LongIntHashMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.75f;
+    
+    private final int missingValue;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    
+    // EMPTY marks free slots, so the key with that value is stored out of band
+    private boolean hasEmptyKey;
+    private int emptyKeyValue;
+    
+    public LongIntHashMap() {
+        this(16, -1);
+    }
+    
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(tableSizeFor(expectedSize));
+    }
+    
+    /**
+     * Gets the value for a key, or the missing value if absent
+     */
+    public int get(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : missingValue;
+        }
+        
+        int slot = slot(key);
+        while (true) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return values[slot];
+            }
+            if (existing == EMPTY) {
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * Checks if a key is present
+     */
+    public boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey;
+        }
+        
+        int slot = slot(key);
+        while (true) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return true;
+            }
+            if (existing == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * Associates a value with a key
+     * @return the previous value, or the missing value if the key was absent
+     */
+    public int put(long key, int value) {
+        if (key == EMPTY) {
+            int previous = hasEmptyKey ? emptyKeyValue : missingValue;
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return previous;
+        }
+        
+        int slot = slot(key);
+        while (true) {
+            long existing = keys[slot];
+            if (existing == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (existing == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int getMissingValue() {
+        return missingValue;
+    }
+    
+    /**
+     * Removes all entries, keeping the allocated table
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasEmptyKey = false;
+    }
+    
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        Arrays.fill(keys, EMPTY);
+    }
+    
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 4) / (double) LOAD_FACTOR);
+        long capacity = Long.highestOneBit(needed - 1) << 1;
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Expected size too large: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+}
@@ -0,0 +1,49 @@
+package com.sekiya.dungeons.util;
+
+/**
+ * Utility class for Morton (Z-order) codes
+ * 
+ * Interleaving the bits of the coordinates gives an ordering in which
+ * neighbouring codes are close in space as well, which keeps consecutive
+ * block writes inside the same cache lines and chunk sections.
+ */
+public class MortonCode {
+    
+    /**
+     * Encodes a position inside a 16x16x16 section (coordinates masked to 4 bits)
+     */
+    public static int encodeSection(int x, int y, int z) {
+        return spread4(x & 15) | (spread4(z & 15) << 1) | (spread4(y & 15) << 2);
+    }
+    
+    /**
+     * Encodes a chunk column, ordered so that negative coordinates sort first
+     * 
+     * The top bit is used, so codes must be compared with {@link Long#compareUnsigned}.
+     */
+    public static long encodeColumn(int x, int z) {
+        return spread32(x ^ Integer.MIN_VALUE) | (spread32(z ^ Integer.MIN_VALUE) << 1);
+    }
+    
+    /**
+     * Spreads 4 bits so that two zero bits follow each of them
+     */
+    private static int spread4(int value) {
+        value = (value | (value << 4)) & 0x0C3;
+        value = (value | (value << 2)) & 0x249;
+        return value;
+    }
+    
+    /**
+     * Spreads 32 bits so that one zero bit follows each of them
+     */
+    private static long spread32(int value) {
+        long v = value & 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+}
@@ -0,0 +1,41 @@
+package com.sekiya.dungeons.util;
+
+/**
+ * Utility class for packing block coordinates into a single long
+ *
+ * Layout: 26 bits X | 26 bits Z | 12 bits Y, all two's complement.
+ * Covers X/Z in [-33554432, 33554431] and Y in [-2048, 2047].
+ */
+public class PackedPosition {
+    
+    private static final long XZ_MASK = (1L << 26) - 1;
+    private static final long Y_MASK = (1L << 12) - 1;
+    
+    /**
+     * Packs block coordinates into a long
+     */
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << 38) | ((z & XZ_MASK) << 12) | (y & Y_MASK);
+    }
+    
+    /**
+     * Gets the X coordinate of a packed position
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+    
+    /**
+     * Gets the Y coordinate of a packed position
+     */
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+    
+    /**
+     * Gets the Z coordinate of a packed position
+     */
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+}
@@ -0,0 +1,61 @@
+package com.sekiya.dungeons.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns world names to small int ids, so hot paths compare worlds with one int comparison
+ *
+ * Ids are handed out in order from 0 and never reused, and a name keeps its id
+ * for the life of the server. Thread-safe; looking up a known name is one hash probe.
+ */
+public class WorldIds {
+    
+    /**
+     * Id of a null world, which is in no region
+     */
+    public static final int NONE = -1;
+    
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+    
+    /**
+     * Gets the id of a world, interning its name on first use
+     */
+    public static int idOf(String world) {
+        if (world == null) {
+            return NONE;
+        }
+        Integer id = IDS.get(world);
+        return id != null ? id : intern(world);
+    }
+    
+    /**
+     * Gets the name of an interned world, or null for an unknown id
+     */
+    public static String nameOf(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+    
+    /**
+     * Gets the number of interned worlds
+     */
+    public static int size() {
+        return names.length;
+    }
+    
+    private static synchronized int intern(String world) {
+        Integer id = IDS.get(world);
+        if (id != null) {
+            return id;
+        }
+        String[] current = names;
+        String[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = world;
+        names = grown;
+        IDS.put(world, current.length);
+        return current.length;
+    }
+}